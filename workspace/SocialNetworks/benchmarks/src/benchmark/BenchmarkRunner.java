@@ -0,0 +1,43 @@
+package benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * @author kguajardo
+ *
+ * BenchmarkRunner: Main class of benchmarks.jar.  Takes the usual JMH options, and
+ * unless told otherwise adds the gc profiler (allocation rate and GC counts next to
+ * the times) and writes the results to jmh-result.json.
+ *
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams()
+				|| cmd.shouldListProfilers() || cmd.shouldListResultFormats()){
+			//nothing to run, JMH prints what was asked for
+			Main.main(args);
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+		boolean gc = false;
+		for (ProfilerConfig profiler : cmd.getProfilers()){
+			gc |= profiler.getKlass().equals(GCProfiler.class.getName()) || profiler.getKlass().equals("gc");
+		}
+		if (!gc)
+			options.addProfiler(GCProfiler.class);
+		if (!cmd.getResultFormat().hasValue() && !cmd.getResult().hasValue())
+			options.resultFormat(ResultFormatType.JSON).result("jmh-result.json");
+
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,85 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graph.CapGraph;
+import graph.GraphCascader;
+import graph.RankingNodes;
+
+/**
+ * @author kguajardo
+ *
+ * CascadeBenchmark: GraphCascader.RunCascadeSeeds on the largest SCC of each data file,
+ * with the rewards of CapGraph.RunCascade (a = 2, b = 1, 50 generations).
+ *
+ * The seeds are fixed: the neighbors of the two nodes with the highest 2 hop degree,
+ * chosen once in setup, so every run cascades the same way.  No observer is attached,
+ * so there is no visualization and no sleep between generations.  Every node is set
+ * back to B before each run, outside the measured time.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CascadeBenchmark {
+
+	@Param({"facebook_1000", "facebook_2000", "twitter_higgs"})
+	public String dataset;
+
+	private CapGraph m_Graph;
+	private GraphCascader m_Cascader;
+	private ArrayList<Integer> m_Seeds;
+
+	@Setup
+	public void setup(){
+		m_Graph = Datasets.loadLargestSCC(dataset);
+		m_Graph.getIndexedGraph();
+
+		RankingNodes ranking = new RankingNodes();
+		ranking.setPercentNodesList(10);
+		ranking.setGraph(m_Graph);
+		ranking.RankNodesDeg2Hop();
+		HashSet<Integer> seeds = new HashSet<Integer>();
+		ArrayList<Integer> top = ranking.getTopDeg2HopList();
+		for (int i = 0; i < Math.min(2, top.size()); i++){
+			seeds.addAll(m_Graph.getNeighbors(top.get(i)));
+		}
+		m_Seeds = new ArrayList<Integer>(seeds);
+
+		m_Cascader = new GraphCascader();
+		m_Cascader.seta(2);
+		m_Cascader.setb(1);
+		m_Cascader.setNumGenerations(50);
+	}
+
+	@Setup(Level.Invocation)
+	public void reset(){
+		for (int node : m_Graph.getVertices()){
+			m_Graph.setNodeToB(node);
+		}
+	}
+
+	@Benchmark
+	public CapGraph runCascadeSeeds(){
+		m_Cascader.RunCascadeSeeds(m_Graph, m_Seeds);
+		return m_Graph;
+	}
+}
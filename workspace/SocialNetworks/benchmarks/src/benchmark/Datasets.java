@@ -0,0 +1,51 @@
+package benchmark;
+
+import java.io.File;
+
+import graph.CapGraph;
+import util.GraphLoader;
+
+/**
+ * @author kguajardo
+ *
+ * Datasets: Finds the data files for the benchmarks and loads them.  The benchmarks
+ * run from the project directory (data/) or from benchmarks/ (../data/), or from
+ * the directory given with -Ddata.dir=...
+ *
+ */
+public final class Datasets {
+
+	private Datasets(){
+	}
+
+	/**
+	 * path: path of data file name (without .txt)
+	 */
+	public static String path(String name){
+		String file = name + ".txt";
+		String dir = System.getProperty("data.dir");
+		String[] candidates = dir != null ? new String[]{ dir } : new String[]{ "data", "../data" };
+		for (String candidate : candidates){
+			File data = new File(candidate, file);
+			if (data.isFile())
+				return data.getPath();
+		}
+		throw new IllegalStateException("Data file " + file + " not found, set -Ddata.dir");
+	}
+
+	/**
+	 * load: the graph of data file name
+	 */
+	public static CapGraph load(String name){
+		CapGraph graph = new CapGraph();
+		GraphLoader.loadGraph(graph, path(name));
+		return graph;
+	}
+
+	/**
+	 * loadLargestSCC: the largest SCC of data file name, the graph cascades run on
+	 */
+	public static CapGraph loadLargestSCC(String name){
+		return load(name).getLargestSCC();
+	}
+}
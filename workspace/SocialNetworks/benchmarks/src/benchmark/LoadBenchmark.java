@@ -0,0 +1,78 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graph.CapGraph;
+import graph.CsrGraph;
+import graph.MappedGraph;
+import util.GraphLoader;
+
+/**
+ * @author kguajardo
+ *
+ * LoadBenchmark: GraphLoader.loadGraph of each data file into a new CapGraph, and the
+ * startup of the binary form of the same file: loaded into a CsrGraph (loadBinaryGraph)
+ * or mapped in place (loadMappedGraph).
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LoadBenchmark {
+
+	@Param({"facebook_1000", "facebook_2000", "twitter_higgs"})
+	public String dataset;
+
+	private String m_Path;
+
+	//binary copy of the data file, written once per trial
+	private File m_Binary;
+
+	@Setup
+	public void setup() throws IOException {
+		m_Path = Datasets.path(dataset);
+		m_Binary = File.createTempFile(dataset, ".csr");
+		GraphLoader.convertToBinary(m_Path, m_Binary.getPath());
+	}
+
+	@TearDown
+	public void tearDown(){
+		m_Binary.delete();
+		new File(m_Binary.getPath() + MappedGraph.ATTR_SUFFIX).delete();
+	}
+
+	@Benchmark
+	public CapGraph loadGraph(){
+		CapGraph graph = new CapGraph();
+		GraphLoader.loadGraph(graph, m_Path);
+		return graph;
+	}
+
+	@Benchmark
+	public CsrGraph loadBinaryGraph(){
+		return GraphLoader.loadBinaryGraph(m_Binary.getPath());
+	}
+
+	@Benchmark
+	public MappedGraph loadMappedGraph(){
+		return GraphLoader.loadMappedGraph(m_Binary.getPath());
+	}
+}
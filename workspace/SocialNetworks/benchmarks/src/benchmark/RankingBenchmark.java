@@ -0,0 +1,118 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graph.CapGraph;
+import graph.HyperANF;
+import graph.RankingNodes;
+
+/**
+ * @author kguajardo
+ *
+ * RankingBenchmark: RankingNodes.RankNodesDegree, RankNodesDeg2Hop (in each Deg2HopMode) and
+ * RankNodesCloseness on the largest SCC of each data file, the graph GraphCascader
+ * ranks.  Closeness is one BFS per node, too slow for twitter_higgs, so it only runs
+ * on the facebook files; its HyperANF estimate (RankNodesClosenessSketch) runs on all.
+ *
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RankingBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class DegreeState {
+		@Param({"facebook_1000", "facebook_2000", "twitter_higgs"})
+		public String dataset;
+
+		CapGraph m_Graph;
+
+		@Setup
+		public void setup(){
+			m_Graph = Datasets.loadLargestSCC(dataset);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class ClosenessState {
+		@Param({"facebook_1000", "facebook_2000"})
+		public String dataset;
+
+		CapGraph m_Graph;
+
+		@Setup
+		public void setup(){
+			m_Graph = Datasets.loadLargestSCC(dataset);
+			m_Graph.getIndexedGraph();
+		}
+	}
+
+	/**
+	 * ranker: a new RankingNodes for each run, with the percent GraphCascader uses
+	 */
+	private static RankingNodes ranker(CapGraph graph){
+		RankingNodes ranking = new RankingNodes();
+		ranking.setPercentNodesList(10);
+		ranking.setGraph(graph);
+		return ranking;
+	}
+
+	@Benchmark
+	public ArrayList<Integer> rankNodesDegree(DegreeState state){
+		RankingNodes ranking = ranker(state.m_Graph);
+		ranking.RankNodesDegree();
+		return ranking.getTopDegList();
+	}
+
+	@Benchmark
+	public ArrayList<Integer> rankNodesDeg2Hop(DegreeState state){
+		RankingNodes ranking = ranker(state.m_Graph);
+		ranking.RankNodesDeg2Hop();
+		return ranking.getTopDeg2HopList();
+	}
+
+	@Benchmark
+	public ArrayList<Integer> rankNodesReach2Hop(DegreeState state){
+		RankingNodes ranking = ranker(state.m_Graph);
+		ranking.setDeg2HopMode(RankingNodes.Deg2HopMode.REACH);
+		ranking.RankNodesDeg2Hop();
+		return ranking.getTopDeg2HopList();
+	}
+
+	@Benchmark
+	public ArrayList<Integer> rankNodesReach2HopApprox(DegreeState state){
+		RankingNodes ranking = ranker(state.m_Graph);
+		ranking.setDeg2HopMode(RankingNodes.Deg2HopMode.REACH_APPROX);
+		ranking.RankNodesDeg2Hop();
+		return ranking.getTopDeg2HopList();
+	}
+
+	@Benchmark
+	public ArrayList<Integer> rankNodesCloseness(ClosenessState state){
+		RankingNodes ranking = ranker(state.m_Graph);
+		ranking.RankNodesCloseness();
+		return ranking.getTopClosenessList();
+	}
+
+	@Benchmark
+	public ArrayList<Integer> rankNodesClosenessSketch(DegreeState state){
+		RankingNodes ranking = ranker(state.m_Graph);
+		ranking.RankNodesClosenessSketch(HyperANF.DEFAULT_LOG2M);
+		return ranking.getTopClosenessList();
+	}
+}
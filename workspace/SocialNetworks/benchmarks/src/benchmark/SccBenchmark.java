@@ -0,0 +1,57 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graph.CapGraph;
+import graph.Graph;
+
+/**
+ * @author kguajardo
+ *
+ * SccBenchmark: CapGraph.getSCCs (every SCC built as a CapGraph) and getLargestSCC.
+ * The graph's CSR snapshot is built in setup, as it is after the first use in the
+ * application, so only the SCC search and the subgraph building are measured.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SccBenchmark {
+
+	@Param({"facebook_1000", "facebook_2000", "twitter_higgs"})
+	public String dataset;
+
+	private CapGraph m_Graph;
+
+	@Setup
+	public void setup(){
+		m_Graph = Datasets.load(dataset);
+		m_Graph.getIndexedGraph();
+	}
+
+	@Benchmark
+	public List<Graph> getSCCs(){
+		return m_Graph.getSCCs();
+	}
+
+	@Benchmark
+	public CapGraph getLargestSCC(){
+		return m_Graph.getLargestSCC();
+	}
+}
@@ -0,0 +1,91 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graph.CapGraph;
+import graph.IndexedGraph;
+import graph.PrunedLandmarkLabeling;
+
+/**
+ * @author kguajardo
+ *
+ * SeparationBenchmark: CapGraph.getDegSeparation one query at a time and
+ * getDegSeparations for the same queries as one batch, searching or answered from a
+ * PrunedLandmarkLabeling distance index.  The queries are fixed random pairs of
+ * vertices, and the first query is run in setup so the CSR snapshot and the search
+ * are built before measuring; the index is built in setup too.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SeparationBenchmark {
+
+	private static final int NUM_QUERIES = 1000;
+
+	@Param({"facebook_1000", "facebook_2000", "twitter_higgs"})
+	public String dataset;
+
+	private CapGraph m_Graph;
+	private CapGraph m_IndexedGraph;
+	private int[] m_Starts;
+	private int[] m_Ends;
+
+	@Setup
+	public void setup(){
+		m_Graph = Datasets.load(dataset);
+		IndexedGraph indexed = m_Graph.getIndexedGraph();
+		Random random = new Random(1);
+		m_Starts = new int[NUM_QUERIES];
+		m_Ends = new int[NUM_QUERIES];
+		for (int i = 0; i < NUM_QUERIES; i++){
+			m_Starts[i] = indexed.getId(random.nextInt(indexed.getNumVertices()));
+			m_Ends[i] = indexed.getId(random.nextInt(indexed.getNumVertices()));
+		}
+		m_Graph.getDegSeparation(m_Starts[0], m_Ends[0]);
+
+		m_IndexedGraph = Datasets.load(dataset);
+		PrunedLandmarkLabeling index = new PrunedLandmarkLabeling(m_IndexedGraph.getIndexedGraph());
+		index.build();
+		m_IndexedGraph.setDistanceIndex(index);
+	}
+
+	@Benchmark
+	public int getDegSeparation(){
+		int total = 0;
+		for (int i = 0; i < NUM_QUERIES; i++){
+			total += m_Graph.getDegSeparation(m_Starts[i], m_Ends[i]);
+		}
+		return total;
+	}
+
+	@Benchmark
+	public int[] getDegSeparations(){
+		return m_Graph.getDegSeparations(m_Starts, m_Ends);
+	}
+
+	@Benchmark
+	public int getDegSeparationIndexed(){
+		int total = 0;
+		for (int i = 0; i < NUM_QUERIES; i++){
+			total += m_IndexedGraph.getDegSeparation(m_Starts[i], m_Ends[i]);
+		}
+		return total;
+	}
+}
@@ -0,0 +1,444 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import util.ParallelLoop;
+import util.TopKSelector;
+
+/**
+ * @author kguajardo
+ *
+ * ApproximateCloseness: Estimates closeness and eccentricity of every vertex of an
+ * IndexedGraph from BFSes out of k sampled pivots instead of one BFS per vertex
+ * (Eppstein-Wang sampling), for graphs like twitter_higgs where the exact values
+ * are too slow.
+ *
+ * Closeness of v is the average number of hops from v to the vertices it reaches.
+ * A BFS over the transposed graph from pivot p gives the hops from every vertex to p,
+ * so averaging over the pivots v reaches estimates the closeness of v from k BFSes.
+ * Hoeffding's inequality bounds the error: with probability 1 - failureProbability
+ * the estimate is within range(v) * sqrt(ln(2/failureProbability) / (2 * m)) of the
+ * exact value, m being the number of pivots v reaches and range(v) the spread of the
+ * hops from v.  range(v) is taken as the farthest pivot from v, so each vertex gets
+ * its own bound: central vertices, the ones the top k is made of, reach every pivot
+ * in a few hops and get the tightest bounds.  The farthest pivot can be nearer than
+ * the farthest vertex, so the bound is a guide, not a guarantee.  The pivots' own
+ * closeness is exact, from the BFSes that give their eccentricity.
+ *
+ * Eccentricity gets a lower bound, the farthest pivot from v, and an upper bound,
+ * the smallest hops(v, p) + eccentricity(p) over the pivots.  The upper bound holds
+ * when every vertex reaches every other, as in the largest SCC the cascades run on.
+ *
+ * Seeding only needs the most central vertices right, so compute can refine the
+ * top k.  Every vertex gets a lower bound of its closeness, the estimate minus its
+ * error bound, and the vertices are computed exactly with MultiSourceBFS in order of
+ * lower bound, a batch per thread at a time, until the k-th best exact value is at
+ * most the next lower bound: no vertex left can then do better.  On a directed graph
+ * like the full twitter_higgs most vertices reach few others and no pivot.  Those get
+ * a BFS limited to a few thousand vertices instead: it finishes (the closeness is
+ * exact) or the average of the hops to the vertices it found is their lower bound,
+ * since the others are farther.  Ties at the k-th value can go to another vertex than
+ * in the exact ranking.
+ *
+ */
+public class ApproximateCloseness {
+
+	private final IndexedGraph m_Graph;
+
+	//number of pivots to BFS from
+	private int m_NumSamples;
+
+	//number of most central vertices to compute exactly, 0 for none
+	private int m_TopK;
+
+	//chance the error bound does not hold for a vertex
+	private double m_FailureProbability;
+
+	//seed for the pivot sample, fixed so runs can be repeated
+	private long m_Seed;
+
+	//number of threads for the exact refinement, 0 uses the common fork/join pool
+	private int m_Parallelism;
+
+	//smallest number of vertices a limited BFS finds before it stops, see boundUnreached
+	private static final int MIN_REACH_LIMIT = 1024;
+
+	//vertices per piece of a parallel loop of limited BFSes
+	private static final int GRAIN = 1 << 8;
+
+	//results per vertex index
+	private double[] m_Closeness;
+	private double[] m_ErrorBound;
+	private int[] m_EccentricityLower;
+	private int[] m_EccentricityUpper;
+	private int[] m_TopVertices;
+	private int[] m_Pivots;
+
+	//vertices computed exactly by the last refineTopK
+	private int m_NumRefined;
+
+	public ApproximateCloseness(IndexedGraph graph){
+		m_Graph = graph;
+		m_NumSamples = 256;
+		m_TopK = 0;
+		m_FailureProbability = 0.05;
+		m_Seed = 1;
+		m_Parallelism = 0;
+	}
+
+	/**
+	 * compute: estimate closeness and eccentricity bounds of every vertex, then refine
+	 * the top k exactly.  Results are read with the getters.
+	 */
+	public void compute(){
+		int n = m_Graph.getNumVertices();
+		int k = Math.min(m_NumSamples, n);
+
+		m_Pivots = samplePivots(n, k);
+		m_Closeness = new double[n];
+		m_ErrorBound = new double[n];
+		m_EccentricityLower = new int[n];
+		m_EccentricityUpper = new int[n];
+		Arrays.fill(m_EccentricityUpper, Integer.MAX_VALUE);
+
+		//eccentricity and closeness of each pivot, from BFS on the graph
+		MultiSourceBFS forward = new MultiSourceBFS(m_Graph);
+		int[] pivotEcc = new int[k];
+		long[] pivotSum = new long[k];
+		int[] pivotReached = new int[k];
+		for (int b = 0; b < k; b += MultiSourceBFS.BATCH_SIZE){
+			forward.run(m_Pivots, b, Math.min(MultiSourceBFS.BATCH_SIZE, k - b), pivotSum, pivotReached, pivotEcc);
+		}
+
+		//hops from every vertex to the pivots, from BFS on the transposed graph
+		MultiSourceBFS backward = new MultiSourceBFS(m_Graph.transpose());
+		long[] hopSum = new long[n];
+		int[] hopCount = new int[n];
+		for (int b = 0; b < k; b += MultiSourceBFS.BATCH_SIZE){
+			backward.runToTargets(m_Pivots, b, Math.min(MultiSourceBFS.BATCH_SIZE, k - b), hopSum, hopCount,
+					m_EccentricityLower, pivotEcc, m_EccentricityUpper);
+		}
+
+		double logTerm = Math.log(2 / m_FailureProbability) / 2;
+		for (int v = 0; v < n; v++){
+			if (hopCount[v] == 0){
+				//reaches no pivot, nothing to estimate from
+				m_Closeness[v] = Double.NaN;
+				m_ErrorBound[v] = Double.POSITIVE_INFINITY;
+			}
+			else {
+				//hops from v are 1 .. its eccentricity, the farthest pivot stands for it
+				m_Closeness[v] = (double) hopSum[v] / hopCount[v];
+				m_ErrorBound[v] = m_EccentricityLower[v] * Math.sqrt(logTerm / hopCount[v]);
+			}
+			if (m_EccentricityUpper[v] < m_EccentricityLower[v])
+				m_EccentricityUpper[v] = m_EccentricityLower[v];
+		}
+
+		//a pivot's own closeness and eccentricity are exact
+		for (int i = 0; i < k; i++){
+			int p = m_Pivots[i];
+			m_Closeness[p] = (float) pivotSum[i] / pivotReached[i];
+			m_ErrorBound[p] = 0;
+			m_EccentricityLower[p] = pivotEcc[i];
+			m_EccentricityUpper[p] = pivotEcc[i];
+		}
+
+		refineTopK(n, k);
+	}
+
+	/**
+	 * samplePivots: k distinct vertex indices chosen uniformly at random (partial
+	 * Fisher-Yates shuffle)
+	 */
+	private int[] samplePivots(int n, int k){
+		int[] all = new int[n];
+		for (int v = 0; v < n; v++){
+			all[v] = v;
+		}
+		Random random = new Random(m_Seed);
+		for (int i = 0; i < k; i++){
+			int j = i + random.nextInt(n - i);
+			int swap = all[i];
+			all[i] = all[j];
+			all[j] = swap;
+		}
+		return Arrays.copyOf(all, k);
+	}
+
+	/**
+	 * refineTopK: exact closeness for the vertices that could be in the top k (lowest
+	 * closeness), in order of lower bound until no other vertex can be, then rank the
+	 * top k on the exact values
+	 */
+	private void refineTopK(int n, int numPivots){
+		m_NumRefined = 0;
+		int topK = Math.min(m_TopK, n);
+		if (topK == 0){
+			m_TopVertices = new int[0];
+			return;
+		}
+
+		//lower bound of the closeness of each vertex
+		double[] lower = new double[n];
+		boundUnreached(n, numPivots, lower);
+
+		//the exact values so far, and the other vertices by lower bound (float bits
+		//order like the positive bounds, the index is in the low half).  Vertices that
+		//reach nothing (NaN) wait aside: as the k-th value they would keep the stop
+		//test below false and the refinement going over every vertex.
+		TopKSelector top = new TopKSelector(topK, false);
+		int[] reachNothing = new int[n];
+		int numReachNothing = 0;
+		long[] order = new long[n];
+		int numOrdered = 0;
+		for (int v = 0; v < n; v++){
+			if (m_ErrorBound[v] == 0){
+				if (Double.isNaN(m_Closeness[v]))
+					reachNothing[numReachNothing++] = v;
+				else
+					top.offer(v, m_Closeness[v]);
+				continue;
+			}
+			if (!Double.isNaN(m_Closeness[v]))
+				lower[v] = Math.max(1, m_Closeness[v] - m_ErrorBound[v]);
+			float key = (float) lower[v];
+			if (key > lower[v])
+				key = Math.nextDown(key);
+			order[numOrdered++] = ((long) Float.floatToIntBits(key) << 32) | v;
+		}
+		Arrays.sort(order, 0, numOrdered);
+
+		int threads = m_Parallelism > 0 ? m_Parallelism : Runtime.getRuntime().availableProcessors();
+		int batch = threads * MultiSourceBFS.BATCH_SIZE;
+		int[] sources = new int[batch];
+		long[] totalHops = new long[batch];
+		int[] numPaths = new int[batch];
+		int[] ecc = new int[batch];
+		for (int next = 0; next < numOrdered; ){
+			double nextLower = Float.intBitsToFloat((int) (order[next] >>> 32));
+			if (top.size() == topK && top.getThreshold() <= nextLower)
+				//no vertex left can beat the k-th exact value
+				break;
+
+			int count = Math.min(batch, numOrdered - next);
+			for (int i = 0; i < count; i++){
+				sources[i] = (int) order[next + i];
+			}
+			next += count;
+			MultiSourceBFS.runSources(m_Graph, m_Parallelism, count == batch ? sources : Arrays.copyOf(sources, count),
+					totalHops, numPaths, ecc);
+			for (int i = 0; i < count; i++){
+				int v = sources[i];
+				//same precision as ClosenessCentrality
+				m_Closeness[v] = (float) totalHops[i] / numPaths[i];
+				m_ErrorBound[v] = 0;
+				m_EccentricityLower[v] = ecc[i];
+				m_EccentricityUpper[v] = ecc[i];
+				if (Double.isNaN(m_Closeness[v]))
+					reachNothing[numReachNothing++] = v;
+				else
+					top.offer(v, m_Closeness[v]);
+			}
+			m_NumRefined += count;
+		}
+
+		//NaN ranks last, they only fill the top k when fewer vertices reach any
+		for (int i = 0; i < numReachNothing; i++){
+			top.offer(reachNothing[i], Double.NaN);
+		}
+		m_TopVertices = top.getNodes();
+	}
+
+	/**
+	 * boundUnreached: BFS limited to a few thousand vertices from every vertex that
+	 * reaches no pivot.  A vertex that reaches more would miss all the pivots only by
+	 * chance.  When the BFS finishes the closeness is exact, otherwise lower gets the
+	 * average hops to the vertices found, the nearest ones.
+	 */
+	private void boundUnreached(int n, int numPivots, double[] lower){
+		int[] unreached = new int[n];
+		int count = 0;
+		for (int v = 0; v < n; v++){
+			if (Double.isNaN(m_Closeness[v]) && m_ErrorBound[v] != 0)
+				unreached[count++] = v;
+		}
+		int[] vertices = Arrays.copyOf(unreached, count);
+		int limit = (int) Math.min(n, Math.max(MIN_REACH_LIMIT, 4L * n / numPivots));
+		ThreadLocal<LimitedBFS> searches = new ThreadLocal<LimitedBFS>(){
+			@Override
+			protected LimitedBFS initialValue(){
+				return new LimitedBFS(m_Graph, limit);
+			}
+		};
+
+		//each vertex only writes its own entries
+		ParallelLoop.forRange(m_Parallelism, 0, count, GRAIN, (from, to) -> {
+			LimitedBFS search = searches.get();
+			for (int i = from; i < to; i++){
+				int v = vertices[i];
+				boolean done = search.run(v);
+				m_EccentricityLower[v] = Math.max(m_EccentricityLower[v], search.m_Eccentricity);
+				if (done){
+					//NaN when v reaches nothing, like ClosenessCentrality
+					m_Closeness[v] = (float) search.m_HopSum / search.m_Found;
+					m_ErrorBound[v] = 0;
+					m_EccentricityUpper[v] = search.m_Eccentricity;
+				}
+				else
+					lower[v] = (double) search.m_HopSum / search.m_Found;
+			}
+		});
+	}
+
+	/**
+	 * LimitedBFS: BFS that stops once it has found limit vertices, the buffers of one
+	 * thread.  Visited marks are generation stamps, nothing is cleared between runs.
+	 */
+	private static final class LimitedBFS {
+		private final IndexedGraph m_Graph;
+		private final int m_Limit;
+		private final int[] m_Stamp;
+		private final int[] m_Distance;
+		private final int[] m_Queue;
+		private int m_Generation;
+
+		//results of the last run, the source not counted
+		private long m_HopSum;
+		private int m_Found;
+		private int m_Eccentricity;
+
+		LimitedBFS(IndexedGraph graph, int limit){
+			int n = graph.getNumVertices();
+			m_Graph = graph;
+			m_Limit = limit;
+			m_Stamp = new int[n];
+			m_Distance = new int[n];
+			m_Queue = new int[Math.min(n, limit + 1)];
+			m_Generation = 0;
+		}
+
+		/**
+		 * run: BFS from source
+		 * @return true if it found every vertex source reaches, false if it stopped
+		 *         at the limit
+		 */
+		boolean run(int source){
+			if (++m_Generation == Integer.MAX_VALUE){
+				Arrays.fill(m_Stamp, 0);
+				m_Generation = 1;
+			}
+			m_HopSum = 0;
+			m_Found = 0;
+			m_Eccentricity = 0;
+			int head = 0;
+			int tail = 0;
+			m_Stamp[source] = m_Generation;
+			m_Distance[source] = 0;
+			m_Queue[tail++] = source;
+			while (head < tail){
+				int v = m_Queue[head++];
+				int next = m_Distance[v] + 1;
+				for (int e = m_Graph.getEdgeStart(v); e < m_Graph.getEdgeEnd(v); e++){
+					int w = m_Graph.getEdgeTarget(e);
+					if (m_Stamp[w] == m_Generation)
+						continue;
+					if (m_Found == m_Limit)
+						//one more than the limit
+						return false;
+					m_Stamp[w] = m_Generation;
+					m_Distance[w] = next;
+					m_Queue[tail++] = w;
+					m_HopSum += next;
+					m_Found++;
+					m_Eccentricity = next;
+				}
+			}
+			return true;
+		}
+	}
+
+	/* Closeness per vertex index: estimate, or exact for refined vertices.  NaN if unknown. */
+	public double[] getCloseness(){
+		return m_Closeness;
+	}
+
+	/* Error bound of each closeness value, 0 for exact values */
+	public double[] getErrorBound(){
+		return m_ErrorBound;
+	}
+
+	public int[] getEccentricityLowerBound(){
+		return m_EccentricityLower;
+	}
+
+	public int[] getEccentricityUpperBound(){
+		return m_EccentricityUpper;
+	}
+
+	/* Vertex indices of the top k, most central (lowest closeness) first */
+	public int[] getTopVertices(){
+		return m_TopVertices;
+	}
+
+	/* Number of vertices the last compute refined with a full BFS */
+	public int getNumRefined(){
+		return m_NumRefined;
+	}
+
+	/* Vertex indices of the sampled pivots */
+	public int[] getPivots(){
+		return m_Pivots;
+	}
+
+	/**
+	 * setNumSamples: number of pivots to BFS from, more pivots give tighter bounds
+	 */
+	public void setNumSamples(int samples){
+		if (samples < 1)
+			//bad input
+			return;
+
+		m_NumSamples = samples;
+	}
+
+	/**
+	 * setTopK: number of most central vertices to compute exactly, 0 for none
+	 */
+	public void setTopK(int k){
+		if (k < 0)
+			//bad input
+			return;
+
+		m_TopK = k;
+	}
+
+	/**
+	 * setFailureProbability: chance the error bound of a vertex does not hold, the
+	 * bound widens as it gets smaller
+	 */
+	public void setFailureProbability(double probability){
+		if (probability <= 0 || probability >= 1)
+			//bad input
+			return;
+
+		m_FailureProbability = probability;
+	}
+
+	public void setSeed(long seed){
+		m_Seed = seed;
+	}
+
+	/**
+	 * setParallelism: number of threads for the exact refinement, 0 (default) uses the
+	 * common pool
+	 */
+	public void setParallelism(int threads){
+		if (threads < 0)
+			//bad input
+			return;
+
+		m_Parallelism = threads;
+	}
+}
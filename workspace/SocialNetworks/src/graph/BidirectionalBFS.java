@@ -0,0 +1,245 @@
+package graph;
+
+import java.util.Arrays;
+
+import util.ParallelLoop;
+
+/**
+ * @author kguajardo
+ *
+ * BidirectionalBFS: Point to point shortest path lengths (in hops) on an IndexedGraph,
+ * the queries behind CapGraph.getDegSeparation.
+ *
+ * A BFS runs forward from the source over the outgoing edges and another one backward
+ * from the target over the incoming edges (the transpose).  Each step expands one whole
+ * level of the side whose frontier has fewer edges to scan, and the search stops at the
+ * end of the first level where the two sides meet.  On a social graph each side only
+ * goes about half the distance, so it visits a small part of the vertices a one sided
+ * BFS would.
+ *
+ * The visited marks, distances and queues of a query are kept in a SearchContext, one
+ * per thread, reused by every query of that thread.  A vertex is visited if its stamp is
+ * the generation of the current query, so nothing is cleared or allocated per query.
+ * distance can be called from many threads at once, and distances runs a batch of
+ * queries over all cores.  eccentricity runs a plain one sided BFS in the same
+ * buffers, for CapGraph.getMaxDegSeparation.
+ *
+ */
+public class BidirectionalBFS {
+
+	//queries per piece of a parallel loop
+	private static final int GRAIN = 1 << 6;
+
+	private final IndexedGraph m_Graph;
+	private final IndexedGraph m_Reverse;
+
+	//number of worker threads for batches, 0 uses the common fork/join pool
+	private int m_Parallelism;
+
+	//search buffers of each thread
+	private final ThreadLocal<SearchContext> m_Contexts;
+
+	public BidirectionalBFS(IndexedGraph graph){
+		m_Graph = graph;
+		m_Reverse = graph.transpose();
+		m_Parallelism = 0;
+		int n = graph.getNumVertices();
+		m_Contexts = new ThreadLocal<SearchContext>(){
+			@Override
+			protected SearchContext initialValue(){
+				return new SearchContext(n);
+			}
+		};
+	}
+
+	/**
+	 * distance: number of hops of the shortest path from index source to index target
+	 * @return 0 if source == target, -1 if target can not be reached or an index is
+	 *         not in the graph
+	 */
+	public int distance(int source, int target){
+		int n = m_Graph.getNumVertices();
+		if (source < 0 || target < 0 || source >= n || target >= n)
+			//bad input
+			return -1;
+		if (source == target)
+			return 0;
+
+		SearchContext ctx = m_Contexts.get();
+		int forward = ctx.nextGeneration();
+		int backward = forward + 1;
+		int[] stamp = ctx.m_Stamp;
+		int[] dist = ctx.m_Distance;
+
+		stamp[source] = forward;
+		dist[source] = 0;
+		ctx.m_Forward[0] = source;
+		stamp[target] = backward;
+		dist[target] = 0;
+		ctx.m_Backward[0] = target;
+
+		//frontier of each side is queue[head .. tail-1], with the edges it has to scan
+		int fHead = 0;
+		int fTail = 1;
+		long fEdges = degree(m_Graph, source);
+		int bHead = 0;
+		int bTail = 1;
+		long bEdges = degree(m_Reverse, target);
+
+		int best = Integer.MAX_VALUE;
+		while (fHead < fTail && bHead < bTail){
+			if (fEdges <= bEdges){
+				int levelEnd = fTail;
+				fEdges = 0;
+				for (int q = fHead; q < levelEnd; q++){
+					int v = ctx.m_Forward[q];
+					int next = dist[v] + 1;
+					for (int e = m_Graph.getEdgeStart(v); e < m_Graph.getEdgeEnd(v); e++){
+						int w = m_Graph.getEdgeTarget(e);
+						if (stamp[w] == backward)
+							best = Math.min(best, next + dist[w]);
+						else if (stamp[w] != forward){
+							stamp[w] = forward;
+							dist[w] = next;
+							ctx.m_Forward[fTail++] = w;
+							fEdges += degree(m_Graph, w);
+						}
+					}
+				}
+				fHead = levelEnd;
+			}
+			else {
+				int levelEnd = bTail;
+				bEdges = 0;
+				for (int q = bHead; q < levelEnd; q++){
+					int v = ctx.m_Backward[q];
+					int next = dist[v] + 1;
+					for (int e = m_Reverse.getEdgeStart(v); e < m_Reverse.getEdgeEnd(v); e++){
+						int w = m_Reverse.getEdgeTarget(e);
+						if (stamp[w] == forward)
+							best = Math.min(best, next + dist[w]);
+						else if (stamp[w] != backward){
+							stamp[w] = backward;
+							dist[w] = next;
+							ctx.m_Backward[bTail++] = w;
+							bEdges += degree(m_Reverse, w);
+						}
+					}
+				}
+				bHead = levelEnd;
+			}
+
+			//every shorter path would have met in an earlier level
+			if (best != Integer.MAX_VALUE)
+				return best;
+		}
+		return -1;
+	}
+
+	/**
+	 * eccentricity: number of hops to the farthest vertex index source reaches, from a
+	 * plain BFS over the outgoing edges in the buffers of the calling thread
+	 * @return 0 if source reaches nothing, -1 if the index is not in the graph
+	 */
+	public int eccentricity(int source){
+		if (source < 0 || source >= m_Graph.getNumVertices())
+			//bad input
+			return -1;
+
+		SearchContext ctx = m_Contexts.get();
+		int visited = ctx.nextGeneration();
+		int[] stamp = ctx.m_Stamp;
+		int[] dist = ctx.m_Distance;
+		int[] queue = ctx.m_Forward;
+
+		stamp[source] = visited;
+		dist[source] = 0;
+		queue[0] = source;
+		int head = 0;
+		int tail = 1;
+		while (head < tail){
+			int v = queue[head++];
+			for (int e = m_Graph.getEdgeStart(v); e < m_Graph.getEdgeEnd(v); e++){
+				int w = m_Graph.getEdgeTarget(e);
+				if (stamp[w] != visited){
+					stamp[w] = visited;
+					dist[w] = dist[v] + 1;
+					queue[tail++] = w;
+				}
+			}
+		}
+		//the queue is in BFS order, the last vertex is one of the farthest
+		return dist[queue[tail - 1]];
+	}
+
+	/**
+	 * distances: distance of every pair (sources[i], targets[i]), run over all cores
+	 * @return hops of each pair, -1 for the pairs distance returns -1 for
+	 */
+	public int[] distances(int[] sources, int[] targets){
+		if (sources == null || targets == null || sources.length != targets.length)
+			//bad input
+			return null;
+
+		int[] result = new int[sources.length];
+		ParallelLoop.forRange(m_Parallelism, 0, sources.length, GRAIN, (from, to) -> {
+			for (int i = from; i < to; i++){
+				result[i] = distance(sources[i], targets[i]);
+			}
+		});
+		return result;
+	}
+
+	private static int degree(IndexedGraph graph, int v){
+		return graph.getEdgeEnd(v) - graph.getEdgeStart(v);
+	}
+
+	/* Graph the distances are computed on */
+	public IndexedGraph getGraph(){
+		return m_Graph;
+	}
+
+	/**
+	 * setParallelism: number of threads for distances, 0 (default) uses the common pool
+	 */
+	public void setParallelism(int threads){
+		if (threads < 0)
+			//bad input
+			return;
+
+		m_Parallelism = threads;
+	}
+
+	/**
+	 * SearchContext: buffers of the queries of one thread.  A query takes two
+	 * generations, one for each side, and a vertex belongs to a side while its stamp
+	 * is that side's generation.  The stamps are only cleared when the generations wrap.
+	 */
+	private static final class SearchContext {
+		private final int[] m_Stamp;
+		private final int[] m_Distance;
+		private final int[] m_Forward;
+		private final int[] m_Backward;
+		private int m_Generation;
+
+		SearchContext(int n){
+			m_Stamp = new int[n];
+			m_Distance = new int[n];
+			m_Forward = new int[n];
+			m_Backward = new int[n];
+			m_Generation = -1;
+		}
+
+		/**
+		 * nextGeneration: forward generation of a new query, the backward one is + 1
+		 */
+		int nextGeneration(){
+			if (m_Generation >= Integer.MAX_VALUE - 2){
+				Arrays.fill(m_Stamp, 0);
+				m_Generation = -1;
+			}
+			m_Generation += 2;
+			return m_Generation;
+		}
+	}
+}
@@ -0,0 +1,310 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * @author kguajardo
+ *
+ * BitParallelCascade: Runs up to 64 cascades on the same graph and rewards at once,
+ * one per bit of a long (a lane), for comparing seedings.
+ *
+ * Every vertex has a 64 bit state word, bit i set meaning the vertex is A in lane i.
+ * The number of A neighbors of a vertex is kept per lane in bit-sliced (vertical)
+ * counters: word j of the vertex holds bit j of the count of all 64 lanes.  When a
+ * vertex flips in a set of lanes, that mask is added to the counters of its
+ * in-neighbors with a ripple carry over the words, one add for all lanes.
+ *
+ * The threshold test of CascadeSimulator, numA*(a+b) >= b*D, is numA >= T with
+ * T = ceil(b*D/(a+b)) the same for every lane, and is done for all lanes at once
+ * with a bit-serial compare of the counter words against T.  A candidate is tested
+ * only in the lanes where it is a neighbor of a vertex that flipped last generation,
+ * so every lane gives exactly the result of a CascadeSimulator run with its seeds,
+ * for about the cost of one scan of the edges the lanes touch.
+ *
+ * The vertices whose state or counters are set are kept in a list, so clear only
+ * resets those, and when b > 0 the first generation only tests them: a vertex with
+ * no A neighbor in any lane can not reach a threshold of at least 1.  A run from a
+ * few seeds costs the part of the graph the cascade reaches, not the whole graph,
+ * which is what makes many short runs (SeedOptimizer) cheap.
+ *
+ */
+public class BitParallelCascade {
+
+	//lanes per run, one per bit of a long
+	public static final int NUM_LANES = 64;
+
+	private final IndexedGraph m_Graph;
+
+	//transposed graph: rows are the in-neighbors of each vertex
+	private final IndexedGraph m_Reverse;
+
+	//Reward for switching to a or b
+	private int m_a;
+	private int m_b;
+
+	//bit i of m_State[v]: v is A in lane i
+	private final long[] m_State;
+
+	//bit-sliced A neighbor counters, m_CounterBits words per vertex
+	private final long[] m_Counters;
+	private final int m_CounterBits;
+
+	//lanes v flipped in last generation, and the vertices with a mask
+	private final long[] m_FlipMask;
+	private int[] m_Frontier;
+	private int[] m_NextFrontier;
+	private int m_FrontierSize;
+
+	//lanes each candidate is tested in this generation, and the candidates
+	private final long[] m_CandidateMask;
+	private final int[] m_Candidates;
+
+	//vertices with a state or counter bit set, for clear and the first generation
+	private final int[] m_Touched;
+	private final boolean[] m_IsTouched;
+	private int m_NumTouched;
+
+	//per lane totals
+	private final int[] m_NumSeeded;
+	private final int[] m_NumChanged;
+	private final int[] m_LastGeneration;
+
+	private int m_Generation;
+
+	public BitParallelCascade(IndexedGraph graph){
+		int n = graph.getNumVertices();
+		m_Graph = graph;
+		m_Reverse = graph.transpose();
+		m_a = 1;
+		m_b = 1;
+
+		//enough bits for the largest count, the largest out degree
+		int maxDegree = 0;
+		for (int v = 0; v < n; v++){
+			maxDegree = Math.max(maxDegree, graph.getEdgeEnd(v) - graph.getEdgeStart(v));
+		}
+		m_CounterBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(maxDegree));
+
+		m_State = new long[n];
+		m_Counters = new long[n * m_CounterBits];
+		m_FlipMask = new long[n];
+		m_Frontier = new int[n];
+		m_NextFrontier = new int[n];
+		m_CandidateMask = new long[n];
+		m_Candidates = new int[n];
+		m_Touched = new int[n];
+		m_IsTouched = new boolean[n];
+		m_NumTouched = 0;
+		m_NumSeeded = new int[NUM_LANES];
+		m_NumChanged = new int[NUM_LANES];
+		m_LastGeneration = new int[NUM_LANES];
+	}
+
+	/**
+	 * setRewards: reward a for switching to A, b for staying B, the same in every lane.
+	 * Negative values are ignored.
+	 */
+	public void setRewards(int a, int b){
+		if (a >= 0)
+			m_a = a;
+		if (b >= 0)
+			m_b = b;
+	}
+
+	/**
+	 * clear: every vertex back to B in every lane, generation 0
+	 */
+	public void clear(){
+		for (int t = 0; t < m_NumTouched; t++){
+			int v = m_Touched[t];
+			m_State[v] = 0;
+			m_FlipMask[v] = 0;
+			Arrays.fill(m_Counters, v * m_CounterBits, (v + 1) * m_CounterBits, 0);
+			m_IsTouched[v] = false;
+		}
+		m_NumTouched = 0;
+		Arrays.fill(m_NumSeeded, 0);
+		Arrays.fill(m_NumChanged, 0);
+		Arrays.fill(m_LastGeneration, 0);
+		m_FrontierSize = 0;
+		m_Generation = 0;
+	}
+
+	/**
+	 * setA: Seeds the vertex at index as A in lane, before the cascade starts
+	 */
+	public void setA(int lane, int index){
+		long bit = 1L << lane;
+		if ((m_State[index] & bit) != 0)
+			return;
+		touch(index);
+		m_State[index] |= bit;
+		m_NumSeeded[lane]++;
+		count(index, bit);
+	}
+
+	private void touch(int index){
+		if (!m_IsTouched[index]){
+			m_IsTouched[index] = true;
+			m_Touched[m_NumTouched++] = index;
+		}
+	}
+
+	public boolean isA(int lane, int index){
+		return (m_State[index] & (1L << lane)) != 0;
+	}
+
+	/* State word of the vertex at index, bit i is lane i */
+	public long getState(int index){
+		return m_State[index];
+	}
+
+	/**
+	 * count: adds 1 in the lanes of mask to the counters of the in-neighbors of index
+	 */
+	private void count(int index, long mask){
+		for (int e = m_Reverse.getEdgeStart(index); e < m_Reverse.getEdgeEnd(index); e++){
+			int u = m_Reverse.getEdgeTarget(e);
+			touch(u);
+			int base = u * m_CounterBits;
+			long carry = mask;
+			for (int j = 0; j < m_CounterBits && carry != 0; j++){
+				long bits = m_Counters[base + j];
+				m_Counters[base + j] = bits ^ carry;
+				carry &= bits;
+			}
+		}
+	}
+
+	/**
+	 * thresholdMask: lanes in which the vertex at index has enough A neighbors to flip
+	 */
+	private long thresholdMask(int index){
+		if (m_a + m_b == 0)
+			//b/(a+b) is undefined, nobody changes
+			return 0;
+
+		int D = m_Graph.getEdgeEnd(index) - m_Graph.getEdgeStart(index);
+		if (D == 0)
+			return m_b == 0 ? -1L : 0;
+
+		//T = ceil(b*D/(a+b)), numA >= T
+		long T = ((long) m_b * D + m_a + m_b - 1) / (m_a + m_b);
+
+		//bit-serial compare from the highest bit: greater so far, equal so far
+		int base = index * m_CounterBits;
+		long greater = 0;
+		long equal = -1L;
+		for (int j = m_CounterBits - 1; j >= 0; j--){
+			long bits = m_Counters[base + j];
+			if (((T >>> j) & 1) != 0)
+				equal &= bits;
+			else {
+				greater |= equal & bits;
+				equal &= ~bits;
+			}
+		}
+		return greater | equal;
+	}
+
+	/**
+	 * step: Runs one generation in every lane
+	 * @return number of vertex flips over all lanes, 0 when every lane is at equilibrium
+	 */
+	public int step(){
+		int n = m_Graph.getNumVertices();
+		m_Generation++;
+
+		//Candidates and their lanes: neighbors of the vertices that flipped in a lane
+		//last generation, every vertex that is someone's neighbor in the first one
+		int numCandidates = 0;
+		if (m_Generation == 1){
+			//with b > 0 only vertices with an A neighbor can flip, and those are touched
+			boolean all = m_b == 0;
+			int count = all ? n : m_NumTouched;
+			for (int i = 0; i < count; i++){
+				int v = all ? i : m_Touched[i];
+				if (m_Reverse.getEdgeEnd(v) > m_Reverse.getEdgeStart(v)){
+					m_CandidateMask[v] = -1L;
+					m_Candidates[numCandidates++] = v;
+				}
+			}
+		}
+		else {
+			for (int f = 0; f < m_FrontierSize; f++){
+				int v = m_Frontier[f];
+				long mask = m_FlipMask[v];
+				m_FlipMask[v] = 0;
+				for (int e = m_Graph.getEdgeStart(v); e < m_Graph.getEdgeEnd(v); e++){
+					int w = m_Graph.getEdgeTarget(e);
+					if (m_CandidateMask[w] == 0)
+						m_Candidates[numCandidates++] = w;
+					m_CandidateMask[w] |= mask;
+				}
+			}
+		}
+
+		//Decide every flip from the state before this generation
+		int nextSize = 0;
+		int flips = 0;
+		for (int c = 0; c < numCandidates; c++){
+			int w = m_Candidates[c];
+			long mask = m_CandidateMask[w] & ~m_State[w];
+			m_CandidateMask[w] = 0;
+			if (mask != 0)
+				mask &= thresholdMask(w);
+			if (mask != 0){
+				m_FlipMask[w] = mask;
+				m_NextFrontier[nextSize++] = w;
+				flips += Long.bitCount(mask);
+			}
+		}
+
+		//Apply the flips
+		long changedLanes = 0;
+		for (int f = 0; f < nextSize; f++){
+			int w = m_NextFrontier[f];
+			long mask = m_FlipMask[w];
+			touch(w);
+			m_State[w] |= mask;
+			count(w, mask);
+			changedLanes |= mask;
+			for (long bits = mask; bits != 0; bits &= bits - 1){
+				m_NumChanged[Long.numberOfTrailingZeros(bits)]++;
+			}
+		}
+		for (long bits = changedLanes; bits != 0; bits &= bits - 1){
+			m_LastGeneration[Long.numberOfTrailingZeros(bits)] = m_Generation;
+		}
+
+		int[] swap = m_Frontier;
+		m_Frontier = m_NextFrontier;
+		m_NextFrontier = swap;
+		m_FrontierSize = nextSize;
+		return flips;
+	}
+
+	/* Number of vertices that changed to A in lane, seeds not counted */
+	public int getNumChanged(int lane){
+		return m_NumChanged[lane];
+	}
+
+	/* Number of generations lane changed vertices in (GraphCascader's generation count) */
+	public int getGenerations(int lane){
+		return m_LastGeneration[lane];
+	}
+
+	/* Number of vertices seeded in lane */
+	public int getNumSeeded(int lane){
+		return m_NumSeeded[lane];
+	}
+
+	/* Number of vertices that are A in lane, seeds included */
+	public int getNumA(int lane){
+		return m_NumSeeded[lane] + m_NumChanged[lane];
+	}
+
+	public int getGeneration(){
+		return m_Generation;
+	}
+}
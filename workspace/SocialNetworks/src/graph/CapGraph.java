@@ -4,15 +4,18 @@
 package graph;
 
 import java.util.HashMap;
-import org.graphstream.graph.implementations.SingleGraph;
 
 
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.List;
-import java.util.Stack;
+import java.util.function.IntConsumer;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import util.GraphLoader;
+import util.MetricsRegistry;
 
 
 /**
@@ -22,36 +25,40 @@ import util.GraphLoader;
  * It represents a social network graph, where edges represent friendships between people and  
  * the vertices which represent the people in the social network.   
  * 
- * The dynamic graph library, GraphStream, was included in this class for the sole purpose 
- * of creating a visualization of the graph as a SingleGraph object.   
+ * CapGraph has no visualization of its own, so temporary graphs (SCCs, transpose, 
+ * egonets) and batch cascades run headless.  To watch a cascade, pass a 
+ * view.GraphViewer (a CascadeObserver) to RunCascade.   
+ * 
+ * The graph can change after it is built: edges and vertices can be added and removed,
+ * and every change is reported to the GraphChangeListeners attached (for example a
+ * RankingNodes in live mode).  Incoming neighbors are only kept once something needs
+ * them (removeVertex, forEachInNeighbor), so graphs that never change do not pay for
+ * them.
  *
  */
-public class CapGraph implements Graph {
+public class CapGraph implements CascadeGraph {
 
 	//CapGraph member variables
 	private HashMap<Integer,CapVertex> adjList;
 	private int numEdges;
 	
+	//CSR snapshot of the graph for the traversal kernels, rebuilt after the graph changes
+	private CsrGraph m_Indexed;
+	
+	//point to point search over m_Indexed, with the buffers of each thread
+	private BidirectionalBFS m_Separation;
+	
+	//optional exact distance index over m_Indexed, none by default
+	private PrunedLandmarkLabeling m_DistanceIndex;
+	
 	//Graph Cascader object
 	private GraphCascader Cascader;
 	
-	//for visualization
-	private SingleGraph graphView;
-	
-	//Coloring for nodes in Visualization
-	//Nodes with B Property : Blue
-	//Nodes with A Property : Red
-	protected String styleSheet =
-            "node {" +
-            "	fill-color: black;" +
-            "}" +
-            "node.B {" +
-            "	fill-color: blue;" +
-            "}" +
-            "node.A {" +
-            "	fill-color: red;" +
-            "}"
-            ;
+	//incoming neighbors are kept in the vertices, built on first use
+	private boolean m_TrackInNeighbors;
+	
+	//Listeners told of every change to the graph, none by default
+	private ArrayList<GraphChangeListener> m_Listeners;
 	
 	/**
 	* Create a new empty Graph
@@ -62,14 +69,12 @@ public class CapGraph implements Graph {
 		//create Adjacency List
 		adjList = new HashMap<Integer,CapVertex>();
 		numEdges = 0;
-
-		//Visualization
-		graphView = new SingleGraph("Cascade Graph");
-		graphView.addAttribute("ui.stylesheet", styleSheet);
-		graphView.addAttribute("ui.quality");
 		
 		//Cascader
 		Cascader = new GraphCascader();
+		
+		m_TrackInNeighbors = false;
+		m_Listeners = new ArrayList<GraphChangeListener>();
 	}
 	
 	/**
@@ -77,6 +82,7 @@ public class CapGraph implements Graph {
 	 * 
 	 * This determines the maximum degree of separation for a given node, v,
 	 *  and all the shortest paths to all other nodes in the graph.
+	 *  (eccentricity of v)
 	 */
 	public int getMaxDegSeparation(int v){
 		//Use BFS
@@ -88,42 +94,20 @@ public class CapGraph implements Graph {
 		if (!adjList.containsKey(v))
 			return -1;
 		
-		//Initialize
-		int maxHops = 0;
-		ArrayList<Integer> Queue = new ArrayList<Integer>();
-		HashSet<Integer> Visited = new HashSet<Integer>();
-		HashMap<Integer, Integer> HopMap = new HashMap<Integer, Integer>();
-				
-		//Start queue
-		Queue.add(v);
-		Visited.add(v);
-		HopMap.put(v, 0);
-		int curr = v;
-				
-		//Start Search
-		while (!Queue.isEmpty())
-		{
-			curr = Queue.remove(0);
-			//add all of curr's neighbors to the queue
-			HashSet<Integer> neighbors = adjList.get(curr).getNeighbors();
-					
-			for (int n: neighbors){
-				if (!Visited.contains(n)){
-					Visited.add(n);
-					Queue.add(n);
-					int numHops = HopMap.get(curr) + 1;
-					HopMap.put(n, numHops);
-					if (numHops > maxHops)
-						maxHops = numHops;
-				}//if
-			}// loop through neighbors
-					
-			//done looping through neighbors, go back up pull next node off of queue					
-		}//while loop
-		return maxHops;
+		//BFS on the CSR snapshot, in the buffers the separation search keeps per thread
+		return getSeparationSearch().eccentricity(getIndexedGraph().getIndex(v));
 	}
 	
 	public void RunCascade(){
+		RunCascade(null);
+	}
+	
+	/**
+	 * RunCascade: runs the cascade on the largest SCC of the graph
+	 * @param observer: receives the seeded nodes and each generation's changes,
+	 *                  for example a view.GraphViewer.  null runs headless.
+	 */
+	public void RunCascade(CascadeObserver observer){
 		
 		//Get large SCC from graph
 		CapGraph LargeSCC = this.getLargestSCC();
@@ -143,21 +127,23 @@ public class CapGraph implements Graph {
 			}
 		}
 		*/
-		System.out.println("Large SCC is : " + LargeSCC.getNumVertices());
+		MetricsRegistry.getGlobal().setGauge("scc.largestSize", LargeSCC.getNumVertices());
 		
 		//set properties of cascade:
 		Cascader.seta(2);
 		Cascader.setb(1);
 		Cascader.setNumGenerations(50);
+		
+		if (observer != null)
+			Cascader.addObserver(observer);
 	
 		//run cascade based on Closeness Centrality,
 		// with 3 clusters of seeds
 		// each cluster is 40% of neighbors of ranked node
 		Cascader.RunCascade2HopDeg(LargeSCC, 2, 55);
-	}
-	
-	public void DisplayGraph() {
-		graphView.display();
+		
+		if (observer != null)
+			Cascader.removeObserver(observer);
 	}
 	
 	/**
@@ -175,11 +161,11 @@ public class CapGraph implements Graph {
 			
 			//add it to the adjacency list
 			adjList.put(num,  vertex);
+			m_Indexed = null;
 			
-			//visualization - add node to visualization as default B
-			String node = Integer.toString(num);
-			graphView.addNode(node);
-			graphView.getNode(node).addAttribute("ui.class", "B");
+			for (GraphChangeListener listener : m_Listeners){
+				listener.vertexAdded(num);
+			}
 		}		
 
 	}
@@ -212,22 +198,84 @@ public class CapGraph implements Graph {
 		}
 		
 		//if Edge already exists don't add again
-		if (adjList.get(from).getNeighbors().contains(to))
+		if (adjList.get(from).hasNeighbor(to))
 			return;
 		
 		// Add neighbor to vertex from
 		adjList.get(from).addNeighbor(to);
+		if (m_TrackInNeighbors)
+			adjList.get(to).addInNeighbor(from);
 		numEdges++;
-				
-		//Visualization
-		//only add edge in one direction, don't add if already an edge in other direction
-		// Edge Name = vertex from id + "to" + vertex to id
-		if (!adjList.get(to).getNeighbors().contains(from)){
-					
-			String edgeName = Integer.toString(from)+ "to"+ Integer.toString(to);
-			graphView.addEdge(edgeName,Integer.toString(from), Integer.toString(to) );
-		}		
-
+		m_Indexed = null;
+		
+		for (GraphChangeListener listener : m_Listeners){
+			listener.edgeAdded(from, to);
+		}
+	}
+	
+	/**
+	 * removeEdge
+	 * Parameters: int from, int to
+	 * 
+	 * Removes the edge from Vertex with id from, to Vertex with id to.
+	 * Does nothing if there is no such edge.
+	 **/
+	public void removeEdge(int from, int to) {
+		if (!adjList.containsKey(from) || !adjList.get(from).removeNeighbor(to))
+			return;
+		
+		if (m_TrackInNeighbors)
+			adjList.get(to).removeInNeighbor(from);
+		numEdges--;
+		m_Indexed = null;
+		
+		for (GraphChangeListener listener : m_Listeners){
+			listener.edgeRemoved(from, to);
+		}
+	}
+	
+	/**
+	 * removeVertex
+	 * Parameters: int num = vertex id number
+	 * 
+	 * Removes the vertex with its outgoing and incoming edges.  Each edge is removed 
+	 * (and reported) on its own, then the vertex.  Does nothing if num is not in the 
+	 * graph.
+	 */
+	public void removeVertex(int num) {
+		if (!adjList.containsKey(num))
+			return;
+		
+		trackInNeighbors();
+		CapVertex vertex = adjList.get(num);
+		for (int to : vertex.getNeighbors()){
+			removeEdge(num, to);
+		}
+		for (int from : vertex.getInNeighbors()){
+			removeEdge(from, num);
+		}
+		adjList.remove(num);
+		m_Indexed = null;
+		
+		for (GraphChangeListener listener : m_Listeners){
+			listener.vertexRemoved(num);
+		}
+	}
+	
+	/**
+	 * trackInNeighbors: Builds the incoming neighbors of every vertex, in one pass over
+	 * the edges, and keeps them from then on.  Called on first use, or up front so the
+	 * first change does not pay for it.
+	 */
+	public void trackInNeighbors(){
+		if (m_TrackInNeighbors)
+			return;
+		
+		for (CapVertex vertex : adjList.values()){
+			int from = vertex.getVertexID();
+			vertex.forEachNeighbor(to -> adjList.get(to).addInNeighbor(from));
+		}
+		m_TrackInNeighbors = true;
 	}
 
 	/** 
@@ -256,20 +304,19 @@ public class CapGraph implements Graph {
 		egonet.addVertex(center);
 		
 		//add neighbor nodes and edges to neighbors from center
-		HashSet<Integer> neighbors = getNeighbors(center);
-		for (Integer n: neighbors){
+		CapVertex centerVertex = adjList.get(center);
+		centerVertex.forEachNeighbor(n -> {
 			egonet.addVertex(n);
 			egonet.addEdge(center, n);
 			
-		}
+		});
 		 //add neighbors edges within graph
-		for (Integer n: neighbors){
-			HashSet<Integer> neighborEdges = getNeighbors(n);
-			for (Integer edge: neighborEdges){
+		centerVertex.forEachNeighbor(n -> {
+			adjList.get(n).forEachNeighbor(edge -> {
 				//will only add edge if both to and from in graph
 				egonet.addEdge(n,edge);	
-			}
-		}
+			});
+		});
 		return egonet;
 	}
 
@@ -280,194 +327,92 @@ public class CapGraph implements Graph {
 	 * Return value: returns a list of Strongly Connected Componenets subgraphs
 	 * found within CapGraph
 	 * 
-	 * Algorithm: 3 steps
-	 * 1.Depth First Search (DFS) of CapGraph G, keeping track of order vertices finish
-	 * 2. Transpose G to G1
-	 * 3. DFS(G1) exploring in reverse oder of finish time from step 1
+	 * Algorithm: 2 steps
+	 * 1. Find the component of every vertex with StronglyConnectedComponents 
+	 *    (iterative Tarjan on the CSR snapshot of the graph, no transposed copy)
+	 * 2. Build one CapGraph per component, in one pass over the edges of its vertices
 	 * 
 	 */
 	@Override
 	public List<Graph> getSCCs() {
-		List<Graph> SCCList; 
-		
-		Stack<Integer> vertices = new Stack<Integer>();
-		Stack<Integer> finished; 
-		
-		//Stores list of SCC Nodes containing all the vertices in each SCC
-		List<Stack<Integer>>  SCCNodesList = new ArrayList<Stack<Integer>>();;
-		boolean getSCCNodes = true;
+		MetricsRegistry.Timer timer = MetricsRegistry.getGlobal().start("scc");
+		IndexedGraph indexed = getIndexedGraph();
+		StronglyConnectedComponents scc = new StronglyConnectedComponents(indexed);
 		
-		vertices.addAll(adjList.keySet());
-		
-		//Step 1 DFS of G
-		finished = DFS(this,vertices, !getSCCNodes, SCCNodesList );
-		//System.out.println("Step 1 finsihed list: " + finished.toString());
-		
-		//Step 2 Transpose G to G1
-		CapGraph G1 = transposeGraph();
-		//System.out.println("Step 2 transpose Graph: ");
-		//G1.PrintAdjacencyList();
-		
-		//Step 3 DFS of G1 using finished vertices order from step 1
-		DFS(G1,finished, getSCCNodes,SCCNodesList);
-		
-		//Step 4 Create List of SCC Graphs from SCC nodes list
-		//loop through SCC lists and make a list of Graphs from them
-		SCCList = CreateGraphList(SCCNodesList);
+		int numComponents = scc.getNumComponents();
+		int[] start = new int[numComponents + 1];
+		int[] members = scc.getMembersByComponent(start);
 		
+		List<Graph> SCCList = new ArrayList<Graph>(numComponents);
+		for (int c = 0; c < numComponents; c++){
+			SCCList.add(CreateSubgraph(indexed, scc, c, members, start[c], start[c + 1]));
+		}
+		timer.stop();
 		return SCCList;
 	}
 	
 	/**
-	 * DFS - performs Depth First Searches until all nodes have been visited.
-	 * @param G : Graph to perform the DFS on
-	 * @param verticeOrder:  Order of Vertices to perform DFS
-	 * @param getSCCList :  Is DFS resulting in finding SCCs?  true/false
-	 * @param SCCnodes:  If getSCCList is true, returns a list of all SCCs in graphs,
-	 *                   where each item in list is a list of nodes in an SCC
-	 * @return: The reverse order the vertices in G were found in the DFS
+	 * getSCCComponents: The SCCs of the graph as a component id per vertex index of 
+	 * getIndexedGraph(), without building any subgraphs.
 	 */
-	private Stack<Integer> DFS(CapGraph G, Stack<Integer> verticeOrder, boolean getSCCList, 
-			List<Stack<Integer>> SCCnodes ){
-		
-		//Initialization of visted and vertices lists
-		HashSet<Integer> visited = new HashSet<Integer>();
-		Stack<Integer> finished = new Stack<Integer>();
-				
-		// visit all the vertices 
-		while (!verticeOrder.empty()){
-			int v = verticeOrder.pop();
-			if (!visited.contains(v)){
-				//Each call to DFSVisit will add to finish an SCC on Step 3
-				//Need to know if storing SCC or not
-				DFSVisit(G, v,visited, finished);
-				if (getSCCList){
-					//pull all nodes off of finished list from this 
-					//DFSVisit call- these are a list of vertices for a SCC
-					//and clear out finished for next call
-					//System.out.println("SCC Node:  " + finished.toString());
-					SCCnodes.add(finished);
-					finished = new Stack<Integer>();
-				}
-			}
-		}
-		
-		return finished;
+	public StronglyConnectedComponents getSCCComponents(){
+		MetricsRegistry.Timer timer = MetricsRegistry.getGlobal().start("scc");
+		StronglyConnectedComponents scc = new StronglyConnectedComponents(getIndexedGraph());
+		timer.stop();
+		return scc;
 	}
 	
 	/**
-	 * DFSVisit : Traverses all possible paths in DFS from vertex passed in until all nodes 
-	 *            from the given vertex that can be reached using DFS have been visited
-	 * @param G : G is the graph to perform the DFS on
-	 * @param vertex: Vertex to perform DFS from
-	 * @param visited:  List of nodes visited in DFS
-	 * @param finished:  Stack of nodes in the order they are finished with DFS
+	 * getComponentGraph: Builds the subgraph of one SCC
+	 * @param scc: components found by getSCCComponents(), the graph must not have 
+	 *             changed since
+	 * @param component: id of the component to build
+	 * @return: A CapGraph with the vertices of the component and the edges between them
 	 */
-	private void DFSVisit(CapGraph G, int vertex, HashSet<Integer> visited, Stack<Integer> finished){
-		
-		//add vertex to visited
-		visited.add(vertex);
-		
-		//get neighbors of vertex
-		HashSet<Integer> neighbors = G.getNeighbors(vertex);
-		
-		for (Integer n: neighbors)
-		{
-			if (!visited.contains(n)){
-				DFSVisit(G,n,visited, finished);
-			}
-		}
-		finished.push(vertex);
-		
-		return;
-		
+	public CapGraph getComponentGraph(StronglyConnectedComponents scc, int component){
+		int[] members = scc.getMembers(component);
+		return CreateSubgraph(getIndexedGraph(), scc, component, members, 0, members.length);
 	}
 	
 	/**
-	 * CreateGraphList:  Creates the SCC graphs and puts them and SCCGraph list
-	 * @param SCCNodesList:  A list containing the nodes contained in each SCC for the Graph
-	 * @return: A list of the all the SCC graphs
+	 * CreateSubgraph:  Creates the graph of one SCC
+	 * @param indexed: CSR snapshot the components were found on
+	 * @param members: vertex indices, members[from..to-1] are the vertices of component
+	 * @return: The SCC graph
 	 */
-	private List<Graph> CreateGraphList(List<Stack<Integer>> SCCNodesList){
-		List<Graph> SCCList = new ArrayList<Graph>();
-		CapGraph SCCGraph;
-		for (int index =0; index < SCCNodesList.size(); index++){
-			SCCGraph = new CapGraph();
-			
-			//add vertices of SCC Graph
-			while (!SCCNodesList.get(index).isEmpty()){
-				//loop through the list of nodes for 1 SCC
-				// create Graph with those nodes and add
-				//to SCCList
-				int vertex = SCCNodesList.get(index).pop();
-				SCCGraph.addVertex(vertex);	
-			}//Get next Vertex
-			
-			//Add Edges of SCC Graph for each vertex in the graph
-			Set<Integer> Vertices = SCCGraph.getVertices();
-			for (Integer v: Vertices){
-				HashSet<Integer> neighbors = this.getNeighbors(v);
-				//loop through neighbors of vertex v
-				//add neighbors if the neighbor is a vertex in SCC
-				for (Integer n: neighbors){
-					if (Vertices.contains(n)){
-						SCCGraph.addEdge(v, n);
-					}
-				}//Get next neighbor
-
-			}//Get next Vertex to add Edges
-			
-			//add SCC Graph to SCC Graph List
-			SCCList.add(SCCGraph);
-			
-		}//Get next SCC Graph
-		return SCCList;
-	}
-	
-
-	/**
-	 * TransposeGraph: Creates a transpose of the graph
-	 * 
-	 * return Value: A new Capgraph that is the transpose of the graph
-	 */
-	private CapGraph transposeGraph(){
-		
-		CapGraph transposedG = new CapGraph();
-		
-		for(Integer v: this.getVertices()){
-			//add vertex to transposed Graph
-			transposedG.addVertex(v);
-			HashSet<Integer> neighbors = this.getNeighbors(v);
-			for(Integer n: neighbors){
-				//Add neighbor as vertex
-				transposedG.addVertex(n);
-				//Add edge from neighbor to v (opposite this CapGraph)
-				transposedG.addEdge(n, v);
+	private CapGraph CreateSubgraph(IndexedGraph indexed, StronglyConnectedComponents scc, 
+			int component, int[] members, int from, int to){
+		CapGraph SCCGraph = new CapGraph();
+		
+		//add vertices of SCC Graph
+		for (int i = from; i < to; i++){
+			SCCGraph.addVertex(indexed.getId(members[i]));
+		}
+		
+		//Add Edges of SCC Graph, only to neighbors in the same SCC
+		for (int i = from; i < to; i++){
+			int v = members[i];
+			for (int e = indexed.getEdgeStart(v); e < indexed.getEdgeEnd(v); e++){
+				int n = indexed.getEdgeTarget(e);
+				if (scc.getComponent(n) == component){
+					SCCGraph.addEdge(indexed.getId(v), indexed.getId(n));
+				}
 			}
 		}
-		return transposedG;
+		return SCCGraph;
 	}
-
 	
-	
-	private CapGraph getLargestSCC(){
-		//Get large SCC from graph
-		List<Graph> listSCCs = this.getSCCs();
-		int maxSize = 0;
-		CapGraph LargeSCC = new CapGraph();
-				
-		for (int index = 0; index < listSCCs.size(); index++)
-		{
-			CapGraph graph  = (CapGraph) listSCCs.get(index);
-			int size = graph.getNumVertices();
-			//System.out.println("SCC graph index " + index + " number of vertices " + size);
-			if (size > maxSize){
-				System.out.println(" New max: " + size);
-				maxSize = size;
-				LargeSCC = graph;
-			}
-		}
-		return LargeSCC;
+	/**
+	 * getLargestSCC: The SCC with the most vertices, found in one pass over the 
+	 * component sizes and built without building the other SCCs.
+	 */
+	public CapGraph getLargestSCC(){
+		StronglyConnectedComponents scc = getSCCComponents();
+		int largest = scc.getLargestComponent();
+		if (largest < 0)
+			return new CapGraph();
+		
+		return getComponentGraph(scc, largest);
 	}
 	
 	/** (non-Javadoc)
@@ -493,92 +438,143 @@ public class CapGraph implements Graph {
 	/*
 	 * getDegSeparation 
 	 * Returns the shortest number of hops in a path from the start vertex to the 
-	 * end vertex
+	 * end vertex, not counting the hop to end (0 for neighbors), from the distance
+	 * index when one is set (see setDistanceIndex), else with a bidirectional BFS on
+	 * the CSR snapshot (see BidirectionalBFS).  -1 if there is no path or an id is
+	 * not in the graph.
 	 */
 	public int getDegSeparation(int start, int end)
 	{
 		//Checks for bad input
-		if (start == end)
-				return 0;
-				
 		if (start<0 || end<0)
 				return -1;
-				
-		if (!adjList.containsKey(start))
-				return -1;
-		if(!adjList.containsKey(end))
+		
+		IndexedGraph indexed = getIndexedGraph();
+		int from = indexed.getIndex(start);
+		int to = indexed.getIndex(end);
+		if (from < 0 || to < 0)
 				return -1;
 		
-		//Initialize
-		boolean found = false;
-		ArrayList<Integer> Queue = new ArrayList<Integer>();
-		HashSet<Integer> Visited = new HashSet<Integer>();
-		HashMap<Integer, Integer> ParentMap = new HashMap<Integer, Integer>();
-		
-		//Start queue
-		Queue.add(start);
-		Visited.add(start);
-		int curr = start;
-				
-		//Start Search using BFS
-		while (!Queue.isEmpty())
-		{
-			curr = Queue.remove(0);
-
-			if (curr == end){
-				found = true;
-				break;
-			}
-			//add all of curr's neighbors to the queue
-			HashSet<Integer> neighbors = adjList.get(curr).getNeighbors();
-			
-			for (int n: neighbors){
-				if (!Visited.contains(n)){
-					Visited.add(n);
-					Queue.add(n);
-					ParentMap.put(n, curr);
-				}//if
-			}// loop through neighbors
-		}//while loop
-		
-		if (found){
-			//get number of hops from path
-			int node;
-			node = ParentMap.get(curr);
-			
-			int num = 0;
-			while (node != start){
-				
-				num++;
-				//System.out.println("Node " + node+ " Num hops is: " + numHops);
-				node = ParentMap.get(node);
-			}
-			return num;
+		if (from == to)
+				return 0;
+		
+		PrunedLandmarkLabeling index = getDistanceIndex();
+		if (index != null)
+			return toSeparation(index.distance(from, to));
+		return toSeparation(getSeparationSearch().distance(from, to));
+	}
+	
+	/*
+	 * getDegSeparations
+	 * getDegSeparation of every pair (starts[i], ends[i]), the queries run over all cores
+	 */
+	public int[] getDegSeparations(int[] starts, int[] ends)
+	{
+		if (starts == null || ends == null || starts.length != ends.length)
+			//bad input
+			return null;
+		
+		MetricsRegistry.Timer timer = MetricsRegistry.getGlobal().start("separation.batch");
+		IndexedGraph indexed = getIndexedGraph();
+		
+		//bad ids get index -1, which the search answers with -1, equal ids 0
+		int[] from = new int[starts.length];
+		int[] to = new int[ends.length];
+		for (int i = 0; i < starts.length; i++){
+			boolean bad = starts[i] < 0 || ends[i] < 0;
+			from[i] = bad ? -1 : indexed.getIndex(starts[i]);
+			to[i] = bad ? -1 : indexed.getIndex(ends[i]);
+		}
+		
+		PrunedLandmarkLabeling index = getDistanceIndex();
+		int[] separations = index != null ? index.distances(from, to) : getSeparationSearch().distances(from, to);
+		for (int i = 0; i < separations.length; i++){
+			separations[i] = toSeparation(separations[i]);
 		}
-		return -1;
+		MetricsRegistry.getGlobal().increment("separation.queries", starts.length);
+		timer.stop();
+		return separations;
 	}
 	
+	/*
+	 * toSeparation: hops of a path to degrees of separation, -1 (no path) unchanged
+	 */
+	private static int toSeparation(int hops){
+		return hops > 0 ? hops - 1 : hops;
+	}
 	
-	public int getNodeLeastDegreesOfSep(){
-		//Find Max Degree of Separation for all nodes
-		//Find node with the lowest Max Degree of Separation
+	/*
+	 * getSeparationSearch: the search over the current CSR snapshot, built again after
+	 * the graph changes
+	 */
+	private BidirectionalBFS getSeparationSearch(){
+		IndexedGraph indexed = getIndexedGraph();
+		if (m_Separation == null || m_Separation.getGraph() != indexed)
+			m_Separation = new BidirectionalBFS(indexed);
 		
-		int minNode= -1;
-		int minHops = Integer.MAX_VALUE;
+		return m_Separation;
+	}
+	
+	/*
+	 * setDistanceIndex
+	 * Answers getDegSeparation from index, built for the current CSR snapshot
+	 * (getIndexedGraph), until the graph changes.  null goes back to searching.
+	 */
+	public void setDistanceIndex(PrunedLandmarkLabeling index){
+		if (index != null && index.getGraph() != getIndexedGraph())
+			//bad input
+			return;
 		
-		for (int n : getVertices() ){
-			int deg = getMaxDegSeparation(n);
-			if (deg< minHops){
-				minHops = deg;
-				minNode = n;
-			}
-		}
+		m_DistanceIndex = index;
+	}
+	
+	/*
+	 * getDistanceIndex
+	 * The index set by setDistanceIndex, null if none is set or the graph changed since
+	 */
+	public PrunedLandmarkLabeling getDistanceIndex(){
+		if (m_DistanceIndex != null && m_DistanceIndex.getGraph() != getIndexedGraph())
+			m_DistanceIndex = null;
+		
+		return m_DistanceIndex;
+	}
+	
+	
+	/**
+	 * getNodeLeastDegreesOfSep: the node with the smallest max degree of separation 
+	 * (minimum eccentricity).  EccentricityEngine finds it from a few BFS runs on an
+	 * undirected graph, bounding the max degrees of separation of the other nodes
+	 * instead of computing them, and from MultiSourceBFS on a directed one.  When
+	 * several nodes share the smallest value, any one of them can be returned.
+	 */
+	public int getNodeLeastDegreesOfSep(){
+		//Find the center: the node with the lowest Max Degree of Separation
+		IndexedGraph indexed = getIndexedGraph();
+		EccentricityEngine eccentricities = new EccentricityEngine(indexed);
+		eccentricities.compute();
+		if (eccentricities.getCenter() < 0)
+			//empty graph
+			return -1;
+		
+		int minNode = indexed.getId(eccentricities.getCenter());
+		int minHops = eccentricities.getRadius();
 		System.out.println("Node with smalles max deg of  separation is : " + minNode+ 
 				" with "+ minHops + "degrees of separation.");
 		
 		return minNode;
 	}
 	
+	/**
+	 * getEffectiveDiameter: estimated number of hops within which 90% of the pairs of
+	 * connected nodes are.  Estimated with HyperANF in a few passes over the edges, 
+	 * instead of a BFS from every node.
+	 */
+	public double getEffectiveDiameter(){
+		HyperANF anf = new HyperANF(getIndexedGraph(), HyperANF.DEFAULT_LOG2M);
+		anf.run();
+		return anf.getEffectiveDiameter(0.9);
+	}
+	
 	
 	/**
 	 * Getters and setters
@@ -602,6 +598,66 @@ public class CapGraph implements Graph {
 		return adjList.get(vertex).getNeighbors();
 	}
 	
+	public void forEachNeighbor(int vertex, IntConsumer action){
+		if (!adjList.containsKey(vertex))
+			return;
+		
+		adjList.get(vertex).forEachNeighbor(action);
+	}
+	
+	/**
+	 * forEachInNeighbor: Calls action with the id of every vertex with an edge to vertex.
+	 * The first call builds the incoming neighbors of all vertices.
+	 */
+	public void forEachInNeighbor(int vertex, IntConsumer action){
+		if (!adjList.containsKey(vertex))
+			return;
+		
+		trackInNeighbors();
+		adjList.get(vertex).forEachInNeighbor(action);
+	}
+	
+	/**
+	 * addListener: listener is told of every vertex and edge added or removed from now on
+	 */
+	public void addListener(GraphChangeListener listener){
+		if (listener == null)
+			return;
+		m_Listeners.add(listener);
+	}
+	
+	public void removeListener(GraphChangeListener listener){
+		m_Listeners.remove(listener);
+	}
+	
+	public int degree(int vertex){
+		if (!adjList.containsKey(vertex))
+			return -1;
+		
+		return adjList.get(vertex).getNumNeighbors();
+	}
+	
+	public boolean hasEdge(int from, int to){
+		if (!adjList.containsKey(from))
+			return false;
+		
+		return adjList.get(from).hasNeighbor(to);
+	}
+	
+	/**
+	 * getIndexedGraph: CSR snapshot of the structure of the graph, with vertex ids 
+	 * mapped to dense indices.  Built on first use and kept until the graph changes.
+	 * Only the structure is used from it, cascade properties and centrality values
+	 * are read from this graph.
+	 */
+	@Override
+	public IndexedGraph getIndexedGraph(){
+		if (m_Indexed == null)
+			m_Indexed = CsrGraph.fromGraph(this);
+		
+		return m_Indexed;
+	}
+	
 	public Set<Integer> getVertices(){
 		Set<Integer> vertices = new HashSet<Integer>();
 		vertices = adjList.keySet();
@@ -623,9 +679,6 @@ public class CapGraph implements Graph {
 			return;
 		
 		adjList.get(v).setPropertyABtoA();
-		
-		//visualization
-		graphView.getNode(Integer.toString(v)).changeAttribute("ui.class", "A");
 	}
 	
 	public void setNodeToB(int v){
@@ -633,11 +686,6 @@ public class CapGraph implements Graph {
 			return;
 		
 		adjList.get(v).setPropertyABtoB();
-		
-		//visualization
-		//graphView.getNode(Integer.toString(v)).removeAttribute("ui.class");
-		graphView.getNode(Integer.toString(v)).changeAttribute("ui.class", "B");
-		
 	}
 
 	public void setNodeCloseness(int node, double value){
@@ -680,11 +728,6 @@ public class CapGraph implements Graph {
 		return adjList.get(node).getDegCent();
 	}
 	
-	public SingleGraph getGraphView(){
-		return graphView;
-	}
-	
-	
 	/**
 	 * Print out adjacency list
 	 * @return the String
@@ -696,12 +739,10 @@ public class CapGraph implements Graph {
 		//s += "( " + getNumVertices() + " Vertices, " + getNumEdges() + " Edges):";
 		System.out.println("Adjacency List: ( " + getNumVertices() + " Vertices, " + getNumEdges() + " Edges):" );
 		for (int v : adjList.keySet()) {
-			String s = "";
+			StringBuilder s = new StringBuilder();
 			
-			s += "\t"+v+": ";
-			for (int w : adjList.get(v).getNeighbors()) {
-				s += w+", ";
-			}
+			s.append("\t").append(v).append(": ");
+			adjList.get(v).forEachNeighbor(w -> s.append(w).append(", "));
 			System.out.println(s);
 		}
 		return;
@@ -714,8 +755,11 @@ public class CapGraph implements Graph {
 	 * 
 	 */
 	
-	public static void main(String[] args){
+	public static void main(String[] args) throws IOException{
 		
+		//record the phases of the run, written out as JSON at the end
+		MetricsRegistry metrics = new MetricsRegistry();
+		MetricsRegistry.setGlobal(metrics);
 		
 		CapGraph FBGraph = new CapGraph();
 		
@@ -725,6 +769,10 @@ public class CapGraph implements Graph {
 		+ FBGraph.getNumEdges());
 		FBGraph.RunCascade();
 		
+		Writer out = new OutputStreamWriter(System.out);
+		metrics.writeJson(out);
+		out.flush();
+		
 		/*//Add vertices to testGraph - example from class
 		
 		CapGraph testGraph = new CapGraph();
@@ -786,7 +834,7 @@ public class CapGraph implements Graph {
 		//testGraph.getNodeLeastDegreesOfSep();
 		//testGraph.getClosenessCentrality(65);
 		
-		//testGraph.DisplayGraph();
+		//testGraph.RunCascade(new view.GraphViewer());
 		
 		//test transpose Graph
 		//testGraph.transposeGraph(testGraph);
@@ -864,8 +912,7 @@ public class CapGraph implements Graph {
 				}
 				System.out.println(counter + " nodes seeded in Graph.");
 		*/
-		//FBGraph.RunCascade();
-		//FBGraph.DisplayGraph();
+		//FBGraph.RunCascade(new view.GraphViewer());
 		
 		/*//FBGraph.PrintAdjacencyList();
 		//egoNet =(CapGraph) FBGraph.getEgonet(4);
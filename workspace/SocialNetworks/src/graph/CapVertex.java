@@ -1,5 +1,6 @@
 package graph;
 import java.util.HashSet;
+import java.util.function.IntConsumer;
 
 /**
  * 
@@ -25,6 +26,10 @@ public class CapVertex {
 	//m_neighbors is a list of vertex id's for the outgoing neighbors of this vertex
 	private HashSet<Integer> m_neighbors;
 	
+	//vertex id's of the incoming neighbors, only kept once CapGraph needs them 
+	//(removing vertices, live ranking), null until the first one is added
+	private HashSet<Integer> m_InNeighbors;
+	
 	//For node ranking, centrality values for node
 	private int m_DegCent;
 	private int m_DegCent2Hop;
@@ -53,6 +58,42 @@ public class CapVertex {
 		m_neighbors.add(node);
 	}
 	
+	public boolean removeNeighbor(int node){
+		return m_neighbors.remove(node);
+	}
+	
+	public void addInNeighbor(int node){
+		if (m_InNeighbors == null)
+			m_InNeighbors = new HashSet<Integer>();
+		m_InNeighbors.add(node);
+	}
+	
+	public void removeInNeighbor(int node){
+		if (m_InNeighbors != null)
+			m_InNeighbors.remove(node);
+	}
+	
+	/**
+	 * forEachInNeighbor: Calls action with the id of every incoming neighbor, 
+	 * without copying.  Only complete when CapGraph tracks incoming neighbors.
+	 */
+	public void forEachInNeighbor(IntConsumer action){
+		if (m_InNeighbors == null)
+			return;
+		for (int n : m_InNeighbors){
+			action.accept(n);
+		}
+	}
+	
+	public HashSet<Integer> getInNeighbors(){
+		//return a copy
+		HashSet<Integer> neighbors = new HashSet<Integer>();
+		if (m_InNeighbors != null)
+			neighbors.addAll(m_InNeighbors);
+		
+		return neighbors;
+	}
+	
 	public HashSet<Integer> getNeighbors(){
 		//return a copy
 		HashSet<Integer> neighbors = new HashSet<Integer>();
@@ -61,6 +102,24 @@ public class CapVertex {
 		return neighbors;
 	}
 	
+	/**
+	 * forEachNeighbor: Calls action with the id of every outgoing neighbor.
+	 * Reads the neighbor list in place, nothing is copied.
+	 */
+	public void forEachNeighbor(IntConsumer action){
+		for (int n : m_neighbors){
+			action.accept(n);
+		}
+	}
+	
+	public int getNumNeighbors(){
+		return m_neighbors.size();
+	}
+	
+	public boolean hasNeighbor(int node){
+		return m_neighbors.contains(node);
+	}
+	
 	public char getPropertyAB()
 	{
 		return m_PropertyAB;
@@ -0,0 +1,399 @@
+package graph;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import util.GraphLoader;
+import util.ParallelLoop;
+
+/**
+ * @author kguajardo
+ *
+ * CascadeExperiment: Runs many cascades on one graph, one per configuration of a
+ * parameter grid (rewards a and b, number of areas to seed, percent of neighbors to
+ * seed, ranking strategy, trial), and collects a results table.
+ *
+ * The graph is loaded once and only read by the runs.  The rankings each strategy
+ * seeds from are computed once, before the runs, with RankingNodes, and the order the
+ * seeding walks the neighbors of each ranked node is saved with them.  Each run then
+ * only needs its own cascade state: a CascadeSimulator, reused by the runs on the
+ * same worker thread.  The runs are spread over a fork/join pool.
+ *
+ * Seeding and cascade follow GraphCascader (SeedGraph and RunCascade), so a run gives
+ * the same result as GraphCascader on the same graph.  RANDOM seeds around randomly
+ * chosen nodes instead of top ranked ones, a different choice for each trial.
+ *
+ */
+public class CascadeExperiment {
+
+	/**
+	 * Strategy: ranking the seeded areas are chosen from
+	 */
+	public enum Strategy { DEGREE, DEG2HOP, CLOSENESS, RANDOM }
+
+	/**
+	 * Config: parameters of one run
+	 */
+	public static class Config {
+		private final int m_a;
+		private final int m_b;
+		private final int m_NumAreas;
+		private final int m_PctNeighbors;
+		private final Strategy m_Strategy;
+		private final int m_Trial;
+
+		public Config(int a, int b, int numAreas, int pctNeighbors, Strategy strategy, int trial){
+			m_a = a;
+			m_b = b;
+			m_NumAreas = numAreas;
+			m_PctNeighbors = pctNeighbors;
+			m_Strategy = strategy;
+			m_Trial = trial;
+		}
+
+		public int geta(){ return m_a; }
+		public int getb(){ return m_b; }
+		public int getNumAreas(){ return m_NumAreas; }
+		public int getPctNeighbors(){ return m_PctNeighbors; }
+		public Strategy getStrategy(){ return m_Strategy; }
+		public int getTrial(){ return m_Trial; }
+
+		@Override
+		public String toString(){
+			return "a=" + m_a + " b=" + m_b + " areas=" + m_NumAreas + " pct=" + m_PctNeighbors
+					+ " " + m_Strategy + " trial=" + m_Trial;
+		}
+	}
+
+	/**
+	 * Result: outcome of one run
+	 */
+	public static class Result {
+		private final Config m_Config;
+		private final int m_NumSeeded;
+		private final int m_NumChanged;
+		private final int m_Generations;
+		private final boolean m_Equilibrium;
+		private final long m_WallNanos;
+		private final int m_NumVertices;
+
+		Result(Config config, int numSeeded, int numChanged, int generations, boolean equilibrium,
+				long wallNanos, int numVertices){
+			m_Config = config;
+			m_NumSeeded = numSeeded;
+			m_NumChanged = numChanged;
+			m_Generations = generations;
+			m_Equilibrium = equilibrium;
+			m_WallNanos = wallNanos;
+			m_NumVertices = numVertices;
+		}
+
+		public Config getConfig(){ return m_Config; }
+
+		/* Nodes set to A by seeding */
+		public int getNumSeeded(){ return m_NumSeeded; }
+
+		/* Nodes changed to A by the cascade, seeds not counted */
+		public int getNumChanged(){ return m_NumChanged; }
+
+		/* Nodes that are A at the end, seeds included */
+		public int getNumAdopted(){ return m_NumSeeded + m_NumChanged; }
+
+		public double getAdoptedFraction(){
+			return m_NumVertices == 0 ? 0 : (double) getNumAdopted() / m_NumVertices;
+		}
+
+		/* Generations that changed at least one node */
+		public int getGenerations(){ return m_Generations; }
+
+		/* false if the generation limit was reached first */
+		public boolean isEquilibrium(){ return m_Equilibrium; }
+
+		public long getWallNanos(){ return m_WallNanos; }
+	}
+
+	//graph shared by all runs
+	private final CascadeGraph m_Graph;
+	private final IndexedGraph m_Indexed;
+
+	//Number of Generations to run for each Cascade
+	private int m_NumGenerations;
+
+	//percent of graph Nodes in the ranking lists, as in GraphCascader
+	private int m_PercentTopNodes;
+
+	//number of threads, 0 uses the common fork/join pool
+	private int m_Parallelism;
+
+	//per strategy: ranked node indices, and for each the neighbor indices in seeding order
+	private final EnumMap<Strategy, int[]> m_Ranked;
+	private final EnumMap<Strategy, int[][]> m_SeedOrder;
+
+	public CascadeExperiment(CascadeGraph graph){
+		m_Graph = graph;
+		m_Indexed = graph.getIndexedGraph();
+		m_NumGenerations = 50;
+		m_PercentTopNodes = 10;
+		m_Parallelism = 0;
+		m_Ranked = new EnumMap<Strategy, int[]>(Strategy.class);
+		m_SeedOrder = new EnumMap<Strategy, int[][]>(Strategy.class);
+	}
+
+	/**
+	 * grid: every combination of the given values, trials runs of each
+	 */
+	public static List<Config> grid(int[] a, int[] b, int[] numAreas, int[] pctNeighbors,
+			Strategy[] strategies, int trials){
+		List<Config> configs = new ArrayList<Config>();
+		for (Strategy strategy : strategies){
+			for (int ai : a){
+				for (int bi : b){
+					for (int areas : numAreas){
+						for (int pct : pctNeighbors){
+							for (int trial = 0; trial < trials; trial++){
+								configs.add(new Config(ai, bi, areas, pct, strategy, trial));
+							}
+						}
+					}
+				}
+			}
+		}
+		return configs;
+	}
+
+	/**
+	 * run: Runs every configuration, in parallel
+	 * @return one result per configuration, in the same order
+	 */
+	public List<Result> run(List<Config> configs){
+		//Shared state is built before the runs start, the runs only read it
+		m_Indexed.transpose();
+		for (Config config : configs){
+			if (config.getStrategy() != Strategy.RANDOM)
+				prepareRanking(config.getStrategy());
+		}
+
+		ThreadLocal<CascadeSimulator> simulators = new ThreadLocal<CascadeSimulator>(){
+			@Override
+			protected CascadeSimulator initialValue(){
+				return new CascadeSimulator(m_Indexed);
+			}
+		};
+		Result[] results = new Result[configs.size()];
+		ParallelLoop.forRange(m_Parallelism, 0, configs.size(), 1, (from, to) -> {
+			for (int r = from; r < to; r++){
+				results[r] = runOne(configs.get(r), simulators.get());
+			}
+		});
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * runOne: seeds and runs one cascade on simulator
+	 */
+	private Result runOne(Config config, CascadeSimulator simulator){
+		long start = System.nanoTime();
+		simulator.clear();
+		simulator.setRewards(config.geta(), config.getb());
+
+		int[] ranked;
+		int[][] seedOrder;
+		if (config.getStrategy() == Strategy.RANDOM){
+			ranked = randomNodes(config.getTrial());
+			seedOrder = seedOrder(ranked, config.getNumAreas());
+		}
+		else {
+			ranked = m_Ranked.get(config.getStrategy());
+			seedOrder = m_SeedOrder.get(config.getStrategy());
+		}
+		int numSeeded = seed(simulator, ranked, seedOrder, config.getNumAreas(), config.getPctNeighbors());
+
+		int gen;
+		for (gen = 0; gen < m_NumGenerations; gen++){
+			if (simulator.step() == 0)
+				break;
+		}
+		return new Result(config, numSeeded, simulator.getTotalChanged(), gen, gen < m_NumGenerations,
+				System.nanoTime() - start, m_Indexed.getNumVertices());
+	}
+
+	/**
+	 * seed: GraphCascader.SeedGraph on the simulator state: around each of the first
+	 * numTopNodes ranked nodes, seed pctNeighborsSeed percent of its neighbors that are
+	 * still B
+	 * @return number of nodes seeded
+	 */
+	private static int seed(CascadeSimulator simulator, int[] ranked, int[][] seedOrder,
+			int numTopNodes, int pctNeighborsSeed){
+		int numSeeded = 0;
+		numTopNodes = Math.min(numTopNodes, ranked.length);
+		for (int index = 0; index < numTopNodes; index++){
+			int[] neighbors = seedOrder[index];
+			int numToSeed = (neighbors.length * pctNeighborsSeed) / 100;
+			int counter = 0;
+			for (int neighbor : neighbors){
+				if (counter >= numToSeed)
+					break;
+				if (!simulator.isA(neighbor)){
+					counter++;
+					simulator.setA(neighbor);
+					numSeeded++;
+				}
+			}
+		}
+		return numSeeded;
+	}
+
+	/**
+	 * prepareRanking: ranks the nodes for strategy with RankingNodes, once
+	 */
+	private void prepareRanking(Strategy strategy){
+		if (m_Ranked.containsKey(strategy))
+			return;
+
+		RankingNodes ranking = new RankingNodes();
+		ranking.setPercentNodesList(m_PercentTopNodes);
+		ranking.setGraph(m_Graph);
+		List<Integer> list;
+		switch (strategy){
+		case DEGREE:
+			ranking.RankNodesDegree();
+			list = ranking.getTopDegList();
+			break;
+		case DEG2HOP:
+			ranking.RankNodesDeg2Hop();
+			list = ranking.getTopDeg2HopList();
+			break;
+		default:
+			ranking.RankNodesCloseness();
+			list = ranking.getTopClosenessList();
+			break;
+		}
+
+		int[] ranked = new int[list.size()];
+		for (int i = 0; i < ranked.length; i++){
+			ranked[i] = m_Indexed.getIndex(list.get(i));
+		}
+		m_Ranked.put(strategy, ranked);
+		m_SeedOrder.put(strategy, seedOrder(ranked, ranked.length));
+	}
+
+	/**
+	 * seedOrder: neighbor indices of the first count ranked nodes, in the order
+	 * SeedGraph visits them (iteration order of getNeighbors)
+	 */
+	private int[][] seedOrder(int[] ranked, int count){
+		count = Math.min(count, ranked.length);
+		int[][] order = new int[count][];
+		for (int i = 0; i < count; i++){
+			HashSet<Integer> neighbors = m_Graph.getNeighbors(m_Indexed.getId(ranked[i]));
+			order[i] = new int[neighbors.size()];
+			int n = 0;
+			for (int neighbor : neighbors){
+				order[i][n++] = m_Indexed.getIndex(neighbor);
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * randomNodes: as many distinct random node indices as a ranking list holds,
+	 * chosen with trial as the seed
+	 */
+	private int[] randomNodes(int trial){
+		int n = m_Indexed.getNumVertices();
+		int listSize = Math.max(1, (int) (n * ((float) m_PercentTopNodes / 100)));
+		listSize = Math.min(listSize, n);
+
+		//partial Fisher-Yates shuffle
+		int[] all = new int[n];
+		for (int v = 0; v < n; v++){
+			all[v] = v;
+		}
+		Random random = new Random(trial);
+		for (int i = 0; i < listSize; i++){
+			int j = i + random.nextInt(n - i);
+			int swap = all[i];
+			all[i] = all[j];
+			all[j] = swap;
+		}
+		return Arrays.copyOf(all, listSize);
+	}
+
+	/**
+	 * writeCsv: writes results as a CSV table with a header line
+	 */
+	public static void writeCsv(List<Result> results, Writer out) throws IOException {
+		PrintWriter writer = new PrintWriter(out);
+		writer.println("a,b,numAreas,pctNeighbors,strategy,trial,seeded,changed,adopted,adoptedFraction,generations,equilibrium,wallMillis");
+		for (Result result : results){
+			Config config = result.getConfig();
+			writer.println(config.geta() + "," + config.getb() + "," + config.getNumAreas() + ","
+					+ config.getPctNeighbors() + "," + config.getStrategy() + "," + config.getTrial() + ","
+					+ result.getNumSeeded() + "," + result.getNumChanged() + "," + result.getNumAdopted() + ","
+					+ String.format(Locale.ROOT, "%.6f", result.getAdoptedFraction()) + "," + result.getGenerations() + ","
+					+ result.isEquilibrium() + "," + String.format(Locale.ROOT, "%.3f", result.getWallNanos() / 1e6));
+		}
+		writer.flush();
+		if (writer.checkError())
+			throw new IOException("error writing results");
+	}
+
+	public void setNumGenerations(int num){
+		if (num<0)
+			//bad input
+			return;
+
+		m_NumGenerations = num;
+	}
+
+	/**
+	 * setPercentTopNodes: size of the ranking lists, in percent of the nodes.  Set it
+	 * before run, rankings are computed once.
+	 */
+	public void setPercentTopNodes(int percent){
+		if (percent<0 || percent > 100)
+			//invalid value
+			return;
+
+		m_PercentTopNodes = percent;
+		m_Ranked.clear();
+		m_SeedOrder.clear();
+	}
+
+	/**
+	 * setParallelism: number of runs at once, 0 (default) uses the common pool
+	 */
+	public void setParallelism(int threads){
+		if (threads < 0)
+			//bad input
+			return;
+
+		m_Parallelism = threads;
+	}
+
+	/**
+	 * Runs a small grid around the CapGraph.RunCascade settings on the largest SCC of
+	 * facebook_1000 and prints the results table
+	 */
+	public static void main(String[] args) throws IOException {
+		CapGraph FBGraph = new CapGraph();
+		GraphLoader.loadGraph(FBGraph, "data/facebook_1000.txt");
+		StronglyConnectedComponents scc = FBGraph.getSCCComponents();
+		CapGraph LargeSCC = FBGraph.getComponentGraph(scc, scc.getLargestComponent());
+
+		CascadeExperiment experiment = new CascadeExperiment(LargeSCC);
+		List<Config> configs = grid(new int[]{1, 2, 3}, new int[]{1}, new int[]{1, 2, 5},
+				new int[]{25, 55}, Strategy.values(), 1);
+		writeCsv(experiment.run(configs), new OutputStreamWriter(System.out));
+	}
+}
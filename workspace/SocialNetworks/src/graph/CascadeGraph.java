@@ -0,0 +1,70 @@
+package graph;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * @author kguajardo
+ *
+ * CascadeGraph: 	The operations RankingNodes and GraphCascader need from a graph.
+ * 					Vertices are addressed by their id (the numbers in the data files)
+ * 					and every vertex carries the cascade property (A or B) and the
+ * 					centrality values used for seeding.
+ *
+ * 					Neighbors are read through forEachNeighbor, degree and hasEdge,
+ * 					which do not copy anything.  getNeighbors returns a copy and is
+ * 					only meant for callers outside the graph package.
+ *
+ * 					Implemented by CapGraph (mutable adjacency list) and CsrGraph
+ * 					(immutable compressed sparse row arrays).
+ *
+ */
+public interface CascadeGraph extends Graph {
+
+	/* Number of vertices in the graph. */
+	public int getNumVertices();
+
+	/* Number of directed edges in the graph. */
+	public int getNumEdges();
+
+	/* The ids of all vertices in the graph. */
+	public Set<Integer> getVertices();
+
+	/* A copy of the outgoing neighbors of vertex, null if vertex is not in the graph. */
+	public HashSet<Integer> getNeighbors(int vertex);
+
+	/* Calls action with the id of every outgoing neighbor of vertex, without copying
+	 * the neighbor list.  Does nothing if vertex is not in the graph. */
+	public void forEachNeighbor(int vertex, IntConsumer action);
+
+	/* Number of outgoing neighbors of vertex, -1 if vertex is not in the graph. */
+	public int degree(int vertex);
+
+	/* True if there is an edge from the first vertex to the second. */
+	public boolean hasEdge(int from, int to);
+
+	/* The structure of the graph in CSR form, for the index based kernels
+	 * (SCCs, BFS, cascade simulation). */
+	public IndexedGraph getIndexedGraph();
+
+	/* Cascade property of v, 'A' or 'B', '\0' if v is not in the graph. */
+	public char getABProperty(int v);
+
+	public void setNodeToA(int v);
+
+	public void setNodeToB(int v);
+
+	/* Centrality values stored by RankingNodes */
+	public void setNodeCloseness(int node, double value);
+
+	public double getNodeCloseness(int node);
+
+	public void setDeg2Hop(int node, int value);
+
+	public int getDeg2Hop(int node);
+
+	public void setDegrees(int node, int value);
+
+	public int getDegrees(int node);
+}
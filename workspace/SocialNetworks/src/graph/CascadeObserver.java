@@ -0,0 +1,33 @@
+package graph;
+
+/**
+ * @author kguajardo
+ *
+ * CascadeObserver: Receives the progress of a cascade run by GraphCascader.
+ * 					State changes are reported in batches, one call for the seeded
+ * 					nodes and one call per generation, never per node.
+ *
+ * 					GraphCascader runs headless unless an observer is attached, the
+ * 					GraphStream visualization (view.GraphViewer) is one observer.
+ *
+ */
+public interface CascadeObserver {
+
+	/* Called once before the graph is seeded, with the graph being cascaded. */
+	public void cascadeStarted(CascadeGraph graph);
+
+	/* Called after seeding with the ids of the nodes set to A, nodes[0..count-1]. */
+	public void nodesSeeded(int[] nodes, int count);
+
+	/* Called after each generation with the ids of the nodes that changed to A,
+	 * changed[0..count-1].  Not called for the generation that reaches equilibrium. */
+	public void generationCompleted(int generation, int[] changed, int count);
+
+	/* Called after a seed is removed (GraphCascader.RemoveSeed) with the ids of the
+	 * nodes that changed back to B, nodes[0..count-1]. */
+	public void nodesReset(int[] nodes, int count);
+
+	/* Called when the cascade stops, at equilibrium or after the last generation, and
+	 * after each AddSeed or RemoveSeed. */
+	public void cascadeFinished(int totalChanged, int generations);
+}
@@ -0,0 +1,706 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import util.ParallelLoop;
+
+/**
+ * @author kguajardo
+ *
+ * CascadeSimulator: Runs the A/B cascade of GraphCascader on an IndexedGraph with
+ * flat arrays instead of HashSets and per vertex lookups.
+ *
+ * State: one bit per vertex index in a long[] (set means A), and for every vertex the
+ * number of its neighbors that are A in an int[].  When a vertex flips to A the
+ * counters of the vertices that have it as a neighbor (its in-neighbors, the rows of
+ * the transposed graph) go up by one, so the threshold test of a vertex is O(1)
+ * instead of a scan of its neighbors.
+ *
+ * Each generation (step) works like GraphCascader always did: the candidates are the
+ * neighbors of the vertices that flipped in the last generation (every vertex with an
+ * in-neighbor in the first generation), all flips are decided from the state before
+ * the generation, then applied.  A generation costs O(edges out of and into the
+ * flipped vertices), and the frontier, candidate and stamp arrays are allocated once.
+ *
+ * Threshold: v changes to A when p >= b/(a+b), p the fraction of its D neighbors that
+ * are A.  It is tested exactly in integers as numA*(a+b) >= b*D.  A vertex with no
+ * neighbors has p = 0 and changes only when b is 0.
+ *
+ * Parallel mode (setParallelism): a generation is split over a fork/join pool in
+ * three phases with a barrier between them, so no locks or atomics are needed.
+ *   1. decide: the frontier is cut into pieces, each piece tests its candidates
+ *      against the counters and state of the last generation (nothing writes them in
+ *      this phase) and drops the ones that flip into a bucket per owner.
+ *   2. flip: the vertex indices are cut into owner ranges (multiples of 64, so each
+ *      owner has its own words of the state bitset).  Each owner drops duplicates,
+ *      sets the state bits of its flips and buckets their in-neighbors by owner.
+ *   3. count: each owner adds the counter increments bucketed for its range.
+ * Buckets are read in piece order and the next frontier is the owners' flips in
+ * owner order, so the result is the same on every run.  The A state and counters
+ * after each generation are identical to the sequential run (see
+ * matchesSequential); only the order of getChanged() differs.
+ *
+ * Incremental mode (addSeed, removeSeed): once the cascade is at equilibrium, seeds
+ * can be added or removed without running the generations again.  Adding a seed can
+ * only turn more vertices to A, so the new A vertices are found by a worklist from
+ * the seed: when a vertex flips, its in-neighbors (the vertices whose counters went
+ * up) are tested.  Removing a seed can only affect the vertices whose A depends on
+ * it, the seed and the non-seed A vertices that reach it through non-seed A vertices
+ * (walking in-neighbor rows).  That region goes back to B and the worklist turns back
+ * to A the ones still supported by the rest; nothing outside the region changes.
+ * Both cost the part of the graph the change reaches.
+ *
+ * The incremental result is the equilibrium with no generation limit: every B vertex
+ * below its threshold.  step() only tests the neighbors of the vertices that flipped,
+ * while a flip raises the counters of its in-neighbors, so on a directed graph the
+ * cascade can stop with a vertex at its threshold still B.  settle() finishes such a
+ * state with one scan of the vertices and runs before the first addSeed/removeSeed
+ * after step().  On a friendship (symmetric) graph at equilibrium it changes nothing.
+ *
+ */
+public class CascadeSimulator {
+
+	private final IndexedGraph m_Graph;
+
+	//transposed graph: rows are the in-neighbors of each vertex
+	private final IndexedGraph m_Reverse;
+
+	//Reward for switching to a or b
+	private int m_a;
+	private int m_b;
+
+	//bit set: vertex index is A
+	private final long[] m_State;
+
+	//bit set: vertex index was seeded (setA, addSeed), and the number of seeds
+	private final long[] m_Seeds;
+	private int m_NumSeeds;
+
+	//number of neighbors of each vertex that are A
+	private final int[] m_NumNeighborsA;
+
+	//vertices that flipped in the last generation, and the ones flipping in this one
+	private int[] m_Frontier;
+	private int[] m_NextFrontier;
+	private int m_FrontierSize;
+
+	//candidates of the generation, deduplicated with the generation stamp
+	private final int[] m_Candidates;
+	private final int[] m_Stamp;
+
+	//generations run so far
+	private int m_Generation;
+
+	//no B vertex is at its threshold (settle), needed by addSeed and removeSeed
+	private boolean m_Settled;
+
+	private int m_TotalChanged;
+
+	//work of the last step: threshold tests made and edges read (candidates and counters)
+	private long m_NumChecked;
+	private long m_NumEdgesScanned;
+
+	//frontiers smaller than this run sequentially, splitting them costs more than it saves
+	private static final int MIN_PARALLEL_FRONTIER = 1024;
+
+	//number of threads: 1 runs on the calling thread, 0 uses the common fork/join pool
+	private int m_Parallelism;
+	private ForkJoinPool m_Pool;
+	
+	//true if m_Pool was created by setParallelism, and is shut down by close
+	private boolean m_OwnsPool;
+
+	//parallel mode: number of pieces and owners, owner range size, per piece buckets of
+	//flips by owner, per owner flips and buckets of counter increments by owner
+	private int m_NumParts;
+	private int m_OwnerSize;
+	private IntList[][] m_FlipBuckets;
+	private IntList[] m_OwnerFlips;
+	private IntList[][] m_CountBuckets;
+
+	//parallel mode: work of the last step per piece and per owner, added up after
+	private long[] m_PartChecked;
+	private long[] m_PartEdges;
+
+	public CascadeSimulator(IndexedGraph graph){
+		int n = graph.getNumVertices();
+		m_Graph = graph;
+		m_Reverse = graph.transpose();
+		m_a = 1;
+		m_b = 1;
+		m_State = new long[(n + 63) >>> 6];
+		m_Seeds = new long[(n + 63) >>> 6];
+		m_NumNeighborsA = new int[n];
+		m_Frontier = new int[n];
+		m_NextFrontier = new int[n];
+		m_Candidates = new int[n];
+		m_Stamp = new int[n];
+		m_FrontierSize = 0;
+		m_Generation = 0;
+		m_TotalChanged = 0;
+		m_NumSeeds = 0;
+		m_Parallelism = 1;
+	}
+
+	/**
+	 * setParallelism: number of threads for each generation.  1 (default) runs on the
+	 * calling thread, 0 uses the common fork/join pool.  Other values create a pool
+	 * for this simulator, shut down by close.  To run many simulators on the same
+	 * threads, pass one pool to setPool instead.
+	 */
+	public void setParallelism(int threads){
+		if (threads < 0)
+			//bad input
+			return;
+
+		close();
+		m_Parallelism = threads;
+		m_Pool = threads == 0 ? ForkJoinPool.commonPool() : threads > 1 ? new ForkJoinPool(threads) : null;
+		m_OwnsPool = threads > 1;
+		m_FlipBuckets = null;
+	}
+
+	/**
+	 * setPool: runs each generation on pool, owned by the caller (close does not shut it
+	 * down).  null runs on the calling thread.
+	 */
+	public void setPool(ForkJoinPool pool){
+		close();
+		m_Pool = pool;
+		m_Parallelism = pool == null ? 1 : pool.getParallelism();
+		m_FlipBuckets = null;
+	}
+
+	/**
+	 * close: shuts down the pool created by setParallelism, if any.  The simulator runs
+	 * on the calling thread after.
+	 */
+	public void close(){
+		if (m_OwnsPool)
+			m_Pool.shutdown();
+		m_OwnsPool = false;
+		m_Pool = null;
+		m_Parallelism = 1;
+	}
+
+	/**
+	 * setRewards: reward a for switching to A, b for staying B.  Negative values are
+	 * ignored, like GraphCascader.seta/setb.
+	 */
+	public void setRewards(int a, int b){
+		if (a >= 0)
+			m_a = a;
+		if (b >= 0)
+			m_b = b;
+	}
+
+	/**
+	 * loadState: Starts a new cascade from the A/B property of the vertices of graph
+	 * (after seeding).  graph is the graph this simulator's IndexedGraph came from.
+	 */
+	public void loadState(CascadeGraph graph){
+		int n = m_Graph.getNumVertices();
+		clear();
+		for (int v = 0; v < n; v++){
+			if (graph.getABProperty(m_Graph.getId(v)) == 'A')
+				setA(v);
+		}
+	}
+
+	/**
+	 * storeState: Sets every vertex that is A here to A in graph
+	 */
+	public void storeState(CascadeGraph graph){
+		int n = m_Graph.getNumVertices();
+		for (int v = 0; v < n; v++){
+			if (isA(v))
+				graph.setNodeToA(m_Graph.getId(v));
+		}
+	}
+
+	/**
+	 * clear: every vertex back to B, generation 0
+	 */
+	public void clear(){
+		Arrays.fill(m_State, 0);
+		Arrays.fill(m_Seeds, 0);
+		Arrays.fill(m_NumNeighborsA, 0);
+		Arrays.fill(m_Stamp, 0);
+		m_FrontierSize = 0;
+		m_Generation = 0;
+		m_TotalChanged = 0;
+		m_NumSeeds = 0;
+		m_Settled = false;
+	}
+
+	/**
+	 * setA: Seeds the vertex at index as A before the cascade starts
+	 */
+	public void setA(int index){
+		if (isA(index))
+			return;
+		m_Seeds[index >>> 6] |= 1L << index;
+		m_NumSeeds++;
+		m_Settled = false;
+		flip(index);
+	}
+
+	/**
+	 * settle: Brings the cascade to the equilibrium with no generation limit, turning to
+	 * A every B vertex at its threshold and propagating.  Does nothing if the state is
+	 * already settled.  getChanged() then holds the vertices that changed to A.
+	 * @return number of vertices that changed to A
+	 */
+	public int settle(){
+		int size = 0;
+		if (!m_Settled){
+			int n = m_Graph.getNumVertices();
+			for (int v = 0; v < n; v++){
+				if (!isA(v) && willChangeToA(v)){
+					flip(v);
+					m_Frontier[size++] = v;
+				}
+			}
+			size = propagate(m_Frontier, size);
+			m_TotalChanged += size;
+			m_Settled = true;
+		}
+		m_FrontierSize = size;
+		return size;
+	}
+
+	/**
+	 * addSeed: Seeds the vertex at index as A once the cascade is at equilibrium, and
+	 * brings it to the new equilibrium by propagating only from the seed.
+	 * getChanged() then holds the seed and the vertices that changed to A.  Call settle
+	 * first to see its changes too, it runs here otherwise.
+	 * @return number of vertices that changed to A, the seed not counted
+	 */
+	public int addSeed(int index){
+		settle();
+		if (isSeed(index))
+			return 0;
+		m_Seeds[index >>> 6] |= 1L << index;
+		m_NumSeeds++;
+
+		if (isA(index)){
+			//already A from the cascade, only counted as a seed now
+			m_TotalChanged--;
+			m_FrontierSize = 0;
+			return 0;
+		}
+
+		flip(index);
+		m_Frontier[0] = index;
+		m_FrontierSize = propagate(m_Frontier, 1);
+		m_TotalChanged += m_FrontierSize - 1;
+		return m_FrontierSize - 1;
+	}
+
+	/**
+	 * removeSeed: Unseeds the vertex at index once the cascade is at equilibrium, and
+	 * brings it to the new equilibrium by recomputing only the region that depended on
+	 * the seed.  getChanged() then holds the vertices that changed back to B, the seed
+	 * included if it did.  Call settle first to see its changes, it runs here otherwise.
+	 * @return number of vertices that changed back to B, the seed not counted
+	 */
+	public int removeSeed(int index){
+		settle();
+		if (!isSeed(index))
+			return 0;
+		m_Seeds[index >>> 6] &= ~(1L << index);
+		m_NumSeeds--;
+
+		//Region: the seed and the non-seed A vertices that depend on it, all set to B
+		int[] region = m_NextFrontier;
+		int regionSize = 0;
+		m_State[index >>> 6] &= ~(1L << index);
+		region[regionSize++] = index;
+		for (int r = 0; r < regionSize; r++){
+			int v = region[r];
+			for (int e = m_Reverse.getEdgeStart(v); e < m_Reverse.getEdgeEnd(v); e++){
+				int u = m_Reverse.getEdgeTarget(e);
+				m_NumNeighborsA[u]--;
+				if (isA(u) && !isSeed(u)){
+					m_State[u >>> 6] &= ~(1L << u);
+					region[regionSize++] = u;
+				}
+			}
+		}
+		m_TotalChanged -= regionSize - 1;
+
+		//Turn back to A the region vertices the rest of the A vertices still support
+		int[] flipped = m_Candidates;
+		int numFlipped = 0;
+		for (int r = 0; r < regionSize; r++){
+			int v = region[r];
+			if (!isA(v) && willChangeToA(v)){
+				flip(v);
+				flipped[numFlipped++] = v;
+			}
+		}
+		numFlipped = propagate(flipped, numFlipped);
+		m_TotalChanged += numFlipped;
+
+		//Net change: region vertices left B
+		int numReset = 0;
+		boolean seedReset = false;
+		for (int r = 0; r < regionSize; r++){
+			int v = region[r];
+			if (!isA(v)){
+				m_Frontier[numReset++] = v;
+				seedReset |= v == index;
+			}
+		}
+		m_FrontierSize = numReset;
+		return seedReset ? numReset - 1 : numReset;
+	}
+
+	/**
+	 * propagate: Worklist from the vertices list[0..size-1] that just flipped to A:
+	 * tests the in-neighbors of every flipped vertex and flips the ones at threshold,
+	 * adding them to list.
+	 * @return size of list, the vertices given and the ones flipped
+	 */
+	private int propagate(int[] list, int size){
+		for (int i = 0; i < size; i++){
+			int v = list[i];
+			for (int e = m_Reverse.getEdgeStart(v); e < m_Reverse.getEdgeEnd(v); e++){
+				int u = m_Reverse.getEdgeTarget(e);
+				if (!isA(u) && willChangeToA(u)){
+					flip(u);
+					list[size++] = u;
+				}
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * flip: Sets index to A and counts it for every vertex it is a neighbor of
+	 */
+	private void flip(int index){
+		m_State[index >>> 6] |= 1L << index;
+		for (int e = m_Reverse.getEdgeStart(index); e < m_Reverse.getEdgeEnd(index); e++){
+			m_NumNeighborsA[m_Reverse.getEdgeTarget(e)]++;
+		}
+	}
+
+	public boolean isA(int index){
+		return (m_State[index >>> 6] & (1L << index)) != 0;
+	}
+
+	public boolean isSeed(int index){
+		return (m_Seeds[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * willChangeToA: threshold test of vertex index against the current counters
+	 */
+	private boolean willChangeToA(int index){
+		if (m_a + m_b == 0)
+			//b/(a+b) is undefined, nobody changes
+			return false;
+
+		int D = m_Graph.getEdgeEnd(index) - m_Graph.getEdgeStart(index);
+		if (D == 0)
+			return m_b == 0;
+
+		return (long) m_NumNeighborsA[index] * (m_a + m_b) >= (long) m_b * D;
+	}
+
+	/**
+	 * step: Runs one generation of the cascade
+	 * @return number of vertices that changed to A, 0 when equilibrium is reached
+	 */
+	public int step(){
+		m_Generation++;
+		m_Settled = false;
+
+		int nextSize;
+		if (m_Pool != null && (m_Generation == 1 || m_FrontierSize >= MIN_PARALLEL_FRONTIER))
+			nextSize = stepParallel();
+		else
+			nextSize = stepSequential();
+
+		int[] swap = m_Frontier;
+		m_Frontier = m_NextFrontier;
+		m_NextFrontier = swap;
+		m_FrontierSize = nextSize;
+		m_TotalChanged += nextSize;
+		return nextSize;
+	}
+
+	/**
+	 * stepSequential: one generation on the calling thread, flips go to m_NextFrontier
+	 * @return number of flips
+	 */
+	private int stepSequential(){
+		int n = m_Graph.getNumVertices();
+
+		//Candidates: neighbors of the vertices that changed last generation, every
+		//vertex that is someone's neighbor in the first generation
+		int numCandidates = 0;
+		long edges = 0;
+		if (m_Generation == 1){
+			for (int v = 0; v < n; v++){
+				if (m_Reverse.getEdgeEnd(v) > m_Reverse.getEdgeStart(v))
+					m_Candidates[numCandidates++] = v;
+			}
+		}
+		else {
+			for (int f = 0; f < m_FrontierSize; f++){
+				int v = m_Frontier[f];
+				edges += m_Graph.getEdgeEnd(v) - m_Graph.getEdgeStart(v);
+				for (int e = m_Graph.getEdgeStart(v); e < m_Graph.getEdgeEnd(v); e++){
+					int w = m_Graph.getEdgeTarget(e);
+					if (m_Stamp[w] != m_Generation){
+						m_Stamp[w] = m_Generation;
+						m_Candidates[numCandidates++] = w;
+					}
+				}
+			}
+		}
+
+		//Decide every flip from the state before this generation
+		int nextSize = 0;
+		for (int c = 0; c < numCandidates; c++){
+			int v = m_Candidates[c];
+			if (!isA(v) && willChangeToA(v))
+				m_NextFrontier[nextSize++] = v;
+		}
+
+		//Apply the flips
+		for (int f = 0; f < nextSize; f++){
+			int v = m_NextFrontier[f];
+			edges += m_Reverse.getEdgeEnd(v) - m_Reverse.getEdgeStart(v);
+			flip(v);
+		}
+		m_NumChecked = numCandidates;
+		m_NumEdgesScanned = edges;
+		return nextSize;
+	}
+
+	/**
+	 * stepParallel: one generation in the three phases described above, flips go to
+	 * m_NextFrontier
+	 * @return number of flips
+	 */
+	private int stepParallel(){
+		int n = m_Graph.getNumVertices();
+		if (m_FlipBuckets == null)
+			createBuckets(n);
+		int parts = m_NumParts;
+		int generation = m_Generation;
+
+		//1. decide: pieces of the frontier (of all vertices in the first generation)
+		int work = generation == 1 ? n : m_FrontierSize;
+		ParallelLoop.forRange(m_Pool, 0, parts, 1, (first, last) -> {
+			for (int p = first; p < last; p++){
+				IntList[] buckets = m_FlipBuckets[p];
+				int from = (int) ((long) work * p / parts);
+				int to = (int) ((long) work * (p + 1) / parts);
+				long checked = 0;
+				long edges = 0;
+				if (generation == 1){
+					for (int v = from; v < to; v++){
+						if (m_Reverse.getEdgeEnd(v) > m_Reverse.getEdgeStart(v)){
+							checked++;
+							if (!isA(v) && willChangeToA(v))
+								buckets[v / m_OwnerSize].add(v);
+						}
+					}
+				}
+				else {
+					for (int f = from; f < to; f++){
+						int v = m_Frontier[f];
+						edges += m_Graph.getEdgeEnd(v) - m_Graph.getEdgeStart(v);
+						for (int e = m_Graph.getEdgeStart(v); e < m_Graph.getEdgeEnd(v); e++){
+							int w = m_Graph.getEdgeTarget(e);
+							if (!isA(w) && willChangeToA(w))
+								buckets[w / m_OwnerSize].add(w);
+						}
+					}
+					//a neighbor is tested once per edge to it, no deduplication here
+					checked = edges;
+				}
+				m_PartChecked[p] = checked;
+				m_PartEdges[p] = edges;
+			}
+		});
+
+		//2. flip: each owner drops duplicates and sets its state bits
+		ParallelLoop.forRange(m_Pool, 0, parts, 1, (first, last) -> {
+			for (int o = first; o < last; o++){
+				IntList flips = m_OwnerFlips[o];
+				flips.clear();
+				for (int p = 0; p < parts; p++){
+					IntList bucket = m_FlipBuckets[p][o];
+					for (int i = 0; i < bucket.m_Size; i++){
+						int v = bucket.m_Values[i];
+						if (m_Stamp[v] != generation){
+							m_Stamp[v] = generation;
+							m_State[v >>> 6] |= 1L << v;
+							flips.add(v);
+						}
+					}
+					bucket.clear();
+				}
+				IntList[] counts = m_CountBuckets[o];
+				for (int i = 0; i < flips.m_Size; i++){
+					int v = flips.m_Values[i];
+					m_PartEdges[o] += m_Reverse.getEdgeEnd(v) - m_Reverse.getEdgeStart(v);
+					for (int e = m_Reverse.getEdgeStart(v); e < m_Reverse.getEdgeEnd(v); e++){
+						int u = m_Reverse.getEdgeTarget(e);
+						counts[u / m_OwnerSize].add(u);
+					}
+				}
+			}
+		});
+
+		//3. count: each owner adds the increments for its range
+		ParallelLoop.forRange(m_Pool, 0, parts, 1, (first, last) -> {
+			for (int o = first; o < last; o++){
+				for (int p = 0; p < parts; p++){
+					IntList bucket = m_CountBuckets[p][o];
+					for (int i = 0; i < bucket.m_Size; i++){
+						m_NumNeighborsA[bucket.m_Values[i]]++;
+					}
+					bucket.clear();
+				}
+			}
+		});
+
+		//next frontier: flips in owner order
+		int nextSize = 0;
+		m_NumChecked = 0;
+		m_NumEdgesScanned = 0;
+		for (int o = 0; o < parts; o++){
+			System.arraycopy(m_OwnerFlips[o].m_Values, 0, m_NextFrontier, nextSize, m_OwnerFlips[o].m_Size);
+			nextSize += m_OwnerFlips[o].m_Size;
+			m_NumChecked += m_PartChecked[o];
+			m_NumEdgesScanned += m_PartEdges[o];
+		}
+		return nextSize;
+	}
+
+	/**
+	 * createBuckets: pieces, owner ranges and buckets for parallel mode
+	 */
+	private void createBuckets(int n){
+		int threads = m_Pool.getParallelism();
+		m_NumParts = Math.max(1, Math.min(4 * threads, (n + 63) / 64));
+		//owner ranges are whole words of the state bitset
+		int words = (n + 63) / 64;
+		m_OwnerSize = Math.max(1, (words + m_NumParts - 1) / m_NumParts) * 64;
+
+		m_FlipBuckets = new IntList[m_NumParts][m_NumParts];
+		m_CountBuckets = new IntList[m_NumParts][m_NumParts];
+		m_OwnerFlips = new IntList[m_NumParts];
+		m_PartChecked = new long[m_NumParts];
+		m_PartEdges = new long[m_NumParts];
+		for (int p = 0; p < m_NumParts; p++){
+			m_OwnerFlips[p] = new IntList();
+			for (int o = 0; o < m_NumParts; o++){
+				m_FlipBuckets[p][o] = new IntList();
+				m_CountBuckets[p][o] = new IntList();
+			}
+		}
+	}
+
+	/**
+	 * matchesSequential: Runs the cascade from seeds sequentially and with parallelism
+	 * threads, and compares the A state and the neighbor counters after every generation.
+	 * For validating the parallel mode.
+	 *
+	 * @param seeds : vertex indices seeded as A
+	 * @return true if both runs are identical
+	 */
+	public static boolean matchesSequential(IndexedGraph graph, int a, int b, int[] seeds,
+			int parallelism, int maxGenerations){
+		CascadeSimulator sequential = new CascadeSimulator(graph);
+		CascadeSimulator parallel = new CascadeSimulator(graph);
+		sequential.setRewards(a, b);
+		parallel.setRewards(a, b);
+		parallel.setParallelism(parallelism);
+		for (int seed : seeds){
+			sequential.setA(seed);
+			parallel.setA(seed);
+		}
+
+		try {
+			for (int gen = 0; gen < maxGenerations; gen++){
+				int changed = sequential.step();
+				if (parallel.step() != changed)
+					return false;
+				if (!Arrays.equals(sequential.m_State, parallel.m_State)
+						|| !Arrays.equals(sequential.m_NumNeighborsA, parallel.m_NumNeighborsA))
+					return false;
+				if (changed == 0)
+					break;
+			}
+			return true;
+		}
+		finally {
+			parallel.close();
+		}
+	}
+
+	/* Vertex indices that changed in the last generation (or addSeed, removeSeed), the
+	 * first getNumChanged() entries.  The array is reused by the next step, do not keep it. */
+	public int[] getChanged(){
+		return m_Frontier;
+	}
+
+	public int getNumChanged(){
+		return m_FrontierSize;
+	}
+
+	/* Number of vertices that changed to A in all generations, seeds not counted */
+	public int getTotalChanged(){
+		return m_TotalChanged;
+	}
+
+	public int getNumSeeds(){
+		return m_NumSeeds;
+	}
+
+	/* Threshold tests made by the last step.  In parallel mode a candidate is tested
+	 * once per edge from the frontier, in sequential mode once. */
+	public long getNumChecked(){
+		return m_NumChecked;
+	}
+
+	/* Edges read by the last step, to find the candidates and to update the counters */
+	public long getNumEdgesScanned(){
+		return m_NumEdgesScanned;
+	}
+
+	public int getGeneration(){
+		return m_Generation;
+	}
+
+	public IndexedGraph getGraph(){
+		return m_Graph;
+	}
+
+	/**
+	 * IntList: growable int array for the parallel buckets, cleared and reused every
+	 * generation
+	 */
+	private static class IntList {
+		private int[] m_Values = new int[16];
+		private int m_Size;
+
+		void add(int value){
+			if (m_Size == m_Values.length)
+				m_Values = Arrays.copyOf(m_Values, 2 * m_Size);
+			m_Values[m_Size++] = value;
+		}
+
+		void clear(){
+			m_Size = 0;
+		}
+	}
+}
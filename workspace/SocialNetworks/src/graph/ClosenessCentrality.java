@@ -0,0 +1,58 @@
+package graph;
+
+/**
+ * @author kguajardo
+ *
+ * ClosenessCentrality: Computes the closeness value of every vertex of an IndexedGraph,
+ * 						with the searches spread over all cores.
+ *
+ * Closeness = average number of hops from a vertex to every vertex it can reach
+ * (minimum value is more central), the same value RankingNodes always stored.
+ *
+ * The searches run through MultiSourceBFS: 64 sources share each scan of the
+ * adjacency, and the batches are split over a fork/join pool with one set of
+ * search buffers per worker thread.  Results go straight into a shared double[]
+ * indexed by vertex index, each batch writing only the entries of its own sources.
+ *
+ */
+public class ClosenessCentrality {
+
+	private final IndexedGraph m_Graph;
+
+	//number of worker threads, 0 uses the common fork/join pool
+	private int m_Parallelism;
+
+	public ClosenessCentrality(IndexedGraph graph){
+		m_Graph = graph;
+		m_Parallelism = 0;
+	}
+
+	/**
+	 * compute: closeness of every vertex
+	 * @return closeness per vertex index.  NaN for a vertex that reaches no other vertex.
+	 */
+	public double[] compute(){
+		int n = m_Graph.getNumVertices();
+		long[] totalHops = new long[n];
+		int[] numPaths = new int[n];
+		MultiSourceBFS.runAllSources(m_Graph, m_Parallelism, totalHops, numPaths, null);
+
+		double[] closeness = new double[n];
+		for (int v = 0; v < n; v++){
+			//same precision as the single BFS version, so rankings do not change
+			closeness[v] = (float) totalHops[v] / numPaths[v];
+		}
+		return closeness;
+	}
+
+	/**
+	 * setParallelism: number of threads to use, 0 (default) uses the common pool
+	 */
+	public void setParallelism(int threads){
+		if (threads < 0)
+			//bad input
+			return;
+
+		m_Parallelism = threads;
+	}
+}
@@ -0,0 +1,709 @@
+package graph;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+
+import util.ParallelLoop;
+
+/**
+ * @author kguajardo
+ *
+ * CsrGraph implements an immutable graph in Compressed Sparse Row form.
+ *
+ * Vertex ids are remapped to dense indices 0..n-1 in ascending id order, so the
+ * sorted id array doubles as the id to index map (binary search) and the index to
+ * id map (array lookup).  The outgoing neighbors of index v are stored in
+ * m_targets[m_offsets[v]] .. m_targets[m_offsets[v+1]-1], sorted and without
+ * duplicates.  An edge costs 4 bytes instead of the boxed Integer and HashSet entry
+ * CapVertex needs, which lets large data sets like facebook_ucsd and twitter_higgs
+ * be cascaded in a small heap.
+ *
+ * The structure of the graph can not change after it is built, addVertex and
+ * addEdge throw UnsupportedOperationException.  The cascade property and the
+ * centrality values are stored in per index arrays and can still be updated, so
+ * RankingNodes and GraphCascader run on a CsrGraph the same way as on a CapGraph.
+ *
+ */
+public class CsrGraph implements CascadeGraph, IndexedGraph {
+
+	//sorted vertex ids, the position of an id is its index
+	private final int[] m_ids;
+
+	//edge ranges per index, m_offsets has getNumVertices()+1 entries
+	private final int[] m_offsets;
+
+	//edge targets (indices), grouped by source index
+	private final int[] m_targets;
+
+	//Per vertex values, indexed by vertex index
+	//PropertyAB: bit set means A, clear means B (default)
+	private final BitSet m_PropertyA;
+	private final int[] m_DegCent;
+	private final int[] m_DegCent2Hop;
+	private final double[] m_ClosenessCent;
+
+	//Reversed graph, built the first time it is needed
+	private CsrGraph m_Transpose;
+
+	/**
+	 * Create a CsrGraph from arrays already in CSR form.  The arrays are used as they
+	 * are, not copied.
+	 *
+	 * @param ids : vertex ids in ascending order, no duplicates
+	 * @param offsets : ids.length+1 edge offsets, offsets[0] is 0
+	 * @param targets : edge target indices, sorted and unique within each row
+	 */
+	public CsrGraph(int[] ids, int[] offsets, int[] targets){
+		m_ids = ids;
+		m_offsets = offsets;
+		m_targets = targets;
+
+		int n = ids.length;
+		m_PropertyA = new BitSet(n);
+		m_DegCent = new int[n];
+		m_DegCent2Hop = new int[n];
+		m_ClosenessCent = new double[n];
+	}
+
+	/**
+	 * fromEdges: Builds a CsrGraph from an edge list.  The vertices are the ids that
+	 * appear in the edge list, duplicate edges are dropped.
+	 *
+	 * @param from : source id of each edge
+	 * @param to : target id of each edge
+	 * @param numEdges : number of entries of from and to that are used
+	 * @return the new graph
+	 */
+	public static CsrGraph fromEdges(int[] from, int[] to, int numEdges){
+		int[] ids = new int[2 * numEdges];
+		System.arraycopy(from, 0, ids, 0, numEdges);
+		System.arraycopy(to, 0, ids, numEdges, numEdges);
+
+		return fromEdges(sortedUnique(ids, ids.length), from, to, numEdges);
+	}
+
+	/**
+	 * fromEdges: Builds a CsrGraph from edge lists parsed in parallel (one list per
+	 * chunk of the file), with every pass of the build spread over one fork/join pool:
+	 * the ids are sorted with parallelSort, degrees are counted with atomic increments,
+	 * offsets come from parallelPrefix, and rows are filled, sorted and deduplicated in
+	 * parallel.  The result is the same graph fromEdges builds from the lists joined.
+	 *
+	 * @param from : source ids, one array per part
+	 * @param to : target ids, one array per part
+	 * @param numEdges : number of entries used in each part
+	 * @param parallelism : number of threads, 0 uses the common fork/join pool
+	 * @return the new graph
+	 */
+	public static CsrGraph fromEdges(int[][] from, int[][] to, int[] numEdges, int parallelism){
+		//one pool for every pass.  The parallel sort and prefix sums fork their tasks into
+		//the pool they are called from, so they run in it too.
+		ForkJoinPool pool = parallelism > 0 ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+		try {
+			int parts = numEdges.length;
+			int[] partStart = new int[parts + 1];
+			for (int p = 0; p < parts; p++){
+				partStart[p + 1] = Math.addExact(partStart[p], numEdges[p]);
+			}
+			int total = partStart[parts];
+
+			//Vertex ids: every end point, sorted and deduplicated
+			int[] endPoints = new int[Math.multiplyExact(2, total)];
+			ParallelLoop.forRange(pool, 0, parts, 1, (first, last) -> {
+				for (int p = first; p < last; p++){
+					System.arraycopy(from[p], 0, endPoints, partStart[p], numEdges[p]);
+					System.arraycopy(to[p], 0, endPoints, total + partStart[p], numEdges[p]);
+				}
+			});
+			pool.submit(() -> Arrays.parallelSort(endPoints)).join();
+			int[] ids = unique(endPoints, endPoints.length);
+			int n = ids.length;
+
+			//Map ids to indices and count degrees
+			int[] src = new int[total];
+			int[] dst = new int[total];
+			AtomicIntegerArray degree = new AtomicIntegerArray(n + 1);
+			ParallelLoop.forRange(pool, 0, parts, 1, (first, last) -> {
+				for (int p = first; p < last; p++){
+					for (int e = 0; e < numEdges[p]; e++){
+						int s = Arrays.binarySearch(ids, from[p][e]);
+						src[partStart[p] + e] = s;
+						dst[partStart[p] + e] = Arrays.binarySearch(ids, to[p][e]);
+						degree.incrementAndGet(s + 1);
+					}
+				}
+			});
+
+			//Prefix sum the degrees into offsets and fill the rows
+			int[] offsets = new int[n + 1];
+			for (int v = 0; v <= n; v++){
+				offsets[v] = degree.get(v);
+			}
+			pool.submit(() -> Arrays.parallelPrefix(offsets, Integer::sum)).join();
+			AtomicIntegerArray cursor = new AtomicIntegerArray(Arrays.copyOf(offsets, n));
+			int[] targets = new int[total];
+			ParallelLoop.forRange(pool, 0, total, 1 << 16, (first, last) -> {
+				for (int e = first; e < last; e++){
+					targets[cursor.getAndIncrement(src[e])] = dst[e];
+				}
+			});
+
+			//Sort each row and count its unique targets
+			int[] rowSize = new int[n + 1];
+			ParallelLoop.forRange(pool, 0, n, 1 << 12, (first, last) -> {
+				for (int v = first; v < last; v++){
+					Arrays.sort(targets, offsets[v], offsets[v + 1]);
+					int count = 0;
+					for (int e = offsets[v]; e < offsets[v + 1]; e++){
+						if (e == offsets[v] || targets[e] != targets[e - 1])
+							count++;
+					}
+					rowSize[v + 1] = count;
+				}
+			});
+			pool.submit(() -> Arrays.parallelPrefix(rowSize, Integer::sum)).join();
+			if (rowSize[n] == total)
+				return new CsrGraph(ids, offsets, targets);
+
+			//Duplicate edges: compact the rows into a new array
+			int[] compact = new int[rowSize[n]];
+			ParallelLoop.forRange(pool, 0, n, 1 << 12, (first, last) -> {
+				for (int v = first; v < last; v++){
+					int write = rowSize[v];
+					for (int e = offsets[v]; e < offsets[v + 1]; e++){
+						if (e == offsets[v] || targets[e] != targets[e - 1])
+							compact[write++] = targets[e];
+					}
+				}
+			});
+			return new CsrGraph(ids, rowSize, compact);
+		}
+		finally {
+			if (pool != ForkJoinPool.commonPool())
+				pool.shutdown();
+		}
+	}
+
+	/**
+	 * fromGraph: Takes a CSR snapshot of another CascadeGraph (for example a CapGraph).
+	 * The structure and the cascade property of each vertex are copied.
+	 *
+	 * @param graph : graph to copy
+	 * @return the new graph
+	 */
+	public static CsrGraph fromGraph(CascadeGraph graph){
+		int[] ids = new int[graph.getNumVertices()];
+		int count = 0;
+		for (int v : graph.getVertices()){
+			ids[count++] = v;
+		}
+		Arrays.sort(ids);
+
+		final int[] from = new int[graph.getNumEdges()];
+		final int[] to = new int[graph.getNumEdges()];
+		final int[] numEdges = new int[1];
+		for (final int v : ids){
+			graph.forEachNeighbor(v, n -> {
+				from[numEdges[0]] = v;
+				to[numEdges[0]] = n;
+				numEdges[0]++;
+			});
+		}
+
+		CsrGraph csr = fromEdges(ids, from, to, numEdges[0]);
+		for (int index = 0; index < ids.length; index++){
+			if (graph.getABProperty(ids[index]) == 'A')
+				csr.m_PropertyA.set(index);
+		}
+		return csr;
+	}
+
+	/**
+	 * fromEdges: Builds a CsrGraph over a known set of vertices.  Edges with an end
+	 * point that is not in ids are skipped, like CapGraph.addEdge does.
+	 *
+	 * @param ids : vertex ids in ascending order, no duplicates
+	 */
+	private static CsrGraph fromEdges(int[] ids, int[] from, int[] to, int numEdges){
+		int n = ids.length;
+		int[] src = new int[numEdges];
+		int[] dst = new int[numEdges];
+		int count = 0;
+
+		for (int e = 0; e < numEdges; e++){
+			int s = Arrays.binarySearch(ids, from[e]);
+			int d = Arrays.binarySearch(ids, to[e]);
+			if (s < 0 || d < 0)
+				continue;
+			src[count] = s;
+			dst[count] = d;
+			count++;
+		}
+
+		//Count degrees, prefix sum them into offsets and fill the rows
+		int[] offsets = new int[n + 1];
+		for (int e = 0; e < count; e++){
+			offsets[src[e] + 1]++;
+		}
+		for (int v = 0; v < n; v++){
+			offsets[v + 1] += offsets[v];
+		}
+		int[] cursor = Arrays.copyOf(offsets, n);
+		int[] targets = new int[count];
+		for (int e = 0; e < count; e++){
+			targets[cursor[src[e]]++] = dst[e];
+		}
+
+		return new CsrGraph(ids, offsets, sortRows(n, offsets, targets));
+	}
+
+	/**
+	 * sortRows: Sorts every row and removes duplicate edges, compacting the rows in
+	 * place.  offsets is updated to the compacted positions.
+	 *
+	 * @return targets, trimmed to the number of unique edges
+	 */
+	private static int[] sortRows(int n, int[] offsets, int[] targets){
+		int write = 0;
+		int start = 0;
+		for (int v = 0; v < n; v++){
+			int end = offsets[v + 1];
+			Arrays.sort(targets, start, end);
+			offsets[v] = write;
+			for (int e = start; e < end; e++){
+				if (e == start || targets[e] != targets[e - 1])
+					targets[write++] = targets[e];
+			}
+			start = end;
+		}
+		offsets[n] = write;
+
+		return write == targets.length ? targets : Arrays.copyOf(targets, write);
+	}
+
+	/**
+	 * sortedUnique: sorts the first count values and returns them without duplicates
+	 */
+	private static int[] sortedUnique(int[] values, int count){
+		Arrays.sort(values, 0, count);
+		return unique(values, count);
+	}
+
+	/**
+	 * unique: the first count values, already sorted, without duplicates
+	 */
+	private static int[] unique(int[] values, int count){
+		int write = 0;
+		for (int i = 0; i < count; i++){
+			if (i == 0 || values[i] != values[i - 1])
+				values[write++] = values[i];
+		}
+		return Arrays.copyOf(values, write);
+	}
+
+	/**
+	 * addVertex: not supported, the structure of a CsrGraph is fixed when it is built.
+	 */
+	@Override
+	public void addVertex(int num) {
+		throw new UnsupportedOperationException("CsrGraph is immutable");
+	}
+
+	/**
+	 * addEdge: not supported, the structure of a CsrGraph is fixed when it is built.
+	 */
+	@Override
+	public void addEdge(int from, int to) {
+		throw new UnsupportedOperationException("CsrGraph is immutable");
+	}
+
+	/**
+	 * getEgonet: the center node, its neighbors and all edges between them.
+	 * If center is not in the graph, returns an empty graph.
+	 */
+	@Override
+	public Graph getEgonet(int center) {
+		int c = getIndex(center);
+		if (c < 0)
+			return new CsrGraph(new int[0], new int[1], new int[0]);
+
+		//members in ascending index order keeps the subgraph ids sorted
+		int[] members = new int[getEdgeEnd(c) - getEdgeStart(c) + 1];
+		int count = 0;
+		members[count++] = c;
+		for (int e = getEdgeStart(c); e < getEdgeEnd(c); e++){
+			if (m_targets[e] != c)
+				members[count++] = m_targets[e];
+		}
+		Arrays.sort(members, 0, count);
+
+		int[] localIndex = new int[getNumVertices()];
+		Arrays.fill(localIndex, -1);
+		return inducedSubgraph(this, members, 0, count, localIndex);
+	}
+
+	/**
+	 * getSCCs: Strongly Connected Components of the graph, each one as a CsrGraph.
+	 * The components are found with StronglyConnectedComponents, then each subgraph
+	 * is built from its members in one pass over their edges.
+	 */
+	@Override
+	public List<Graph> getSCCs() {
+		StronglyConnectedComponents scc = new StronglyConnectedComponents(this);
+		int numComponents = scc.getNumComponents();
+		int[] start = new int[numComponents + 1];
+		int[] members = scc.getMembersByComponent(start);
+
+		List<Graph> SCCList = new ArrayList<Graph>(numComponents);
+		int[] localIndex = new int[getNumVertices()];
+		Arrays.fill(localIndex, -1);
+		for (int c = 0; c < numComponents; c++){
+			SCCList.add(inducedSubgraph(this, members, start[c], start[c + 1], localIndex));
+		}
+		return SCCList;
+	}
+
+	/**
+	 * getLargestSCC: The SCC with the most vertices, without building the others.
+	 */
+	public CsrGraph getLargestSCC(){
+		StronglyConnectedComponents scc = new StronglyConnectedComponents(this);
+		int largest = scc.getLargestComponent();
+		if (largest < 0)
+			return new CsrGraph(new int[0], new int[1], new int[0]);
+
+		int[] members = scc.getMembers(largest);
+		int[] localIndex = new int[getNumVertices()];
+		Arrays.fill(localIndex, -1);
+		return inducedSubgraph(this, members, 0, members.length, localIndex);
+	}
+
+	/**
+	 * inducedSubgraph: Builds the subgraph of graph made of the given vertices and
+	 * every edge between them.  Also used by MappedGraph, its subgraphs are CsrGraphs.
+	 *
+	 * @param members : vertex indices in ascending order, members[from..to-1] are used
+	 * @param localIndex : scratch array of getNumVertices() entries, all -1.  It is
+	 *                     left all -1 again when this returns.
+	 */
+	static CsrGraph inducedSubgraph(IndexedGraph graph, int[] members, int from, int to, int[] localIndex){
+		int size = to - from;
+		int[] ids = new int[size];
+		for (int i = 0; i < size; i++){
+			ids[i] = graph.getId(members[from + i]);
+			localIndex[members[from + i]] = i;
+		}
+
+		//rows stay sorted because local indices keep the global order
+		int[] offsets = new int[size + 1];
+		int count = 0;
+		for (int i = 0; i < size; i++){
+			int v = members[from + i];
+			for (int e = graph.getEdgeStart(v); e < graph.getEdgeEnd(v); e++){
+				if (localIndex[graph.getEdgeTarget(e)] >= 0)
+					count++;
+			}
+			offsets[i + 1] = count;
+		}
+		int[] targets = new int[count];
+		count = 0;
+		for (int i = 0; i < size; i++){
+			int v = members[from + i];
+			for (int e = graph.getEdgeStart(v); e < graph.getEdgeEnd(v); e++){
+				int local = localIndex[graph.getEdgeTarget(e)];
+				if (local >= 0)
+					targets[count++] = local;
+			}
+		}
+
+		for (int i = from; i < to; i++){
+			localIndex[members[i]] = -1;
+		}
+		return new CsrGraph(ids, offsets, targets);
+	}
+
+	/**
+	 * transpose: Creates the graph with every edge reversed.  Indices are the same as
+	 * in this graph.  The result is built once and cached.
+	 */
+	@Override
+	public CsrGraph transpose(){
+		if (m_Transpose != null)
+			return m_Transpose;
+
+		int n = getNumVertices();
+		int[] offsets = new int[n + 1];
+		for (int e = 0; e < m_targets.length; e++){
+			offsets[m_targets[e] + 1]++;
+		}
+		for (int v = 0; v < n; v++){
+			offsets[v + 1] += offsets[v];
+		}
+		//walking sources in ascending order keeps every reversed row sorted
+		int[] cursor = Arrays.copyOf(offsets, n);
+		int[] targets = new int[m_targets.length];
+		for (int v = 0; v < n; v++){
+			for (int e = m_offsets[v]; e < m_offsets[v + 1]; e++){
+				targets[cursor[m_targets[e]]++] = v;
+			}
+		}
+
+		m_Transpose = new CsrGraph(m_ids, offsets, targets);
+		m_Transpose.m_Transpose = this;
+		return m_Transpose;
+	}
+
+	/**
+	 * isSymmetric: true if every edge has its reverse edge, as in the undirected
+	 * friendship graphs.  Compares the graph with its transpose when it is built (both
+	 * have sorted rows), else looks up each reverse edge in its sorted row, so no
+	 * transpose is built just for the answer.
+	 */
+	@Override
+	public boolean isSymmetric(){
+		if (m_Transpose != null)
+			return Arrays.equals(m_offsets, m_Transpose.m_offsets) && Arrays.equals(m_targets, m_Transpose.m_targets);
+
+		for (int v = 0; v < getNumVertices(); v++){
+			for (int e = m_offsets[v]; e < m_offsets[v + 1]; e++){
+				int w = m_targets[e];
+				if (Arrays.binarySearch(m_targets, m_offsets[w], m_offsets[w + 1], v) < 0)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/** (non-Javadoc)
+	 * @see graph.Graph#exportGraph()
+	 */
+	@Override
+	public HashMap<Integer, HashSet<Integer>> exportGraph() {
+		HashMap<Integer, HashSet<Integer>> map = new HashMap<Integer, HashSet<Integer>>();
+		for (int v = 0; v < getNumVertices(); v++){
+			map.put(m_ids[v], getNeighbors(m_ids[v]));
+		}
+		return map;
+	}
+
+	/**
+	 * Index level access (IndexedGraph)
+	 */
+
+	/* A CsrGraph is its own CSR form */
+	@Override
+	public IndexedGraph getIndexedGraph(){
+		return this;
+	}
+
+	@Override
+	public int getIndex(int id){
+		int index = Arrays.binarySearch(m_ids, id);
+		return index < 0 ? -1 : index;
+	}
+
+	@Override
+	public int getId(int index){
+		return m_ids[index];
+	}
+
+	@Override
+	public int getEdgeStart(int index){
+		return m_offsets[index];
+	}
+
+	@Override
+	public int getEdgeEnd(int index){
+		return m_offsets[index + 1];
+	}
+
+	@Override
+	public int getEdgeTarget(int edge){
+		return m_targets[edge];
+	}
+
+	/**
+	 * Getters and setters by vertex id (CascadeGraph)
+	 */
+
+	@Override
+	public int getNumVertices(){
+		return m_ids.length;
+	}
+
+	@Override
+	public int getNumEdges(){
+		return m_targets.length;
+	}
+
+	@Override
+	public Set<Integer> getVertices(){
+		//view over the id array, no copy
+		return new AbstractSet<Integer>(){
+			@Override
+			public Iterator<Integer> iterator(){
+				return new Iterator<Integer>(){
+					private int m_next = 0;
+
+					@Override
+					public boolean hasNext(){
+						return m_next < m_ids.length;
+					}
+
+					@Override
+					public Integer next(){
+						if (m_next >= m_ids.length)
+							throw new NoSuchElementException();
+						return m_ids[m_next++];
+					}
+				};
+			}
+
+			@Override
+			public boolean contains(Object o){
+				return o instanceof Integer && getIndex((Integer) o) >= 0;
+			}
+
+			@Override
+			public int size(){
+				return m_ids.length;
+			}
+		};
+	}
+
+	@Override
+	public HashSet<Integer> getNeighbors(int vertex){
+		int v = getIndex(vertex);
+		if (v < 0)
+			return null;
+
+		HashSet<Integer> neighbors = new HashSet<Integer>();
+		for (int e = m_offsets[v]; e < m_offsets[v + 1]; e++){
+			neighbors.add(m_ids[m_targets[e]]);
+		}
+		return neighbors;
+	}
+
+	@Override
+	public void forEachNeighbor(int vertex, IntConsumer action){
+		int v = getIndex(vertex);
+		if (v < 0)
+			return;
+
+		for (int e = m_offsets[v]; e < m_offsets[v + 1]; e++){
+			action.accept(m_ids[m_targets[e]]);
+		}
+	}
+
+	@Override
+	public int degree(int vertex){
+		int v = getIndex(vertex);
+		if (v < 0)
+			return -1;
+
+		return m_offsets[v + 1] - m_offsets[v];
+	}
+
+	@Override
+	public boolean hasEdge(int from, int to){
+		int f = getIndex(from);
+		int t = getIndex(to);
+		if (f < 0 || t < 0)
+			return false;
+
+		//rows are sorted
+		return Arrays.binarySearch(m_targets, m_offsets[f], m_offsets[f + 1], t) >= 0;
+	}
+
+	@Override
+	public char getABProperty(int v){
+		int index = getIndex(v);
+		if (index < 0)
+			return '\0';
+
+		return m_PropertyA.get(index) ? 'A' : 'B';
+	}
+
+	@Override
+	public void setNodeToA(int v){
+		int index = getIndex(v);
+		if (index < 0)
+			return;
+
+		m_PropertyA.set(index);
+	}
+
+	@Override
+	public void setNodeToB(int v){
+		int index = getIndex(v);
+		if (index < 0)
+			return;
+
+		m_PropertyA.clear(index);
+	}
+
+	@Override
+	public void setNodeCloseness(int node, double value){
+		int index = getIndex(node);
+		if (index < 0)
+			return;
+
+		m_ClosenessCent[index] = value;
+	}
+
+	@Override
+	public double getNodeCloseness(int node){
+		int index = getIndex(node);
+		if (index < 0)
+			return -1;
+
+		return m_ClosenessCent[index];
+	}
+
+	@Override
+	public void setDeg2Hop(int node, int value){
+		int index = getIndex(node);
+		if (index < 0)
+			return;
+
+		m_DegCent2Hop[index] = value;
+	}
+
+	@Override
+	public int getDeg2Hop(int node){
+		int index = getIndex(node);
+		if (index < 0)
+			return -1;
+
+		return m_DegCent2Hop[index];
+	}
+
+	@Override
+	public void setDegrees(int node, int value){
+		int index = getIndex(node);
+		if (index < 0)
+			return;
+
+		m_DegCent[index] = value;
+	}
+
+	@Override
+	public int getDegrees(int node){
+		int index = getIndex(node);
+		if (index < 0)
+			return -1;
+
+		return m_DegCent[index];
+	}
+}
@@ -0,0 +1,271 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * @author kguajardo
+ *
+ * EccentricityEngine: Finds the radius, diameter and center of an IndexedGraph with
+ * as few BFS runs as the graph allows, instead of a BFS from every vertex.
+ *
+ * The eccentricity of a vertex is the hops to the farthest vertex it reaches, the
+ * value of CapGraph.getMaxDegSeparation.  On an undirected (symmetric) graph it uses
+ * the bounding eccentricities algorithm of Takes and Kosters: after a BFS from v,
+ * every vertex w it reaches at distance d(w) has
+ *     max(ecc(v) - d(w), d(w))  <=  ecc(w)  <=  ecc(v) + d(w)
+ * A vertex is done when its bounds meet, or when its bounds show it can neither
+ * lower the radius (lower bound at least the best radius found) nor raise the
+ * diameter (upper bound at most the largest eccentricity found).  Leaves attached
+ * to the same vertex have the same eccentricity, so only one of them is bounded.
+ * The next BFS alternates between the candidate with the largest upper bound and the
+ * one with the smallest lower bound, the first one is the highest degree vertex (a
+ * 2-sweep start: hubs are central, and the farthest vertex from a hub is on a
+ * diameter).  Social graphs usually need a few dozen BFS runs or less, the
+ * symmetrized twitter_higgs needs 3.
+ *
+ * On a directed graph the bounds do not hold, so every eccentricity is computed
+ * with MultiSourceBFS (64 sources per scan of the graph).
+ *
+ * Results are per vertex index.  The radius, the diameter and the center are exact.
+ * Vertices left with bounds only have a lower bound of at least the radius and an
+ * upper bound of at most the diameter; more than one vertex can have the radius as
+ * eccentricity, getCenter is one of them.
+ *
+ */
+public class EccentricityEngine {
+
+	private final IndexedGraph m_Graph;
+
+	//bounds of the eccentricity of each vertex, equal when it is known
+	private int[] m_Lower;
+	private int[] m_Upper;
+
+	private int m_Radius;
+	private int m_Diameter;
+	private int m_Center;
+	private int m_NumBFS;
+
+	//BFS buffers
+	private int[] m_Distance;
+	private int[] m_Queue;
+
+	public EccentricityEngine(IndexedGraph graph){
+		m_Graph = graph;
+	}
+
+	/**
+	 * compute: finds radius, diameter, center and the eccentricity bounds
+	 */
+	public void compute(){
+		int n = m_Graph.getNumVertices();
+		m_Lower = new int[n];
+		m_Upper = new int[n];
+		m_NumBFS = 0;
+		m_Radius = -1;
+		m_Diameter = -1;
+		m_Center = -1;
+		if (n == 0)
+			return;
+
+		if (m_Graph.isSymmetric())
+			boundEccentricities();
+		else {
+			MultiSourceBFS.runAllSources(m_Graph, 0, null, null, m_Lower);
+			System.arraycopy(m_Lower, 0, m_Upper, 0, n);
+			m_NumBFS = n;
+		}
+
+		//center: lowest index known to have the smallest eccentricity
+		m_Radius = Integer.MAX_VALUE;
+		for (int v = 0; v < n; v++){
+			if (m_Lower[v] == m_Upper[v] && m_Lower[v] < m_Radius){
+				m_Radius = m_Lower[v];
+				m_Center = v;
+			}
+			if (m_Lower[v] == m_Upper[v] && m_Lower[v] > m_Diameter)
+				m_Diameter = m_Lower[v];
+		}
+	}
+
+	/**
+	 * boundEccentricities: the Takes and Kosters bounding loop, for symmetric graphs
+	 */
+	private void boundEccentricities(){
+		int n = m_Graph.getNumVertices();
+		Arrays.fill(m_Upper, Integer.MAX_VALUE);
+		m_Distance = new int[n];
+		m_Queue = new int[n];
+		Arrays.fill(m_Distance, -1);
+
+		//leaves with the same neighbor have the same eccentricity, only the first one
+		//is a candidate and the others copy its bounds at the end
+		int[] sameAs = new int[n];
+		Arrays.fill(sameAs, -1);
+		int[] firstLeaf = new int[n];
+		Arrays.fill(firstLeaf, -1);
+		for (int v = 0; v < n; v++){
+			if (degree(v) != 1)
+				continue;
+			int u = m_Graph.getEdgeTarget(m_Graph.getEdgeStart(v));
+			if (u == v || degree(u) == 1)
+				//self loop or a component of 2 vertices
+				continue;
+			if (firstLeaf[u] < 0)
+				firstLeaf[u] = v;
+			else
+				sameAs[v] = firstLeaf[u];
+		}
+
+		//vertices whose eccentricity can still matter
+		int[] candidates = new int[n];
+		int numCandidates = 0;
+		for (int v = 0; v < n; v++){
+			if (sameAs[v] < 0)
+				candidates[numCandidates++] = v;
+		}
+
+		//smallest upper bound (best radius so far) and largest lower bound (diameter so far)
+		int radiusUpper = Integer.MAX_VALUE;
+		int diameterLower = 0;
+
+		boolean pickUpper = true;
+		while (numCandidates > 0){
+			int v = m_NumBFS == 0 ? highestDegree(candidates, numCandidates)
+					: pick(candidates, numCandidates, pickUpper);
+			pickUpper = !pickUpper;
+
+			int reached = bfs(v);
+			int ecc = m_Distance[m_Queue[reached - 1]];
+			m_NumBFS++;
+			radiusUpper = Math.min(radiusUpper, ecc);
+			diameterLower = Math.max(diameterLower, ecc);
+
+			//tighten the bounds of the vertices reached
+			for (int q = 0; q < reached; q++){
+				int w = m_Queue[q];
+				int d = m_Distance[w];
+				m_Lower[w] = Math.max(m_Lower[w], Math.max(ecc - d, d));
+				m_Upper[w] = Math.min(m_Upper[w], ecc + d);
+				radiusUpper = Math.min(radiusUpper, m_Upper[w]);
+				diameterLower = Math.max(diameterLower, m_Lower[w]);
+			}
+			for (int q = 0; q < reached; q++){
+				m_Distance[m_Queue[q]] = -1;
+			}
+
+			//drop the candidates that are done
+			int keep = 0;
+			for (int c = 0; c < numCandidates; c++){
+				int w = candidates[c];
+				boolean known = m_Lower[w] == m_Upper[w];
+				boolean irrelevant = m_Lower[w] >= radiusUpper && m_Upper[w] <= diameterLower;
+				if (!known && !irrelevant)
+					candidates[keep++] = w;
+			}
+			numCandidates = keep;
+		}
+		for (int v = 0; v < n; v++){
+			if (sameAs[v] >= 0){
+				m_Lower[v] = m_Lower[sameAs[v]];
+				m_Upper[v] = m_Upper[sameAs[v]];
+			}
+		}
+		m_Distance = null;
+		m_Queue = null;
+	}
+
+	/**
+	 * bfs: distances from source into m_Distance, the vertices reached in BFS order
+	 * into m_Queue
+	 * @return number of vertices reached, the source included
+	 */
+	private int bfs(int source){
+		int head = 0;
+		int tail = 0;
+		m_Distance[source] = 0;
+		m_Queue[tail++] = source;
+		while (head < tail){
+			int v = m_Queue[head++];
+			int next = m_Distance[v] + 1;
+			for (int e = m_Graph.getEdgeStart(v); e < m_Graph.getEdgeEnd(v); e++){
+				int w = m_Graph.getEdgeTarget(e);
+				if (m_Distance[w] < 0){
+					m_Distance[w] = next;
+					m_Queue[tail++] = w;
+				}
+			}
+		}
+		return tail;
+	}
+
+	private int degree(int v){
+		return m_Graph.getEdgeEnd(v) - m_Graph.getEdgeStart(v);
+	}
+
+	private int highestDegree(int[] candidates, int count){
+		int best = candidates[0];
+		for (int c = 1; c < count; c++){
+			if (degree(candidates[c]) > degree(best))
+				best = candidates[c];
+		}
+		return best;
+	}
+
+	/**
+	 * pick: the candidate with the largest upper bound, or with the smallest lower
+	 * bound, ties to the higher degree
+	 */
+	private int pick(int[] candidates, int count, boolean largestUpper){
+		int best = candidates[0];
+		for (int c = 1; c < count; c++){
+			int w = candidates[c];
+			int compare = largestUpper ? Integer.compare(m_Upper[w], m_Upper[best])
+					: Integer.compare(m_Lower[best], m_Lower[w]);
+			if (compare > 0 || (compare == 0 && degree(w) > degree(best)))
+				best = w;
+		}
+		return best;
+	}
+
+	/**
+	 * Results of compute
+	 */
+
+	/* Smallest eccentricity */
+	public int getRadius(){
+		return m_Radius;
+	}
+
+	/* Largest eccentricity */
+	public int getDiameter(){
+		return m_Diameter;
+	}
+
+	/* Index of a vertex with the smallest eccentricity, -1 for an empty graph */
+	public int getCenter(){
+		return m_Center;
+	}
+
+	/* True if the eccentricity of index is known, not only bounded */
+	public boolean isExact(int index){
+		return m_Lower[index] == m_Upper[index];
+	}
+
+	/* Eccentricity of index, -1 if only its bounds are known */
+	public int getEccentricity(int index){
+		return isExact(index) ? m_Lower[index] : -1;
+	}
+
+	public int getLowerBound(int index){
+		return m_Lower[index];
+	}
+
+	public int getUpperBound(int index){
+		return m_Upper[index];
+	}
+
+	/* Number of single source BFS runs compute needed */
+	public int getNumBFS(){
+		return m_NumBFS;
+	}
+}
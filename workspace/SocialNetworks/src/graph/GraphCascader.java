@@ -1,9 +1,12 @@
 package graph;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
 
-import org.graphstream.graph.implementations.SingleGraph;
+import util.MetricsRegistry;
 
 public class GraphCascader {
 	
@@ -12,7 +15,7 @@ public class GraphCascader {
 	private int m_b;
 	 
 	//Graph to cascade
-	private CapGraph m_GraphtoCascade;
+	private CascadeGraph m_GraphtoCascade;
 	
 	//Node rankings
 	private RankingNodes m_RankGraph;
@@ -20,8 +23,19 @@ public class GraphCascader {
 	//Number of Generations to run for Cascade
 	private int m_NumGenerations;
 	
-	//Visualization
-	private SingleGraph graphView;
+	//Pool each generation is split over, null runs on the calling thread.  Created
+	//once by setParallelism and shared by every RunCascade.
+	private ForkJoinPool m_Pool;
+	
+	//Observers of the cascade (e.g. visualization), none by default: headless
+	private ArrayList<CascadeObserver> m_Observers;
+	
+	//Node ids of the nodes changed in a generation, for the observers.  Reused by
+	//every generation.
+	private int[] m_ChangedIds;
+	
+	//Simulator of the last RunCascade, kept at its final state for AddSeed/RemoveSeed
+	private CascadeSimulator m_Simulator;
 	
 	public GraphCascader(){
 		//Constructor
@@ -39,48 +53,10 @@ public class GraphCascader {
 		
 		//set default value to 50
 		m_NumGenerations = 50;	
-	}
-	
-	/**
-	 * willNodeChage: Determines if given node, v, will change to A
-	 * based on m_a, m_b reward values and fraction of neighbors that
-	 * have already switched to A 
-	 * 
-	 * @param v is node to check
-	 * @return 	true if node should chnge to A
-	 * 			false if node should not change to A
-	 */
-	private boolean willNodeChangetoA(int v){
-		//set values of rewards a and b
-		//a is reward if node switches to A
-		//b is reward if node switches to B
-		
-		float p;
-		int D;
-		
-		//D is the number of friends node v has
-		HashSet<Integer> neighbors = m_GraphtoCascade.getNeighbors(v); 
-		D = neighbors.size();
-		int numA=0;
-		
-		//if D is zero then no p or p = 0
-		//get p : percentage of friends that are A
-		if (D != 0 ){
-			for (int x: neighbors){
-				if (m_GraphtoCascade.getABProperty(x) == 'A')
-					numA++;
-				
-			}
-			p = (float)numA/D;
-		}
-		else 
-			p=0;
 		
-		if (p>= ((float)m_b/(m_a+ m_b)))
-			return true;
-		else
-			return false;
+		m_Pool = null;
 		
+		m_Observers = new ArrayList<CascadeObserver>();
 	}
 	
 	/**
@@ -94,6 +70,8 @@ public class GraphCascader {
 	 */
 	private void SeedGraph(ArrayList<Integer> RankedList, int numTopNodes, int pctNeighborsSeed){
 		
+		MetricsRegistry metrics = MetricsRegistry.getGlobal();
+		MetricsRegistry.Timer timer = metrics.start("seed");
 		HashSet<Integer> SeededNodes = new HashSet<Integer>();
 	
 		
@@ -122,7 +100,15 @@ public class GraphCascader {
 				}
 			}
 		}
-		System.out.println("Total Nodes seeded = " + SeededNodes.size());
+		metrics.increment("cascade.seeded", SeededNodes.size());
+		timer.stop();
+		
+		if (!m_Observers.isEmpty()){
+			int[] seeded = toArray(SeededNodes);
+			for (CascadeObserver observer : m_Observers){
+				observer.nodesSeeded(seeded, seeded.length);
+			}
+		}
 		return;
 	}
 	
@@ -130,61 +116,75 @@ public class GraphCascader {
 	 * RunCascade: Runs a cascade through the graph of PropertyAB after it's been seeded.  Assumes 
 	 * default value of B and checks to see which nodes will change to A.  Runs m_NumGenerations 
 	 * or runs until an equilibrium is reached, whichever comes first.
+	 * 
+	 * The generations run in a CascadeSimulator over the graph's IndexedGraph: node 
+	 * changes to A if p >= b/(a+b), p the fraction of its friends that are A, with the
+	 * number of A friends of each node kept in a counter instead of counted each time.
+	 * The final A/B state is copied back to the graph, and the simulator is kept so 
+	 * AddSeed and RemoveSeed can update the result.
+	 * 
+	 * The run is recorded in the global MetricsRegistry: the cascade timer, the totals
+	 * and a row per generation (frontier, flips, nodes checked, edges scanned).
 	 */
 	private void RunCascade(){
 		
-		//to start, check all nodes 
-		ArrayList<Integer> NodesChanged = new ArrayList<Integer>(); 
-		NodesChanged.addAll(m_GraphtoCascade.getVertices());
-		
-		int TotalNodesChanged =0;
-		
-		//Run NumGens number of generations
-		int NumGens= 50;
-		for (int gen=0; gen <NumGens; gen++){
-			//for each generation keep track of nodes to check and  nodes that change
-			// Use HashSet, so same nodes are not added more than once
-			HashSet<Integer> NodesToCheck = new HashSet<Integer>();
-			ArrayList<Integer> NodesToChange = new ArrayList<Integer>();
-			//find nodes to check:
-			//nodes that are neighbors of nodes that changed in last generation
-			for (int index = 0; index<NodesChanged.size(); index++){
-				//add all neighbors of each node that changed if they are 
-				NodesToCheck.addAll(m_GraphtoCascade.getVertex(NodesChanged.get(index)).getNeighbors());
-			}
-				
-			//Calculate p for nodes whose neigbhors have changed in last generation
-			for (int node: NodesToCheck){
-				
-				//only change the nodes that are not already change to A
-				if(m_GraphtoCascade.getABProperty(node) != 'A' && willNodeChangetoA(node) )
-					NodesToChange.add(node);
-			}
-			
+		MetricsRegistry metrics = MetricsRegistry.getGlobal();
+		MetricsRegistry.Timer timer = metrics.start("cascade");
+		int run = metrics.newRun();
+		
+		IndexedGraph indexed = m_GraphtoCascade.getIndexedGraph();
+		CascadeSimulator simulator = new CascadeSimulator(indexed);
+		simulator.setRewards(m_a, m_b);
+		simulator.setPool(m_Pool);
+		simulator.loadState(m_GraphtoCascade);
+		
+		if (!m_Observers.isEmpty() && (m_ChangedIds == null || m_ChangedIds.length < indexed.getNumVertices()))
+			m_ChangedIds = new int[indexed.getNumVertices()];
+		
+		//Run m_NumGenerations number of generations
+		int gen;
+		boolean equilibrium = false;
+		for (gen=0; gen <m_NumGenerations; gen++){
+			int frontier = gen == 0 ? simulator.getNumSeeds() : simulator.getNumChanged();
+			long start = metrics.isEnabled() ? System.nanoTime() : 0;
+			int numChanged = simulator.step();
+			if (metrics.isEnabled())
+				metrics.recordGeneration(run, gen + 1, frontier, numChanged, simulator.getNumChecked(), 
+						simulator.getNumEdgesScanned(), System.nanoTime() - start);
 			
-			// Set Property to A for node if p>(b/(a+b))
-			// Keep of list of nodes that get changed for next generation
-			for(int n = 0; n < NodesToChange.size(); n ++){
-				m_GraphtoCascade.setNodeToA(NodesToChange.get(n));
-				//System.out.println("Changed node " + NodesToChange.get(n) + " to A.");
-				TotalNodesChanged++;
+			//report the generation's changes in one batch
+			if (!m_Observers.isEmpty() && numChanged > 0){
+				int[] changed = simulator.getChanged();
+				for (int n = 0; n < numChanged; n++){
+					m_ChangedIds[n] = indexed.getId(changed[n]);
+				}
+				for (CascadeObserver observer : m_Observers){
+					observer.generationCompleted(gen, m_ChangedIds, numChanged);
+				}
 			}
-			sleep();
 			
 			//if nothing changed, reached equilibrium, stop running generations
-			if(NodesToChange.size() == 0){
-				System.out.println("Equilibrium reached, total nodes changed: "+ TotalNodesChanged + 
-						" in " + gen + "generations.");
-				
+			if(numChanged == 0){
+				equilibrium = true;
 				break;
 			}
-			else{
-			//update NodesChanged for next generation
-				NodesChanged.clear();
-				NodesChanged.addAll(NodesToChange);
-			}
 		}
-		System.out.println("Finished. Total nodes changed: "+ TotalNodesChanged);
+		
+		//Set Property to A for every node that changed
+		simulator.storeState(m_GraphtoCascade);
+		m_Simulator = simulator;
+		
+		int TotalNodesChanged = simulator.getTotalChanged();
+		metrics.increment("cascade.runs", 1);
+		metrics.increment("cascade.changed", TotalNodesChanged);
+		metrics.increment("cascade.generations", gen);
+		if (equilibrium)
+			metrics.increment("cascade.equilibrium", 1);
+		timer.stop();
+		
+		for (CascadeObserver observer : m_Observers){
+			observer.cascadeFinished(TotalNodesChanged, gen);
+		}
 		return;
 		
 	}
@@ -196,7 +196,7 @@ public class GraphCascader {
 	 * @param percentNeighborsToSeed - percentage of neighbors of ranked node to seed for
 	 * 									each cluster.
 	 */
-	public void RunCascadeCloseness(CapGraph graph, int numAreasToSeed, int percentNeighborsToSeed ){
+	public void RunCascadeCloseness(CascadeGraph graph, int numAreasToSeed, int percentNeighborsToSeed ){
 		 
 		//Initialization
 		Initialize(graph);
@@ -204,13 +204,13 @@ public class GraphCascader {
 		//Rank Nodes based on Closeness Centrality
 		m_RankGraph.RankNodesCloseness();
 		
-		//Display initial Graph before seeding
-		DisplayGraph();
-		sleep();
+		//Show initial Graph before seeding
+		for (CascadeObserver observer : m_Observers){
+			observer.cascadeStarted(graph);
+		}
 		
 		//seed graph based on Closeness rankings
 		SeedGraph(m_RankGraph.getTopClosenessList(),numAreasToSeed,percentNeighborsToSeed);
-		sleep();
 		
 		//start Cascade
 		RunCascade();
@@ -223,7 +223,7 @@ public class GraphCascader {
 	 * @param percentNeighborsToSeed - percentage of neighbors of ranked node to seed for
 	 * 									each cluster.
 	 */
-	public void RunCascadeDegrees(CapGraph graph, int numAreasToSeed, int percentNeighborsToSeed ){
+	public void RunCascadeDegrees(CascadeGraph graph, int numAreasToSeed, int percentNeighborsToSeed ){
 		 
 		//Initialization
 		Initialize(graph);
@@ -231,13 +231,13 @@ public class GraphCascader {
 		//Rank Nodes based on Closeness Centrality
 		m_RankGraph.RankNodesDegree();
 		
-		//Display initial Graph before seeding
-		DisplayGraph();
-		sleep();
+		//Show initial Graph before seeding
+		for (CascadeObserver observer : m_Observers){
+			observer.cascadeStarted(graph);
+		}
 		
 		//seed graph based on Closeness rankings
 		SeedGraph(m_RankGraph.getTopDegList(),numAreasToSeed,percentNeighborsToSeed);
-		sleep();
 		
 		//start Cascade
 		RunCascade();
@@ -250,7 +250,7 @@ public class GraphCascader {
 	 * @param percentNeighborsToSeed - percentage of neighbors of ranked node to seed for
 	 * 									each cluster.
 	 */
-	public void RunCascade2HopDeg(CapGraph graph, int numAreasToSeed, int percentNeighborsToSeed ){
+	public void RunCascade2HopDeg(CascadeGraph graph, int numAreasToSeed, int percentNeighborsToSeed ){
 		 
 		//Initialization
 		Initialize(graph);
@@ -258,36 +258,352 @@ public class GraphCascader {
 		//Rank Nodes based on Closeness Centrality
 		m_RankGraph.RankNodesDeg2Hop();
 		
-		//Display initial Graph before seeding
-		DisplayGraph();
-		sleep();
+		//Show initial Graph before seeding
+		for (CascadeObserver observer : m_Observers){
+			observer.cascadeStarted(graph);
+		}
 		
 		//seed graph based on Closeness rankings
 		SeedGraph(m_RankGraph.getTopDeg2HopList(),numAreasToSeed,percentNeighborsToSeed);
-		sleep();
 		
 		//start Cascade
 		RunCascade();
 	}
 	
-	private void Initialize(CapGraph graph){
+	/**
+	 * RunCascadeOptimizedSeeds : This runs a cascade on the graph seeded with nodes chosen
+	 * by SeedOptimizer (greedy, most extra adopters per seed) instead of a ranking.
+	 * Nodes already A in the graph count toward the gains and are not chosen.
+	 * @param numSeeds - the number of nodes to seed.
+	 * @param candidatePool - node ids the seeds are chosen from, null for all nodes.
+	 */
+	public void RunCascadeOptimizedSeeds(CascadeGraph graph, int numSeeds, ArrayList<Integer> candidatePool){
+		if (numSeeds < 0)
+			//bad input
+			return;
+		
+		//Initialization
+		Initialize(graph);
+		
+		//choose the seeds
+		IndexedGraph indexed = graph.getIndexedGraph();
+		SeedOptimizer optimizer = new SeedOptimizer(indexed);
+		optimizer.setRewards(m_a, m_b);
+		optimizer.setNumGenerations(m_NumGenerations);
+		
+		//gains from the graph's state, like RunCascade: nodes already A start as A
+		int[] initialA = new int[indexed.getNumVertices()];
+		int numInitialA = 0;
+		for (int v = 0; v < indexed.getNumVertices(); v++){
+			if (graph.getABProperty(indexed.getId(v)) == 'A')
+				initialA[numInitialA++] = v;
+		}
+		optimizer.setInitialA(Arrays.copyOf(initialA, numInitialA));
+		if (candidatePool != null){
+			//ids not in the graph (a pool ranked on another graph) are skipped, and
+			//setCandidates keeps each index once
+			int[] candidates = new int[candidatePool.size()];
+			int count = 0;
+			for (int id : candidatePool){
+				int index = indexed.getIndex(id);
+				if (index < 0)
+					//bad input
+					continue;
+				candidates[count++] = index;
+			}
+			optimizer.setCandidates(Arrays.copyOf(candidates, count));
+		}
+		int[] seeds = optimizer.select(numSeeds, 0);
+		
+		//Show initial Graph before seeding
+		for (CascadeObserver observer : m_Observers){
+			observer.cascadeStarted(graph);
+		}
+		
+		//seed graph
+		int[] seeded = new int[seeds.length];
+		for (int i = 0; i < seeds.length; i++){
+			seeded[i] = indexed.getId(seeds[i]);
+		}
+		SeedNodes(seeded);
+		
+		//start Cascade
+		RunCascade();
+	}
+	
+	/**
+	 * RunCascadeSeeds : This runs a cascade on the graph seeded with the given nodes, for
+	 * repeatable runs (benchmarks, comparing with a known seeding).
+	 * @param seeds - ids of the nodes to seed.
+	 */
+	public void RunCascadeSeeds(CascadeGraph graph, ArrayList<Integer> seeds){
+		
+		//Initialization
+		Initialize(graph);
+		
+		//Show initial Graph before seeding
+		for (CascadeObserver observer : m_Observers){
+			observer.cascadeStarted(graph);
+		}
+		
+		//seed graph
+		SeedNodes(toArray(seeds));
+		
+		//start Cascade
+		RunCascade();
+	}
+	
+	/**
+	 * SeedNodes: Seeds the nodes with the given ids and tells the observers
+	 */
+	private void SeedNodes(int[] seeded){
+		MetricsRegistry metrics = MetricsRegistry.getGlobal();
+		MetricsRegistry.Timer timer = metrics.start("seed");
+		for (int node : seeded){
+			m_GraphtoCascade.setNodeToA(node);
+		}
+		metrics.increment("cascade.seeded", seeded.length);
+		timer.stop();
+		for (CascadeObserver observer : m_Observers){
+			observer.nodesSeeded(seeded, seeded.length);
+		}
+	}
+	
+	/**
+	 * RunSeedVariants : Runs up to 64 cascades on the graph at once, one for each pair 
+	 * numAreasToSeed[i], percentNeighborsToSeed[i], to compare seedings.  All variants
+	 * seed from the same ranking and use the same a and b.  The variants run as the
+	 * lanes of a BitParallelCascade, each one with the result RunCascade would give:
+	 * nodes already A in the graph start as A in every lane, and are not seeded again.
+	 * The graph's A/B property is not changed, and observers are not told.
+	 * @param strategy - ranking to seed from: DEGREE, DEG2HOP or CLOSENESS
+	 * @param numAreasToSeed - the number of clusters to seed, per variant.
+	 * @param percentNeighborsToSeed - percentage of neighbors of ranked node to seed, per
+	 * 									variant.
+	 * @return number of nodes that are A at the end, per variant
+	 */
+	public int[] RunSeedVariants(CascadeGraph graph, CascadeExperiment.Strategy strategy,
+			int[] numAreasToSeed, int[] percentNeighborsToSeed){
+		int numVariants = numAreasToSeed.length;
+		if (numVariants != percentNeighborsToSeed.length || numVariants > BitParallelCascade.NUM_LANES)
+			throw new IllegalArgumentException("need matching variant arrays of at most "
+					+ BitParallelCascade.NUM_LANES + " entries");
+		
+		//Initialization
+		Initialize(graph);
+		
+		//Rank Nodes
+		ArrayList<Integer> RankedList;
+		switch (strategy){
+		case DEGREE:
+			m_RankGraph.RankNodesDegree();
+			RankedList = m_RankGraph.getTopDegList();
+			break;
+		case DEG2HOP:
+			m_RankGraph.RankNodesDeg2Hop();
+			RankedList = m_RankGraph.getTopDeg2HopList();
+			break;
+		case CLOSENESS:
+			m_RankGraph.RankNodesCloseness();
+			RankedList = m_RankGraph.getTopClosenessList();
+			break;
+		default:
+			throw new IllegalArgumentException("no ranking for " + strategy);
+		}
+		
+		//seed each variant in its own lane
+		IndexedGraph indexed = graph.getIndexedGraph();
+		BitParallelCascade cascade = new BitParallelCascade(indexed);
+		cascade.setRewards(m_a, m_b);
+		
+		//start from the graph's state, like RunCascade
+		for (int v = 0; v < indexed.getNumVertices(); v++){
+			if (graph.getABProperty(indexed.getId(v)) != 'A')
+				continue;
+			for (int lane = 0; lane < numVariants; lane++){
+				cascade.setA(lane, v);
+			}
+		}
+		
+		for (int lane = 0; lane < numVariants; lane++){
+			int numTopNodes = Math.min(numAreasToSeed[lane], RankedList.size());
+			for (int index = 0; index < numTopNodes; index++){
+				int counter = 0;
+				HashSet<Integer> NodeNeighbors = graph.getNeighbors(RankedList.get(index));
+				int numToSeed = (NodeNeighbors.size() * percentNeighborsToSeed[lane])/100;
+				for (int neighbor : NodeNeighbors){
+					if (counter >= numToSeed)
+						break;
+					int n = indexed.getIndex(neighbor);
+					if (!cascade.isA(lane, n)){
+						counter++;
+						cascade.setA(lane, n);
+					}
+				}
+			}
+		}
+		
+		//Run m_NumGenerations number of generations in all lanes
+		for (int gen = 0; gen < m_NumGenerations; gen++){
+			if (cascade.step() == 0)
+				break;
+		}
+		
+		int[] numA = new int[numVariants];
+		for (int lane = 0; lane < numVariants; lane++){
+			numA[lane] = cascade.getNumA(lane);
+		}
+		return numA;
+	}
+	
+	/**
+	 * AddSeed : Seeds node id after a cascade has run on the graph and updates the graph
+	 * to the new equilibrium, propagating only from the new seed instead of seeding and
+	 * running every generation again.  For exploring seeds one at a time.
+	 * The update runs to equilibrium, not limited to m_NumGenerations.
+	 * @param id - node to seed.
+	 * @return number of nodes that changed to A, the seed not counted.  -1 if no cascade
+	 * 			has run, the graph changed since, or id is not in the graph.
+	 */
+	public int AddSeed(int id){
+		if (m_Simulator != null && m_GraphtoCascade.getIndexedGraph() != m_Simulator.getGraph())
+			//graph changed since the cascade ran, the simulator is out of date
+			m_Simulator = null;
+		int index = m_Simulator == null ? -1 : m_Simulator.getGraph().getIndex(id);
+		if (index < 0)
+			//bad input
+			return -1;
+		
+		settle();
+		int numChanged = m_Simulator.addSeed(index);
+		m_GraphtoCascade.setNodeToA(id);
+		int[] changed = m_Simulator.getChanged();
+		for (int n = 1; n < m_Simulator.getNumChanged(); n++){
+			m_GraphtoCascade.setNodeToA(m_Simulator.getGraph().getId(changed[n]));
+		}
+		
+		if (!m_Observers.isEmpty()){
+			int[] seeded = {id};
+			for (CascadeObserver observer : m_Observers){
+				observer.nodesSeeded(seeded, 1);
+			}
+			if (numChanged > 0){
+				int count = toIds(changed, 1, numChanged);
+				for (CascadeObserver observer : m_Observers){
+					observer.generationCompleted(m_Simulator.getGeneration(), m_ChangedIds, count);
+				}
+			}
+			notifyFinished();
+		}
+		return numChanged;
+	}
+	
+	/**
+	 * RemoveSeed : Unseeds node id after a cascade has run on the graph and updates the
+	 * graph to the new equilibrium, recomputing only the nodes whose A depended on the
+	 * seed.  Nodes the rest of the seeds still bring to A stay A, the seed included.
+	 * @param id - seeded node to remove.
+	 * @return number of nodes that changed back to B, the seed not counted.  -1 if no
+	 * 			cascade has run, the graph changed since, or id is not in the graph.
+	 */
+	public int RemoveSeed(int id){
+		if (m_Simulator != null && m_GraphtoCascade.getIndexedGraph() != m_Simulator.getGraph())
+			//graph changed since the cascade ran, the simulator is out of date
+			m_Simulator = null;
+		int index = m_Simulator == null ? -1 : m_Simulator.getGraph().getIndex(id);
+		if (index < 0)
+			//bad input
+			return -1;
+		
+		settle();
+		int numChanged = m_Simulator.removeSeed(index);
+		int[] changed = m_Simulator.getChanged();
+		for (int n = 0; n < m_Simulator.getNumChanged(); n++){
+			m_GraphtoCascade.setNodeToB(m_Simulator.getGraph().getId(changed[n]));
+		}
+		
+		if (!m_Observers.isEmpty()){
+			int count = toIds(changed, 0, m_Simulator.getNumChanged());
+			for (CascadeObserver observer : m_Observers){
+				observer.nodesReset(m_ChangedIds, count);
+			}
+			notifyFinished();
+		}
+		return numChanged;
+	}
+	
+	/**
+	 * settle: Before the first AddSeed/RemoveSeed, finishes the cascade RunCascade stopped
+	 * (generation limit, or a directed graph where a node can be left at its threshold)
+	 * and sets the nodes that change to A in the graph.
+	 */
+	private void settle(){
+		int numChanged = m_Simulator.settle();
+		if (numChanged == 0)
+			return;
+		int[] changed = m_Simulator.getChanged();
+		for (int n = 0; n < numChanged; n++){
+			m_GraphtoCascade.setNodeToA(m_Simulator.getGraph().getId(changed[n]));
+		}
+		if (!m_Observers.isEmpty()){
+			int count = toIds(changed, 0, numChanged);
+			for (CascadeObserver observer : m_Observers){
+				observer.generationCompleted(m_Simulator.getGeneration(), m_ChangedIds, count);
+			}
+		}
+	}
+	
+	/**
+	 * toIds: node ids of count vertex indices from indices[from], into m_ChangedIds
+	 * @return count
+	 */
+	private int toIds(int[] indices, int from, int count){
+		IndexedGraph indexed = m_Simulator.getGraph();
+		if (m_ChangedIds == null || m_ChangedIds.length < indexed.getNumVertices())
+			m_ChangedIds = new int[indexed.getNumVertices()];
+		for (int n = 0; n < count; n++){
+			m_ChangedIds[n] = indexed.getId(indices[from + n]);
+		}
+		return count;
+	}
+	
+	private void notifyFinished(){
+		for (CascadeObserver observer : m_Observers){
+			observer.cascadeFinished(m_Simulator.getTotalChanged(), m_Simulator.getGeneration());
+		}
+	}
+	
+	private void Initialize(CascadeGraph graph){
 		//Initialization
 		m_GraphtoCascade = graph;
-		graphView = graph.getGraphView();
 		m_RankGraph.setGraph(graph);
+		m_Simulator = null;
 		
 	}
 	
-	private void DisplayGraph() {
-	
-		graphView.display();
+	private static int[] toArray(Collection<Integer> nodes){
+		int[] array = new int[nodes.size()];
+		int count = 0;
+		for (int n : nodes){
+			array[count++] = n;
+		}
+		return array;
 	}
 
-	private void sleep() {
-		//time delay, used for graph display, so each generation change can be viewed
-		try { Thread.sleep(1000); } catch (Exception e) {}
+	
+	/**
+	 * addObserver: observer is told when the cascade starts, which nodes are seeded,
+	 * which nodes change in each generation and when the cascade finishes.
+	 */
+	public void addObserver(CascadeObserver observer){
+		if (observer == null)
+			return;
+		m_Observers.add(observer);
+	}
+	
+	public void removeObserver(CascadeObserver observer){
+		m_Observers.remove(observer);
 	}
-
 	
 	//getters and setters
 	public void seta(int a){
@@ -317,5 +633,30 @@ public class GraphCascader {
 	public int getNumGenerations(){
 		return m_NumGenerations;
 	}
+	
+	/**
+	 * setDeg2HopMode: what RunCascade2HopDeg ranks the nodes by, see RankingNodes.Deg2HopMode
+	 */
+	public void setDeg2HopMode(RankingNodes.Deg2HopMode mode){
+		m_RankGraph.setDeg2HopMode(mode);
+	}
+	
+	/**
+	 * setParallelism: number of threads each generation is split over.  1 (default) 
+	 * runs on the calling thread, 0 uses the common fork/join pool.  Other values
+	 * create one pool, used by every cascade until the next setParallelism (which shuts
+	 * it down).  The result is the same for any value.
+	 */
+	public void setParallelism(int threads){
+		if (threads<0)
+			//bad input
+			return;
+		
+		if (m_Pool != null && m_Pool != ForkJoinPool.commonPool())
+			m_Pool.shutdown();
+		m_Pool = threads == 0 ? ForkJoinPool.commonPool() : threads > 1 ? new ForkJoinPool(threads) : null;
+		if (m_Simulator != null)
+			m_Simulator.setPool(m_Pool);
+	}
 
 }
@@ -0,0 +1,28 @@
+package graph;
+
+/**
+ * @author kguajardo
+ *
+ * GraphChangeListener: Receives the changes made to a CapGraph after it is built,
+ * 						one call per vertex or edge, after the change is made.
+ *
+ * 						RankingNodes is one listener: in live mode it keeps the
+ * 						degree and 2 hop degree of every node and its ranking lists
+ * 						up to date instead of ranking the whole graph again.
+ *
+ */
+public interface GraphChangeListener {
+
+	/* Called after vertex v is added, with no edges. */
+	public void vertexAdded(int v);
+
+	/* Called after vertex v is removed.  Its edges were removed first, each one
+	 * reported with edgeRemoved. */
+	public void vertexRemoved(int v);
+
+	/* Called after the edge from the first vertex to the second is added. */
+	public void edgeAdded(int from, int to);
+
+	/* Called after the edge from the first vertex to the second is removed. */
+	public void edgeRemoved(int from, int to);
+}
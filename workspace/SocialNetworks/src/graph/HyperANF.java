@@ -0,0 +1,224 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import util.HyperLogLogCounters;
+import util.ParallelLoop;
+
+/**
+ * @author kguajardo
+ *
+ * HyperANF: Estimates the neighborhood function of an IndexedGraph, the number of
+ * vertices N(v,t) within t hops of every vertex v for every t, with one
+ * HyperLogLog counter per vertex instead of a BFS per vertex.
+ *
+ * The counter of v starts as {v}.  Each round, in parallel, it becomes the union of
+ * itself and the counters of its outgoing neighbors, so after round t it counts the
+ * vertices within t hops.  A counter only has to merge the neighbors that changed in
+ * the last round (the others are already in it), so rounds get cheaper as the
+ * counters settle; it stops when no counter changes, after about diameter rounds.
+ *
+ * From the new vertices found at each distance it derives, per vertex:
+ *   closeness: average number of hops to the vertices it reaches, the value
+ *              ClosenessCentrality computes exactly (minimum value is more central)
+ *   harmonic:  sum of 1 / hops to the vertices it reaches (maximum is more central),
+ *              defined on graphs that are not strongly connected too
+ * and for the graph the number of pairs within t hops and the effective diameter.
+ *
+ * Each count has a relative error of about 1.04 / sqrt(2^log2m).  Memory is n times
+ * 2^(log2m+1) bytes for the two sets of counters.
+ *
+ */
+public class HyperANF {
+
+	//registers per counter (2^7), about 9% error per count
+	public static final int DEFAULT_LOG2M = 7;
+
+	//vertices per piece of a parallel loop
+	private static final int GRAIN = 1 << 10;
+
+	private final IndexedGraph m_Graph;
+	private final int m_Log2m;
+
+	//number of worker threads, 0 uses the common fork/join pool
+	private int m_Parallelism;
+
+	//stop after this many rounds even if counters still change
+	private int m_MaxRounds;
+
+	//results of run, per vertex index
+	private double[] m_Closeness;
+	private double[] m_Harmonic;
+
+	//estimated pairs (v, w), v != w, with w within t hops of v, per t
+	private double[] m_Pairs;
+
+	public HyperANF(IndexedGraph graph, int log2m){
+		m_Graph = graph;
+		m_Log2m = log2m;
+		m_Parallelism = 0;
+		m_MaxRounds = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * run: propagates the counters until they stop changing and computes the results
+	 */
+	public void run(){
+		int n = m_Graph.getNumVertices();
+		HyperLogLogCounters current = new HyperLogLogCounters(n, m_Log2m);
+		HyperLogLogCounters next = new HyperLogLogCounters(n, m_Log2m);
+
+		//count of each vertex at the last round, sum of hops and of 1/hops so far
+		double[] lastCount = new double[n];
+		double[] sumHops = new double[n];
+		double[] harmonic = new double[n];
+		for (int v = 0; v < n; v++){
+			current.add(v, v);
+			lastCount[v] = current.count(v);
+		}
+
+		double[] pairs = new double[16];
+		int rounds = 0;
+
+		//one pool for every round
+		ForkJoinPool pool = m_Parallelism > 0 ? new ForkJoinPool(m_Parallelism) : ForkJoinPool.commonPool();
+		try {
+			boolean[] changed = new boolean[n];
+			Arrays.fill(changed, true);
+			boolean anyChanged = n > 0;
+			while (anyChanged && rounds < m_MaxRounds){
+				rounds++;
+				int hops = rounds;
+				next.copyFrom(current);
+				boolean[] last = changed;
+				boolean[] now = new boolean[n];
+				HyperLogLogCounters from = current;
+				HyperLogLogCounters to = next;
+
+				//each vertex only writes its own counter and entries
+				ParallelLoop.forRange(pool, 0, n, GRAIN, (first, end) -> {
+					for (int v = first; v < end; v++){
+						for (int e = m_Graph.getEdgeStart(v); e < m_Graph.getEdgeEnd(v); e++){
+							int u = m_Graph.getEdgeTarget(e);
+							if (last[u] && to.union(v, from, u))
+								now[v] = true;
+						}
+						if (!now[v])
+							continue;
+
+						//new vertices found at distance hops.  The estimate can dip when
+						//registers grow, the count only goes up
+						double count = to.count(v);
+						if (count <= lastCount[v])
+							continue;
+						double found = count - lastCount[v];
+						lastCount[v] = count;
+						sumHops[v] += found * hops;
+						harmonic[v] += found / hops;
+					}
+				});
+				changed = now;
+				anyChanged = false;
+				for (int v = 0; v < n && !anyChanged; v++){
+					anyChanged = now[v];
+				}
+
+				HyperLogLogCounters swap = current;
+				current = next;
+				next = swap;
+
+				if (rounds >= pairs.length)
+					pairs = Arrays.copyOf(pairs, 2 * pairs.length);
+				for (int v = 0; v < n; v++){
+					pairs[rounds] += lastCount[v] - 1;
+				}
+			}
+		}
+		finally {
+			if (pool != ForkJoinPool.commonPool())
+				pool.shutdown();
+		}
+
+		//the last round found nothing new unless it stopped at m_MaxRounds
+		m_Pairs = Arrays.copyOf(pairs, rounds + 1);
+		m_Closeness = new double[n];
+		m_Harmonic = harmonic;
+		for (int v = 0; v < n; v++){
+			double reached = lastCount[v] - 1;
+			m_Closeness[v] = reached < 0.5 ? Double.NaN : sumHops[v] / reached;
+		}
+	}
+
+	/**
+	 * getCloseness: estimated closeness per vertex index, NaN for a vertex that reaches
+	 * no other vertex
+	 */
+	public double[] getCloseness(){
+		return m_Closeness;
+	}
+
+	/**
+	 * getHarmonic: estimated harmonic centrality per vertex index
+	 */
+	public double[] getHarmonic(){
+		return m_Harmonic;
+	}
+
+	/**
+	 * getNeighborhoodFunction: estimated number of pairs of different vertices (v, w)
+	 * with w within t hops of v, for t = 0 .. number of rounds
+	 */
+	public double[] getNeighborhoodFunction(){
+		return Arrays.copyOf(m_Pairs, m_Pairs.length);
+	}
+
+	/**
+	 * getEffectiveDiameter: number of hops within which fraction of the connected pairs
+	 * are, interpolated between whole hops.  0.9 gives the usual effective diameter.
+	 */
+	public double getEffectiveDiameter(double fraction){
+		double total = m_Pairs[m_Pairs.length - 1];
+		if (total <= 0)
+			return 0;
+
+		double target = fraction * total;
+		for (int t = 1; t < m_Pairs.length; t++){
+			if (m_Pairs[t] >= target){
+				double step = m_Pairs[t] - m_Pairs[t - 1];
+				return t - 1 + (step > 0 ? (target - m_Pairs[t - 1]) / step : 1);
+			}
+		}
+		return m_Pairs.length - 1;
+	}
+
+	/**
+	 * getNumRounds: number of rounds run, at least the diameter of the graph when it
+	 * was not stopped by setMaxRounds
+	 */
+	public int getNumRounds(){
+		return m_Pairs.length - 1;
+	}
+
+	/**
+	 * setParallelism: number of threads to use, 0 (default) uses the common pool
+	 */
+	public void setParallelism(int threads){
+		if (threads < 0)
+			//bad input
+			return;
+
+		m_Parallelism = threads;
+	}
+
+	/**
+	 * setMaxRounds: stop after rounds rounds, the counts are then those within rounds hops
+	 */
+	public void setMaxRounds(int rounds){
+		if (rounds < 1)
+			//bad input
+			return;
+
+		m_MaxRounds = rounds;
+	}
+}
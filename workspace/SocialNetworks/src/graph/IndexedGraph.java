@@ -0,0 +1,43 @@
+package graph;
+
+/**
+ * @author kguajardo
+ *
+ * IndexedGraph:	Read only view of a graph in compressed sparse row form.
+ * 					Vertices are renumbered to dense indices 0..getNumVertices()-1 and
+ * 					the outgoing neighbors of index v are the edge targets at positions
+ * 					getEdgeStart(v) (inclusive) to getEdgeEnd(v) (exclusive).
+ *
+ * 					The traversal kernels (SCC, BFS, cascade) work on indices only, so
+ * 					they never box a vertex id or allocate per visited edge.
+ *
+ */
+public interface IndexedGraph {
+
+	/* Number of vertices, indices run from 0 to getNumVertices()-1 */
+	public int getNumVertices();
+
+	/* Number of directed edges */
+	public int getNumEdges();
+
+	/* Dense index of the vertex with the given id, -1 if it is not in the graph */
+	public int getIndex(int id);
+
+	/* Vertex id stored at the given index */
+	public int getId(int index);
+
+	/* Position of the first outgoing edge of index */
+	public int getEdgeStart(int index);
+
+	/* Position after the last outgoing edge of index */
+	public int getEdgeEnd(int index);
+
+	/* Index of the vertex the edge at position edge points to */
+	public int getEdgeTarget(int edge);
+
+	/* Graph with every edge reversed, using the same vertex indices */
+	public IndexedGraph transpose();
+
+	/* True if every edge has its reverse edge, as in the undirected friendship graphs */
+	public boolean isSymmetric();
+}
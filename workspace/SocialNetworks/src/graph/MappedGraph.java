@@ -0,0 +1,593 @@
+package graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+import util.CsrGraphFile;
+import util.MappedFile;
+
+/**
+ * @author kguajardo
+ *
+ * MappedGraph implements a graph stored off heap, in memory mapped files, for graphs
+ * too large to load into CapGraph or CsrGraph.  Opening one only reads the headers
+ * and the ends of the edge offsets: the pages of the files are loaded by the
+ * operating system when they are first used and stay in its page cache between runs.
+ *
+ * The structure is a file written by CsrGraphFile (see GraphLoader.convertToBinary),
+ * read in place instead of copied into arrays, so the edge count is only limited by
+ * the int offsets of the format.  It can not change, addVertex and addEdge throw
+ * UnsupportedOperationException like CsrGraph.
+ *
+ * The cascade property and the centrality values live in an attribute file next to
+ * it, filename + ".attr", created with zeros when it does not exist.  Values set by
+ * RankingNodes and GraphCascader are written to it and are still there when the
+ * store is opened again.  Layout, little endian, each section starts at a multiple
+ * of 8 bytes:
+ *   header    : ATTR_MAGIC, ATTR_VERSION, number of vertices n, 5 reserved ints
+ *   property  : (n+63)/64 longs, bit set means A, clear means B
+ *   degree    : n ints
+ *   deg2hop   : n ints
+ *   closeness : n doubles
+ *
+ * The cascade kernels need the reversed graph (transpose).  It is written once to
+ * filename + ".transpose" in the same format and mapped too; a symmetric graph is
+ * its own transpose.  Subgraphs (getEgonet, getSCCs, getLargestSCC) are small, they
+ * are built on the heap as CsrGraphs.
+ *
+ */
+public class MappedGraph implements CascadeGraph, IndexedGraph {
+
+	//"CSRA"
+	public static final int ATTR_MAGIC = 0x43535241;
+	public static final int ATTR_VERSION = 1;
+
+	public static final String ATTR_SUFFIX = ".attr";
+	public static final String TRANSPOSE_SUFFIX = ".transpose";
+
+	private static final long HEADER_BYTES = 4L * CsrGraphFile.HEADER_INTS;
+
+	//structure file and where its sections start
+	private final String m_Filename;
+	private final MappedFile m_File;
+	private final int m_NumVertices;
+	private final int m_NumEdges;
+	private final boolean m_Symmetric;
+	private final long m_IdsPos;
+	private final long m_OffsetsPos;
+	private final long m_TargetsPos;
+
+	//attribute file and where its sections start, shared with the transpose
+	private final MappedFile m_Attributes;
+	private final long m_PropertyPos;
+	private final long m_DegreePos;
+	private final long m_Deg2HopPos;
+	private final long m_ClosenessPos;
+
+	//Reversed graph, mapped the first time it is needed
+	private MappedGraph m_Transpose;
+
+	private MappedGraph(String filename, MappedFile file, MappedFile attributes) throws IOException {
+		int[] header = readHeader(file, filename);
+		m_Filename = filename;
+		m_File = file;
+		m_NumVertices = header[3];
+		m_NumEdges = header[4];
+		m_Symmetric = (header[2] & CsrGraphFile.FLAG_SYMMETRIC) != 0;
+		m_IdsPos = HEADER_BYTES;
+		m_OffsetsPos = m_IdsPos + 4L * m_NumVertices;
+		m_TargetsPos = m_OffsetsPos + 4L * (m_NumVertices + 1);
+		if (file.size() < m_TargetsPos + 4L * m_NumEdges)
+			throw new IOException(filename + " is truncated");
+		//the ends of the offsets, the rest is read in place (see verify)
+		if (file.getInt(m_OffsetsPos) != 0 || file.getInt(m_OffsetsPos + 4L * m_NumVertices) != m_NumEdges)
+			throw new IOException(filename + " has edge offsets that do not run from 0 to " + m_NumEdges);
+
+		m_Attributes = attributes;
+		m_PropertyPos = HEADER_BYTES;
+		m_DegreePos = m_PropertyPos + 8L * ((m_NumVertices + 63) / 64);
+		m_Deg2HopPos = m_DegreePos + 4L * m_NumVertices;
+		m_ClosenessPos = align8(m_Deg2HopPos + 4L * m_NumVertices);
+	}
+
+	/**
+	 * readHeader: Reads and checks the header of a file written by CsrGraphFile
+	 */
+	private static int[] readHeader(MappedFile file, String filename) throws IOException {
+		if (file.size() < HEADER_BYTES)
+			throw new IOException(filename + " is not a CSR graph file");
+
+		int[] header = new int[CsrGraphFile.HEADER_INTS];
+		for (int i = 0; i < header.length; i++){
+			header[i] = file.getInt(4L * i);
+		}
+		CsrGraphFile.checkHeader(header, filename);
+		return header;
+	}
+
+	private static long align8(long pos){
+		return (pos + 7) & ~7L;
+	}
+
+	/**
+	 * attributeBytes: length of the attribute file for n vertices
+	 */
+	private static long attributeBytes(int n){
+		long closeness = align8(HEADER_BYTES + 8L * ((n + 63) / 64) + 8L * n);
+		return closeness + 8L * n;
+	}
+
+	/**
+	 * open: Maps the graph stored in filename, a file written by CsrGraphFile, and its
+	 * attribute file (created when missing).
+	 */
+	public static MappedGraph open(String filename) throws IOException {
+		MappedFile file = MappedFile.openRead(filename);
+		int n = readHeader(file, filename)[3];
+
+		String attributeFile = filename + ATTR_SUFFIX;
+		boolean created = !new File(attributeFile).isFile();
+		MappedFile attributes = MappedFile.openWrite(attributeFile, attributeBytes(n));
+		if (created){
+			attributes.putInt(0, ATTR_MAGIC);
+			attributes.putInt(4, ATTR_VERSION);
+			attributes.putInt(8, n);
+		}
+		else if (attributes.getInt(0) != ATTR_MAGIC || attributes.getInt(4) != ATTR_VERSION
+				|| attributes.getInt(8) != n)
+			throw new IOException(attributeFile + " does not belong to " + filename);
+
+		return new MappedGraph(filename, file, attributes);
+	}
+
+	/**
+	 * create: Stores graph in filename (and its attribute file) and maps it.  The
+	 * cascade property and centrality values of graph are copied.
+	 */
+	public static MappedGraph create(CsrGraph graph, String filename) throws IOException {
+		CsrGraphFile.write(graph, filename);
+		new File(filename + ATTR_SUFFIX).delete();
+		new File(filename + TRANSPOSE_SUFFIX).delete();
+
+		MappedGraph mapped = open(filename);
+		for (int v = 0; v < graph.getNumVertices(); v++){
+			int id = graph.getId(v);
+			if (graph.getABProperty(id) == 'A')
+				mapped.setNodeToA(id);
+			mapped.setDegrees(id, graph.getDegrees(id));
+			mapped.setDeg2Hop(id, graph.getDeg2Hop(id));
+			mapped.setNodeCloseness(id, graph.getNodeCloseness(id));
+		}
+		mapped.flush();
+		return mapped;
+	}
+
+	/**
+	 * verify: Checks the whole structure file in one pass, as CsrGraphFile.read does,
+	 * for a file that did not come from create.  Pages in every section once.
+	 */
+	public void verify() throws IOException {
+		CsrGraphFile.checkStructure(m_NumVertices, m_NumEdges, this::getId, this::getEdgeStart,
+				this::getEdgeTarget, m_Filename);
+	}
+
+	/**
+	 * flush: Writes the attribute values set so far to the disk
+	 */
+	public void flush(){
+		m_Attributes.force();
+	}
+
+	/**
+	 * getFilename: the structure file of the graph
+	 */
+	public String getFilename(){
+		return m_Filename;
+	}
+
+	/**
+	 * addVertex: not supported, the structure of a MappedGraph is fixed when it is stored.
+	 */
+	@Override
+	public void addVertex(int num) {
+		throw new UnsupportedOperationException("MappedGraph is immutable");
+	}
+
+	/**
+	 * addEdge: not supported, the structure of a MappedGraph is fixed when it is stored.
+	 */
+	@Override
+	public void addEdge(int from, int to) {
+		throw new UnsupportedOperationException("MappedGraph is immutable");
+	}
+
+	/**
+	 * getEgonet: the center node, its neighbors and all edges between them, as a
+	 * CsrGraph.  If center is not in the graph, returns an empty graph.
+	 */
+	@Override
+	public Graph getEgonet(int center) {
+		int c = getIndex(center);
+		if (c < 0)
+			return new CsrGraph(new int[0], new int[1], new int[0]);
+
+		//members in ascending index order keeps the subgraph ids sorted
+		int[] members = new int[getEdgeEnd(c) - getEdgeStart(c) + 1];
+		int count = 0;
+		members[count++] = c;
+		for (int e = getEdgeStart(c); e < getEdgeEnd(c); e++){
+			if (getEdgeTarget(e) != c)
+				members[count++] = getEdgeTarget(e);
+		}
+		Arrays.sort(members, 0, count);
+
+		int[] localIndex = new int[getNumVertices()];
+		Arrays.fill(localIndex, -1);
+		return CsrGraph.inducedSubgraph(this, members, 0, count, localIndex);
+	}
+
+	/**
+	 * getSCCs: Strongly Connected Components of the graph, each one as a CsrGraph.
+	 */
+	@Override
+	public List<Graph> getSCCs() {
+		StronglyConnectedComponents scc = new StronglyConnectedComponents(this);
+		int numComponents = scc.getNumComponents();
+		int[] start = new int[numComponents + 1];
+		int[] members = scc.getMembersByComponent(start);
+
+		List<Graph> SCCList = new ArrayList<Graph>(numComponents);
+		int[] localIndex = new int[getNumVertices()];
+		Arrays.fill(localIndex, -1);
+		for (int c = 0; c < numComponents; c++){
+			SCCList.add(CsrGraph.inducedSubgraph(this, members, start[c], start[c + 1], localIndex));
+		}
+		return SCCList;
+	}
+
+	/**
+	 * getLargestSCC: The SCC with the most vertices as a CsrGraph, without building
+	 * the others.
+	 */
+	public CsrGraph getLargestSCC(){
+		StronglyConnectedComponents scc = new StronglyConnectedComponents(this);
+		int largest = scc.getLargestComponent();
+		if (largest < 0)
+			return new CsrGraph(new int[0], new int[1], new int[0]);
+
+		int[] members = scc.getMembers(largest);
+		int[] localIndex = new int[getNumVertices()];
+		Arrays.fill(localIndex, -1);
+		return CsrGraph.inducedSubgraph(this, members, 0, members.length, localIndex);
+	}
+
+	/**
+	 * transpose: The graph with every edge reversed, indices are the same as in this
+	 * graph and the attribute values are shared.  Written to filename + ".transpose"
+	 * the first time, then mapped from there.
+	 */
+	@Override
+	public MappedGraph transpose(){
+		if (m_Transpose != null)
+			return m_Transpose;
+		if (m_Symmetric)
+			return this;
+
+		String filename = m_Filename + TRANSPOSE_SUFFIX;
+		try {
+			File file = new File(filename);
+			if (!file.isFile() || file.lastModified() < new File(m_Filename).lastModified())
+				writeTranspose(filename);
+			m_Transpose = new MappedGraph(filename, MappedFile.openRead(filename), m_Attributes);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (m_Transpose.m_NumVertices != m_NumVertices || m_Transpose.m_NumEdges != m_NumEdges)
+			throw new IllegalStateException(filename + " does not belong to " + m_Filename);
+
+		m_Transpose.m_Transpose = this;
+		return m_Transpose;
+	}
+
+	/**
+	 * writeTranspose: Writes the reversed graph in the CsrGraphFile format.  Only the
+	 * offsets are kept on the heap, the edges are scattered into the mapped file.
+	 */
+	private void writeTranspose(String filename) throws IOException {
+		int n = m_NumVertices;
+		int[] offsets = new int[n + 1];
+		for (int e = 0; e < m_NumEdges; e++){
+			offsets[getEdgeTarget(e) + 1]++;
+		}
+		for (int v = 0; v < n; v++){
+			offsets[v + 1] += offsets[v];
+		}
+
+		new File(filename).delete();
+		MappedFile file = MappedFile.openWrite(filename, m_TargetsPos + 4L * m_NumEdges);
+		for (int i = 0; i < CsrGraphFile.HEADER_INTS; i++){
+			file.putInt(4L * i, m_File.getInt(4L * i));
+		}
+		for (int v = 0; v < n; v++){
+			file.putInt(m_IdsPos + 4L * v, getId(v));
+		}
+		for (int v = 0; v <= n; v++){
+			file.putInt(m_OffsetsPos + 4L * v, offsets[v]);
+		}
+		//walking sources in ascending order keeps every reversed row sorted
+		for (int v = 0; v < n; v++){
+			for (int e = getEdgeStart(v); e < getEdgeEnd(v); e++){
+				file.putInt(m_TargetsPos + 4L * offsets[getEdgeTarget(e)]++, v);
+			}
+		}
+		file.force();
+	}
+
+	/**
+	 * isSymmetric: true if every edge has its reverse edge, as stored in the file header
+	 */
+	@Override
+	public boolean isSymmetric(){
+		return m_Symmetric;
+	}
+
+	/** (non-Javadoc)
+	 * @see graph.Graph#exportGraph()
+	 */
+	@Override
+	public HashMap<Integer, HashSet<Integer>> exportGraph() {
+		HashMap<Integer, HashSet<Integer>> map = new HashMap<Integer, HashSet<Integer>>();
+		for (int v = 0; v < getNumVertices(); v++){
+			map.put(getId(v), getNeighbors(getId(v)));
+		}
+		return map;
+	}
+
+	/**
+	 * Index level access (IndexedGraph)
+	 */
+
+	/* A MappedGraph is its own CSR form */
+	@Override
+	public IndexedGraph getIndexedGraph(){
+		return this;
+	}
+
+	@Override
+	public int getIndex(int id){
+		//binary search of the sorted ids
+		int low = 0;
+		int high = m_NumVertices - 1;
+		while (low <= high){
+			int mid = (low + high) >>> 1;
+			int midId = getId(mid);
+			if (midId < id)
+				low = mid + 1;
+			else if (midId > id)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	@Override
+	public int getId(int index){
+		return m_File.getInt(m_IdsPos + 4L * index);
+	}
+
+	@Override
+	public int getEdgeStart(int index){
+		return m_File.getInt(m_OffsetsPos + 4L * index);
+	}
+
+	@Override
+	public int getEdgeEnd(int index){
+		return m_File.getInt(m_OffsetsPos + 4L * (index + 1));
+	}
+
+	@Override
+	public int getEdgeTarget(int edge){
+		return m_File.getInt(m_TargetsPos + 4L * edge);
+	}
+
+	/**
+	 * Getters and setters by vertex id (CascadeGraph)
+	 */
+
+	@Override
+	public int getNumVertices(){
+		return m_NumVertices;
+	}
+
+	@Override
+	public int getNumEdges(){
+		return m_NumEdges;
+	}
+
+	@Override
+	public Set<Integer> getVertices(){
+		//view over the mapped ids, no copy
+		return new AbstractSet<Integer>(){
+			@Override
+			public Iterator<Integer> iterator(){
+				return new Iterator<Integer>(){
+					private int m_next = 0;
+
+					@Override
+					public boolean hasNext(){
+						return m_next < m_NumVertices;
+					}
+
+					@Override
+					public Integer next(){
+						if (m_next >= m_NumVertices)
+							throw new NoSuchElementException();
+						return getId(m_next++);
+					}
+				};
+			}
+
+			@Override
+			public boolean contains(Object o){
+				return o instanceof Integer && getIndex((Integer) o) >= 0;
+			}
+
+			@Override
+			public int size(){
+				return m_NumVertices;
+			}
+		};
+	}
+
+	@Override
+	public HashSet<Integer> getNeighbors(int vertex){
+		int v = getIndex(vertex);
+		if (v < 0)
+			return null;
+
+		HashSet<Integer> neighbors = new HashSet<Integer>();
+		for (int e = getEdgeStart(v); e < getEdgeEnd(v); e++){
+			neighbors.add(getId(getEdgeTarget(e)));
+		}
+		return neighbors;
+	}
+
+	@Override
+	public void forEachNeighbor(int vertex, IntConsumer action){
+		int v = getIndex(vertex);
+		if (v < 0)
+			return;
+
+		for (int e = getEdgeStart(v); e < getEdgeEnd(v); e++){
+			action.accept(getId(getEdgeTarget(e)));
+		}
+	}
+
+	@Override
+	public int degree(int vertex){
+		int v = getIndex(vertex);
+		if (v < 0)
+			return -1;
+
+		return getEdgeEnd(v) - getEdgeStart(v);
+	}
+
+	@Override
+	public boolean hasEdge(int from, int to){
+		int f = getIndex(from);
+		int t = getIndex(to);
+		if (f < 0 || t < 0)
+			return false;
+
+		//rows are sorted
+		int low = getEdgeStart(f);
+		int high = getEdgeEnd(f) - 1;
+		while (low <= high){
+			int mid = (low + high) >>> 1;
+			int target = getEdgeTarget(mid);
+			if (target < t)
+				low = mid + 1;
+			else if (target > t)
+				high = mid - 1;
+			else
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public char getABProperty(int v){
+		int index = getIndex(v);
+		if (index < 0)
+			return '\0';
+
+		long word = m_Attributes.getLong(m_PropertyPos + 8L * (index >>> 6));
+		return (word & (1L << index)) != 0 ? 'A' : 'B';
+	}
+
+	@Override
+	public void setNodeToA(int v){
+		int index = getIndex(v);
+		if (index < 0)
+			return;
+
+		long pos = m_PropertyPos + 8L * (index >>> 6);
+		m_Attributes.putLong(pos, m_Attributes.getLong(pos) | (1L << index));
+	}
+
+	@Override
+	public void setNodeToB(int v){
+		int index = getIndex(v);
+		if (index < 0)
+			return;
+
+		long pos = m_PropertyPos + 8L * (index >>> 6);
+		m_Attributes.putLong(pos, m_Attributes.getLong(pos) & ~(1L << index));
+	}
+
+	@Override
+	public void setNodeCloseness(int node, double value){
+		int index = getIndex(node);
+		if (index < 0)
+			return;
+
+		m_Attributes.putDouble(m_ClosenessPos + 8L * index, value);
+	}
+
+	@Override
+	public double getNodeCloseness(int node){
+		int index = getIndex(node);
+		if (index < 0)
+			return -1;
+
+		return m_Attributes.getDouble(m_ClosenessPos + 8L * index);
+	}
+
+	@Override
+	public void setDeg2Hop(int node, int value){
+		int index = getIndex(node);
+		if (index < 0)
+			return;
+
+		m_Attributes.putInt(m_Deg2HopPos + 4L * index, value);
+	}
+
+	@Override
+	public int getDeg2Hop(int node){
+		int index = getIndex(node);
+		if (index < 0)
+			return -1;
+
+		return m_Attributes.getInt(m_Deg2HopPos + 4L * index);
+	}
+
+	@Override
+	public void setDegrees(int node, int value){
+		int index = getIndex(node);
+		if (index < 0)
+			return;
+
+		m_Attributes.putInt(m_DegreePos + 4L * index, value);
+	}
+
+	@Override
+	public int getDegrees(int node){
+		int index = getIndex(node);
+		if (index < 0)
+			return -1;
+
+		return m_Attributes.getInt(m_DegreePos + 4L * index);
+	}
+}
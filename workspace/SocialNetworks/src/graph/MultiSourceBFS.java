@@ -0,0 +1,275 @@
+package graph;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * @author kguajardo
+ *
+ * MultiSourceBFS: Bit parallel BFS from up to 64 sources at once (MS-BFS).
+ *
+ * Every vertex keeps a 64 bit word per search state, bit i standing for source i of
+ * the batch: seen (source i has reached the vertex) and frontier (source i reached it
+ * in the last level).  Expanding a level scans the edges of each frontier vertex once
+ * and ORs its frontier word into the neighbor, so all sources of the batch share one
+ * scan of the adjacency.  On small world social graphs most vertices are reached by
+ * many sources in the same level, which makes a batch cost little more than one BFS.
+ *
+ * For each source the search records the sum of the hops to every vertex reached, the
+ * number of vertices reached and the largest hop count (eccentricity), the inputs for
+ * closeness and degrees of separation.  runToTargets records the same totals per
+ * vertex reached instead, which is what sampling based estimates need.
+ *
+ * An instance holds the buffers for one batch at a time and is not thread safe;
+ * runAllSources runs batches in parallel with one instance per worker thread.
+ *
+ */
+public class MultiSourceBFS {
+
+	//sources per batch, one per bit of a long
+	public static final int BATCH_SIZE = 64;
+
+	private final IndexedGraph m_Graph;
+
+	//bit i set: source i of the batch has reached the vertex / reached it last level
+	private final long[] m_Seen;
+	private final long[] m_Frontier;
+
+	//bits reaching the vertex in the level being expanded
+	private final long[] m_Next;
+
+	//vertices with a frontier word, and vertices getting a next word
+	private int[] m_FrontierList;
+	private int[] m_NextList;
+
+	//vertices with a seen word, cleared after each batch
+	private final int[] m_Touched;
+
+	public MultiSourceBFS(IndexedGraph graph){
+		int n = graph.getNumVertices();
+		m_Graph = graph;
+		m_Seen = new long[n];
+		m_Frontier = new long[n];
+		m_Next = new long[n];
+		m_FrontierList = new int[n];
+		m_NextList = new int[n];
+		m_Touched = new int[n];
+	}
+
+	/**
+	 * run: BFS from sources[offset] .. sources[offset+count-1], count at most BATCH_SIZE.
+	 * The result for sources[offset+i] is written at position offset+i of each output
+	 * array.  An output array can be null if it is not needed.
+	 *
+	 * @param sources : vertex indices to search from
+	 * @param distanceSum : sum of the hops to every vertex reached
+	 * @param reached : number of vertices reached, not counting the source
+	 * @param eccentricity : hops to the farthest vertex reached
+	 */
+	public void run(int[] sources, int offset, int count, long[] distanceSum, int[] reached, int[] eccentricity){
+		search(sources, offset, count, distanceSum, reached, eccentricity, null, null, null, null, null);
+	}
+
+	/**
+	 * runToTargets: BFS from sources[offset] .. sources[offset+count-1], count at most
+	 * BATCH_SIZE, adding up the hops per vertex reached instead of per source.  Each
+	 * output array is indexed by vertex index and is added to, not overwritten, so
+	 * several batches can be accumulated.  An output array can be null if it is not
+	 * needed.  A source does not count as reaching itself.
+	 *
+	 * @param hopSum : sum of the hops from each source that reaches the vertex
+	 * @param hopCount : number of sources that reach the vertex
+	 * @param maxHops : largest hop count from a source to the vertex
+	 * @param sourceOffset : value per source, sourceOffset[offset+i] for sources[offset+i]
+	 * @param minHopsPlusOffset : smallest hops + sourceOffset over the sources reaching
+	 *                            the vertex, initialize to Integer.MAX_VALUE
+	 */
+	public void runToTargets(int[] sources, int offset, int count, long[] hopSum, int[] hopCount,
+			int[] maxHops, int[] sourceOffset, int[] minHopsPlusOffset){
+		search(sources, offset, count, null, null, null, hopSum, hopCount, maxHops, sourceOffset, minHopsPlusOffset);
+	}
+
+	/**
+	 * search: the MS-BFS of run and runToTargets, recording the totals the caller asked
+	 * for (non null arrays).
+	 */
+	private void search(int[] sources, int offset, int count, long[] distanceSum, int[] reached, int[] eccentricity,
+			long[] hopSum, int[] hopCount, int[] maxHops, int[] sourceOffset, int[] minHopsPlusOffset){
+		if (count > BATCH_SIZE)
+			throw new IllegalArgumentException("at most " + BATCH_SIZE + " sources per batch");
+
+		long[] sum = new long[BATCH_SIZE];
+		int[] found = new int[BATCH_SIZE];
+		int[] ecc = new int[BATCH_SIZE];
+
+		//Start: each source has reached itself
+		int frontierSize = 0;
+		int numTouched = 0;
+		for (int i = 0; i < count; i++){
+			int s = sources[offset + i];
+			if (m_Seen[s] == 0)
+				m_Touched[numTouched++] = s;
+			if (m_Frontier[s] == 0)
+				m_FrontierList[frontierSize++] = s;
+			m_Seen[s] |= 1L << i;
+			m_Frontier[s] |= 1L << i;
+		}
+
+		int level = 0;
+		while (frontierSize > 0){
+			level++;
+
+			//expand: push frontier bits to the neighbors that have not seen them
+			int nextSize = 0;
+			for (int f = 0; f < frontierSize; f++){
+				int v = m_FrontierList[f];
+				long bits = m_Frontier[v];
+				for (int e = m_Graph.getEdgeStart(v); e < m_Graph.getEdgeEnd(v); e++){
+					int w = m_Graph.getEdgeTarget(e);
+					long add = bits & ~m_Seen[w];
+					if (add != 0){
+						if (m_Next[w] == 0)
+							m_NextList[nextSize++] = w;
+						m_Next[w] |= add;
+					}
+				}
+			}
+
+			//old frontier is done
+			for (int f = 0; f < frontierSize; f++){
+				m_Frontier[m_FrontierList[f]] = 0;
+			}
+
+			//next level becomes the frontier, record the hops of each new bit
+			for (int f = 0; f < nextSize; f++){
+				int w = m_NextList[f];
+				long bits = m_Next[w];
+				m_Next[w] = 0;
+				if (m_Seen[w] == 0)
+					m_Touched[numTouched++] = w;
+				m_Seen[w] |= bits;
+				m_Frontier[w] = bits;
+
+				//totals per vertex
+				if (hopSum != null)
+					hopSum[w] += (long) level * Long.bitCount(bits);
+				if (hopCount != null)
+					hopCount[w] += Long.bitCount(bits);
+				if (maxHops != null && level > maxHops[w])
+					maxHops[w] = level;
+
+				//totals per source
+				if (distanceSum == null && reached == null && eccentricity == null && minHopsPlusOffset == null)
+					continue;
+				while (bits != 0){
+					int i = Long.numberOfTrailingZeros(bits);
+					sum[i] += level;
+					found[i]++;
+					ecc[i] = level;
+					if (minHopsPlusOffset != null && level + sourceOffset[offset + i] < minHopsPlusOffset[w])
+						minHopsPlusOffset[w] = level + sourceOffset[offset + i];
+					bits &= bits - 1;
+				}
+			}
+
+			int[] swap = m_FrontierList;
+			m_FrontierList = m_NextList;
+			m_NextList = swap;
+			frontierSize = nextSize;
+		}
+
+		//clear the buffers for the next batch
+		for (int t = 0; t < numTouched; t++){
+			m_Seen[m_Touched[t]] = 0;
+		}
+
+		for (int i = 0; i < count; i++){
+			if (distanceSum != null)
+				distanceSum[offset + i] = sum[i];
+			if (reached != null)
+				reached[offset + i] = found[i];
+			if (eccentricity != null)
+				eccentricity[offset + i] = ecc[i];
+		}
+	}
+
+	/**
+	 * runAllSources: MS-BFS from every vertex of graph, BATCH_SIZE sources per batch,
+	 * batches spread over a fork/join pool.  Results are per vertex index, an output
+	 * array can be null if it is not needed.
+	 *
+	 * @param parallelism : number of threads, 0 uses the common fork/join pool
+	 */
+	public static void runAllSources(IndexedGraph graph, int parallelism,
+			long[] distanceSum, int[] reached, int[] eccentricity){
+		int n = graph.getNumVertices();
+		int[] sources = new int[n];
+		for (int v = 0; v < n; v++){
+			sources[v] = v;
+		}
+		runSources(graph, parallelism, sources, distanceSum, reached, eccentricity);
+	}
+
+	/**
+	 * runSources: MS-BFS from the given vertex indices, batches spread over a fork/join
+	 * pool.  The result for sources[i] is written at position i.
+	 *
+	 * @param parallelism : number of threads, 0 uses the common fork/join pool
+	 */
+	public static void runSources(IndexedGraph graph, int parallelism, int[] sources,
+			long[] distanceSum, int[] reached, int[] eccentricity){
+		ThreadLocal<MultiSourceBFS> kernels = new ThreadLocal<MultiSourceBFS>(){
+			@Override
+			protected MultiSourceBFS initialValue(){
+				return new MultiSourceBFS(graph);
+			}
+		};
+		ForkJoinPool pool = parallelism > 0 ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+		try {
+			pool.invoke(new BatchRange(kernels, sources, 0, sources.length, distanceSum, reached, eccentricity));
+		}
+		finally {
+			if (pool != ForkJoinPool.commonPool())
+				pool.shutdown();
+		}
+	}
+
+	/**
+	 * BatchRange: fork/join task running the batches of sources[from..to-1]
+	 */
+	private static class BatchRange extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final ThreadLocal<MultiSourceBFS> m_Kernels;
+		private final int[] m_Sources;
+		private final int m_From;
+		private final int m_To;
+		private final long[] m_DistanceSum;
+		private final int[] m_Reached;
+		private final int[] m_Eccentricity;
+
+		BatchRange(ThreadLocal<MultiSourceBFS> kernels, int[] sources, int from, int to,
+				long[] distanceSum, int[] reached, int[] eccentricity){
+			m_Kernels = kernels;
+			m_Sources = sources;
+			m_From = from;
+			m_To = to;
+			m_DistanceSum = distanceSum;
+			m_Reached = reached;
+			m_Eccentricity = eccentricity;
+		}
+
+		@Override
+		protected void compute(){
+			if (m_To - m_From <= BATCH_SIZE){
+				m_Kernels.get().run(m_Sources, m_From, m_To - m_From, m_DistanceSum, m_Reached, m_Eccentricity);
+				return;
+			}
+			//split on a batch boundary
+			int numBatches = (m_To - m_From + BATCH_SIZE - 1) / BATCH_SIZE;
+			int mid = m_From + (numBatches / 2) * BATCH_SIZE;
+			invokeAll(new BatchRange(m_Kernels, m_Sources, m_From, mid, m_DistanceSum, m_Reached, m_Eccentricity),
+					new BatchRange(m_Kernels, m_Sources, mid, m_To, m_DistanceSum, m_Reached, m_Eccentricity));
+		}
+	}
+}
@@ -0,0 +1,519 @@
+package graph;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import util.MappedFile;
+import util.ParallelLoop;
+
+/**
+ * @author kguajardo
+ *
+ * PrunedLandmarkLabeling: Exact distance index of an IndexedGraph (Akiba, Iwata and
+ * Yoshida), built once so a shortest path length in hops is a merge of two short
+ * sorted arrays instead of a search.
+ *
+ * Every vertex v gets an out label, pairs (hub, d(v, hub)), and an in label, pairs
+ * (hub, d(hub, v)); on a symmetric graph they are the same label.  d(s, t) is the
+ * smallest d(s, h) + d(h, t) over the hubs h in both the out label of s and the in
+ * label of t.  The vertices are hubs in order of degree, highest first: a BFS from
+ * each hub adds it to the labels of the vertices it reaches, but stops at a vertex
+ * whose distance the labels added so far already give.  The hubs of a social graph
+ * are on most shortest paths, so the later searches stop almost at once and the
+ * labels stay short.  Hubs are numbered by rank, and are added in rank order, so each
+ * label is sorted without sorting.
+ *
+ * Building runs the searches of as many hubs as there are threads at the same time,
+ * each one pruning with the labels of the hubs before its batch only.  Labels get
+ * somewhat longer than in a sequential build (one thread builds the same labels as
+ * the sequential algorithm), the distances stay exact.
+ *
+ * The index can be saved next to the edge file (filename + SUFFIX) and loaded after a
+ * restart, see util.GraphLoader.loadDistanceIndex.  Layout, all values 32 bit little
+ * endian ints:
+ *   header : MAGIC, VERSION, flags, n, m, graph fingerprint (2 ints), reserved
+ *   out    : n+1 offsets, hubs, distances
+ *   in     : n+1 offsets, hubs, distances, only when flags bit 0 (symmetric) is not set
+ *
+ */
+public class PrunedLandmarkLabeling {
+
+	//"PLLI"
+	public static final int MAGIC = 0x504C4C49;
+	public static final int VERSION = 1;
+	public static final String SUFFIX = ".pll";
+
+	private static final int HEADER_INTS = 8;
+	private static final int FLAG_SYMMETRIC = 1;
+
+	//queries per piece of a parallel loop
+	private static final int GRAIN = 1 << 8;
+
+	private static final int UNREACHED = Integer.MAX_VALUE / 2;
+
+	private final IndexedGraph m_Graph;
+	private final boolean m_Symmetric;
+
+	//number of worker threads, 0 uses the common fork/join pool
+	private int m_Parallelism;
+
+	//labels per vertex index in CSR form, hub ranks ascending; the in arrays are the
+	//out arrays on a symmetric graph
+	private int[] m_OutOffsets;
+	private int[] m_OutHubs;
+	private int[] m_OutDistances;
+	private int[] m_InOffsets;
+	private int[] m_InHubs;
+	private int[] m_InDistances;
+
+	public PrunedLandmarkLabeling(IndexedGraph graph){
+		m_Graph = graph;
+		m_Symmetric = graph.isSymmetric();
+		m_Parallelism = 0;
+	}
+
+	/**
+	 * build: computes the labels of every vertex
+	 */
+	public void build(){
+		int n = m_Graph.getNumVertices();
+		IndexedGraph reverse = m_Graph.transpose();
+		int[] order = degreeOrder(reverse);
+
+		//labels built so far, one growing list per vertex
+		LabelLists out = new LabelLists(n);
+		LabelLists in = m_Symmetric ? out : new LabelLists(n);
+
+		ThreadLocal<SearchContext> contexts = new ThreadLocal<SearchContext>(){
+			@Override
+			protected SearchContext initialValue(){
+				return new SearchContext(n);
+			}
+		};
+		ForkJoinPool pool = m_Parallelism > 0 ? new ForkJoinPool(m_Parallelism) : ForkJoinPool.commonPool();
+		try {
+			int batch = pool.getParallelism();
+			HubLabels[] forward = new HubLabels[batch];
+			HubLabels[] backward = new HubLabels[batch];
+			for (int start = 0; start < n; start += batch){
+				int first = start;
+				int end = Math.min(n, start + batch);
+
+				//the labels are only read while the batch runs
+				ParallelLoop.RangeBody body = (from, to) -> {
+					SearchContext ctx = contexts.get();
+					for (int rank = from; rank < to; rank++){
+						int hub = order[rank];
+						forward[rank - first] = ctx.search(m_Graph, hub, out, in);
+						if (!m_Symmetric)
+							backward[rank - first] = ctx.search(reverse, hub, in, out);
+					}
+				};
+				if (end - start == 1)
+					body.run(start, end);
+				else
+					ParallelLoop.forRange(pool, start, end, 1, body);
+
+				//rank order keeps every label sorted
+				for (int rank = start; rank < end; rank++){
+					in.append(rank, forward[rank - start]);
+					if (!m_Symmetric)
+						out.append(rank, backward[rank - start]);
+				}
+			}
+		}
+		finally {
+			if (pool != ForkJoinPool.commonPool())
+				pool.shutdown();
+		}
+
+		m_OutOffsets = new int[n + 1];
+		m_OutHubs = new int[out.total()];
+		m_OutDistances = new int[m_OutHubs.length];
+		out.flatten(m_OutOffsets, m_OutHubs, m_OutDistances);
+		if (m_Symmetric){
+			m_InOffsets = m_OutOffsets;
+			m_InHubs = m_OutHubs;
+			m_InDistances = m_OutDistances;
+		}
+		else {
+			m_InOffsets = new int[n + 1];
+			m_InHubs = new int[in.total()];
+			m_InDistances = new int[m_InHubs.length];
+			in.flatten(m_InOffsets, m_InHubs, m_InDistances);
+		}
+	}
+
+	/**
+	 * degreeOrder: vertex indices by decreasing degree (outgoing + incoming), ties by
+	 * index
+	 */
+	private int[] degreeOrder(IndexedGraph reverse){
+		int n = m_Graph.getNumVertices();
+		long[] keys = new long[n];
+		for (int v = 0; v < n; v++){
+			long degree = (m_Graph.getEdgeEnd(v) - m_Graph.getEdgeStart(v))
+					+ (reverse.getEdgeEnd(v) - reverse.getEdgeStart(v));
+			keys[v] = ((Integer.MAX_VALUE - degree) << 32) | v;
+		}
+		Arrays.sort(keys);
+		int[] order = new int[n];
+		for (int r = 0; r < n; r++){
+			order[r] = (int) keys[r];
+		}
+		return order;
+	}
+
+	/**
+	 * distance: number of hops of the shortest path from index source to index target
+	 * @return 0 if source == target, -1 if target can not be reached or an index is
+	 *         not in the graph
+	 */
+	public int distance(int source, int target){
+		int n = m_Graph.getNumVertices();
+		if (source < 0 || target < 0 || source >= n || target >= n)
+			//bad input
+			return -1;
+		if (source == target)
+			return 0;
+
+		int i = m_OutOffsets[source];
+		int iEnd = m_OutOffsets[source + 1];
+		int j = m_InOffsets[target];
+		int jEnd = m_InOffsets[target + 1];
+		int best = UNREACHED;
+		while (i < iEnd && j < jEnd){
+			int hi = m_OutHubs[i];
+			int hj = m_InHubs[j];
+			if (hi == hj){
+				best = Math.min(best, m_OutDistances[i] + m_InDistances[j]);
+				i++;
+				j++;
+			}
+			else if (hi < hj)
+				i++;
+			else
+				j++;
+		}
+		return best == UNREACHED ? -1 : best;
+	}
+
+	/**
+	 * distances: distance of every pair (sources[i], targets[i]), run over all cores
+	 * @return hops of each pair, -1 for the pairs distance returns -1 for
+	 */
+	public int[] distances(int[] sources, int[] targets){
+		if (sources == null || targets == null || sources.length != targets.length)
+			//bad input
+			return null;
+
+		int[] result = new int[sources.length];
+		ParallelLoop.forRange(m_Parallelism, 0, sources.length, GRAIN, (from, to) -> {
+			for (int i = from; i < to; i++){
+				result[i] = distance(sources[i], targets[i]);
+			}
+		});
+		return result;
+	}
+
+	/* Graph the index was built for */
+	public IndexedGraph getGraph(){
+		return m_Graph;
+	}
+
+	/* Number of (hub, distance) pairs in all labels */
+	public long getNumEntries(){
+		long entries = m_OutHubs.length;
+		return m_Symmetric ? entries : entries + m_InHubs.length;
+	}
+
+	/**
+	 * setParallelism: number of threads for build and distances, 0 (default) uses the
+	 * common pool
+	 */
+	public void setParallelism(int threads){
+		if (threads < 0)
+			//bad input
+			return;
+
+		m_Parallelism = threads;
+	}
+
+	/**
+	 * save: Writes the labels to filename, replacing it
+	 */
+	public void save(String filename) throws IOException {
+		int n = m_Graph.getNumVertices();
+		long size = 4L * HEADER_INTS + sectionBytes(n, m_OutHubs.length);
+		if (!m_Symmetric)
+			size += sectionBytes(n, m_InHubs.length);
+
+		Files.deleteIfExists(Paths.get(filename));
+		MappedFile file = MappedFile.openWrite(filename, size);
+		long fingerprint = fingerprint(m_Graph);
+		file.putInt(0, MAGIC);
+		file.putInt(4, VERSION);
+		file.putInt(8, m_Symmetric ? FLAG_SYMMETRIC : 0);
+		file.putInt(12, n);
+		file.putInt(16, m_Graph.getNumEdges());
+		file.putInt(20, (int) fingerprint);
+		file.putInt(24, (int) (fingerprint >>> 32));
+
+		long pos = putInts(file, 4L * HEADER_INTS, m_OutOffsets);
+		pos = putInts(file, pos, m_OutHubs);
+		pos = putInts(file, pos, m_OutDistances);
+		if (!m_Symmetric){
+			pos = putInts(file, pos, m_InOffsets);
+			pos = putInts(file, pos, m_InHubs);
+			putInts(file, pos, m_InDistances);
+		}
+		file.force();
+	}
+
+	/**
+	 * load: Reads the labels saved by save for graph
+	 * @throws IOException if the file can not be read or was saved for another graph
+	 */
+	public static PrunedLandmarkLabeling load(IndexedGraph graph, String filename) throws IOException {
+		MappedFile file = MappedFile.openRead(filename);
+		if (file.size() < 4L * HEADER_INTS || file.getInt(0) != MAGIC)
+			throw new IOException(filename + " is not a distance index file");
+		if (file.getInt(4) != VERSION)
+			throw new IOException(filename + " has unsupported version " + file.getInt(4));
+
+		int n = graph.getNumVertices();
+		PrunedLandmarkLabeling index = new PrunedLandmarkLabeling(graph);
+		boolean symmetric = (file.getInt(8) & FLAG_SYMMETRIC) != 0;
+		long fingerprint = fingerprint(graph);
+		if (symmetric != index.m_Symmetric || file.getInt(12) != n || file.getInt(16) != graph.getNumEdges()
+				|| file.getInt(20) != (int) fingerprint || file.getInt(24) != (int) (fingerprint >>> 32))
+			throw new IOException(filename + " does not belong to this graph");
+
+		long pos = 4L * HEADER_INTS;
+		index.m_OutOffsets = getInts(file, pos, n + 1, filename);
+		pos += 4L * (n + 1);
+		int entries = index.m_OutOffsets[n];
+		index.m_OutHubs = getInts(file, pos, entries, filename);
+		pos += 4L * entries;
+		index.m_OutDistances = getInts(file, pos, entries, filename);
+		pos += 4L * entries;
+		if (symmetric){
+			index.m_InOffsets = index.m_OutOffsets;
+			index.m_InHubs = index.m_OutHubs;
+			index.m_InDistances = index.m_OutDistances;
+		}
+		else {
+			index.m_InOffsets = getInts(file, pos, n + 1, filename);
+			pos += 4L * (n + 1);
+			entries = index.m_InOffsets[n];
+			index.m_InHubs = getInts(file, pos, entries, filename);
+			pos += 4L * entries;
+			index.m_InDistances = getInts(file, pos, entries, filename);
+		}
+		return index;
+	}
+
+	private static long sectionBytes(int n, int entries){
+		return 4L * (n + 1) + 8L * entries;
+	}
+
+	private static long putInts(MappedFile file, long pos, int[] values){
+		for (int value : values){
+			file.putInt(pos, value);
+			pos += 4;
+		}
+		return pos;
+	}
+
+	private static int[] getInts(MappedFile file, long pos, int count, String filename) throws IOException {
+		if (count < 0 || pos + 4L * count > file.size())
+			throw new IOException(filename + " is truncated");
+
+		int[] values = new int[count];
+		for (int i = 0; i < count; i++){
+			values[i] = file.getInt(pos + 4L * i);
+		}
+		return values;
+	}
+
+	/**
+	 * fingerprint: hash of the vertex ids and edges of graph, so an index is not
+	 * loaded for a graph that changed since it was saved
+	 */
+	private static long fingerprint(IndexedGraph graph){
+		long hash = graph.getNumVertices();
+		for (int v = 0; v < graph.getNumVertices(); v++){
+			hash = hash * 0x9E3779B97F4A7C15L + graph.getId(v);
+			hash = hash * 0x9E3779B97F4A7C15L + graph.getEdgeStart(v);
+		}
+		for (int e = 0; e < graph.getNumEdges(); e++){
+			hash = hash * 0x9E3779B97F4A7C15L + graph.getEdgeTarget(e);
+		}
+		return hash;
+	}
+
+	/**
+	 * HubLabels: the vertices a hub's search added it to, with their distances
+	 */
+	private static final class HubLabels {
+		private int[] m_Vertices = new int[16];
+		private int[] m_Distances = new int[16];
+		private int m_Size;
+
+		void add(int vertex, int distance){
+			if (m_Size == m_Vertices.length){
+				m_Vertices = Arrays.copyOf(m_Vertices, 2 * m_Size);
+				m_Distances = Arrays.copyOf(m_Distances, 2 * m_Size);
+			}
+			m_Vertices[m_Size] = vertex;
+			m_Distances[m_Size] = distance;
+			m_Size++;
+		}
+	}
+
+	/**
+	 * LabelLists: one growing label per vertex, used while building
+	 */
+	private static final class LabelLists {
+		private final int[][] m_Hubs;
+		private final int[][] m_Distances;
+		private final int[] m_Size;
+
+		LabelLists(int n){
+			m_Hubs = new int[n][];
+			m_Distances = new int[n][];
+			m_Size = new int[n];
+		}
+
+		/**
+		 * append: adds hub rank to the labels of the vertices in labels
+		 */
+		void append(int rank, HubLabels labels){
+			for (int i = 0; i < labels.m_Size; i++){
+				int v = labels.m_Vertices[i];
+				int size = m_Size[v];
+				if (m_Hubs[v] == null){
+					m_Hubs[v] = new int[4];
+					m_Distances[v] = new int[4];
+				}
+				else if (size == m_Hubs[v].length){
+					m_Hubs[v] = Arrays.copyOf(m_Hubs[v], 2 * size);
+					m_Distances[v] = Arrays.copyOf(m_Distances[v], 2 * size);
+				}
+				m_Hubs[v][size] = rank;
+				m_Distances[v][size] = labels.m_Distances[i];
+				m_Size[v] = size + 1;
+			}
+		}
+
+		int total(){
+			long total = 0;
+			for (int size : m_Size){
+				total += size;
+			}
+			if (total > Integer.MAX_VALUE - 8)
+				throw new IllegalStateException(total + " label entries do not fit in an array");
+			return (int) total;
+		}
+
+		void flatten(int[] offsets, int[] hubs, int[] distances){
+			int pos = 0;
+			for (int v = 0; v < m_Size.length; v++){
+				offsets[v] = pos;
+				if (m_Size[v] > 0){
+					System.arraycopy(m_Hubs[v], 0, hubs, pos, m_Size[v]);
+					System.arraycopy(m_Distances[v], 0, distances, pos, m_Size[v]);
+				}
+				pos += m_Size[v];
+			}
+			offsets[m_Size.length] = pos;
+		}
+	}
+
+	/**
+	 * SearchContext: buffers of the pruned searches of one thread, visited marks are
+	 * generation stamps so nothing is cleared between searches
+	 */
+	private static final class SearchContext {
+		private final int[] m_Stamp;
+		private final int[] m_Distance;
+		private final int[] m_Queue;
+
+		//distance from the hub to each hub rank of its own label, UNREACHED otherwise
+		private final int[] m_HubDistance;
+		private int m_Generation;
+
+		SearchContext(int n){
+			m_Stamp = new int[n];
+			m_Distance = new int[n];
+			m_Queue = new int[n];
+			m_HubDistance = new int[n];
+			Arrays.fill(m_HubDistance, UNREACHED);
+			m_Generation = 0;
+		}
+
+		/**
+		 * search: pruned BFS from hub over graph.  A vertex w at distance d is labeled
+		 * with the hub, and its edges followed, unless d(hub, w) <= d already follows
+		 * from own (labels of hub toward other hubs, in the direction of graph) and
+		 * reached (labels of w from other hubs)
+		 */
+		HubLabels search(IndexedGraph graph, int hub, LabelLists own, LabelLists reached){
+			if (++m_Generation == Integer.MAX_VALUE){
+				Arrays.fill(m_Stamp, 0);
+				m_Generation = 1;
+			}
+			int generation = m_Generation;
+			int[] hubs = own.m_Hubs[hub];
+			int numHubs = own.m_Size[hub];
+			for (int i = 0; i < numHubs; i++){
+				m_HubDistance[hubs[i]] = own.m_Distances[hub][i];
+			}
+
+			HubLabels labels = new HubLabels();
+			int head = 0;
+			int tail = 0;
+			m_Stamp[hub] = generation;
+			m_Distance[hub] = 0;
+			m_Queue[tail++] = hub;
+			while (head < tail){
+				int w = m_Queue[head++];
+				int d = m_Distance[w];
+				if (covered(reached, w, d))
+					continue;
+
+				labels.add(w, d);
+				for (int e = graph.getEdgeStart(w); e < graph.getEdgeEnd(w); e++){
+					int x = graph.getEdgeTarget(e);
+					if (m_Stamp[x] != generation){
+						m_Stamp[x] = generation;
+						m_Distance[x] = d + 1;
+						m_Queue[tail++] = x;
+					}
+				}
+			}
+
+			for (int i = 0; i < numHubs; i++){
+				m_HubDistance[hubs[i]] = UNREACHED;
+			}
+			return labels;
+		}
+
+		/**
+		 * covered: true if a hub in both labels gives a path of at most d hops to w
+		 */
+		private boolean covered(LabelLists reached, int w, int d){
+			int[] hubs = reached.m_Hubs[w];
+			int[] distances = reached.m_Distances[w];
+			int size = reached.m_Size[w];
+			for (int i = 0; i < size; i++){
+				if (m_HubDistance[hubs[i]] + distances[i] <= d)
+					return true;
+			}
+			return false;
+		}
+	}
+}
@@ -3,8 +3,12 @@
  */
 package graph;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+
+import util.MetricsRegistry;
+import util.TopKSelector;
 
 
 
@@ -20,13 +24,23 @@ import java.util.HashSet;
  * (maximum value is more central)
  * 
  * Degree Centrality 2 Hop: number of degrees of a node + number of degrees of all its neighbors
- * (maximum value is more central)
+ * (maximum value is more central).  setDeg2HopMode can rank by the number of distinct nodes
+ * within 2 hops instead (exact or estimated), which does not count the same node once per
+ * path to it, see TwoHopDegree.
  * 
  * Closeness Centrality: The average distance (number of hops) from a node to all other nodes
  * (miniumum value is more central)
+ * 
+ * Live ranking (RankNodesLive): for a CapGraph that keeps changing, RankingNodes listens to
+ * the graph and keeps the degree and 2 hop degree of every node and their ranking lists up
+ * to date.  Adding or removing the edge u->w changes the degree of u, the 2 hop degree of u
+ * by 1 + degree(w), and the 2 hop degree of every node with an edge to u by 1, so each
+ * change costs the number of incoming neighbors of u, not a pass over the graph.  All nodes
+ * are kept ranked in a TreeSet, and the ranking lists are read from its top.  Closeness
+ * depends on the whole graph and is only computed by RankNodesCloseness.
  *
  */
-public class RankingNodes {
+public class RankingNodes implements GraphChangeListener {
 	
 	// Lists of the top ranked nodes(node id's stored in list) based on centrality property
 	private ArrayList<Integer> m_TopDegreeNodes;
@@ -42,7 +56,31 @@ public class RankingNodes {
 	//i.e. 1 is 1 percent, 20 is 20%, valid values between 0 and 100
 	private int m_percentTopNodes;
 	
-	private CapGraph m_GraphtoRank;
+	private CascadeGraph m_GraphtoRank;
+	
+	//What RankNodesDeg2Hop stores and ranks by
+	public enum Deg2HopMode {
+		//degree + degrees of the neighbors
+		SCORE,
+		//distinct nodes within 2 hops
+		REACH,
+		//distinct nodes within 2 hops, estimated with HyperLogLogCounters
+		REACH_APPROX
+	}
+	private Deg2HopMode m_Deg2HopMode;
+	
+	//registers per counter (2^8) of REACH_APPROX, about 6.5% error
+	private static final int REACH_LOG2M = 8;
+	
+	//Live ranking: graph listened to (null when not live), and all its nodes ranked by
+	//degree and by 2 hop degree, keys from rankKey
+	private CapGraph m_LiveGraph;
+	private TreeSet<Long> m_LiveDegree;
+	private TreeSet<Long> m_LiveDeg2Hop;
+	
+	//change of the 2 hop degree of the incoming neighbors in the current update
+	private int m_LiveDelta;
+	private final IntConsumer m_UpdateInNeighbor = v -> setLiveDeg2Hop(v, m_LiveGraph.getDeg2Hop(v) + m_LiveDelta);
 	
 	public RankingNodes(/*CapGraph graph*/){
 		//m_GraphtoRank = graph;
@@ -52,6 +90,7 @@ public class RankingNodes {
 		m_TopClosenessNodes = new ArrayList<Integer>();
 		//m_TopCombinedCentNodes = new ArrayList<Integer>();
 		m_1DegreeNodes = new ArrayList<Integer>();
+		m_Deg2HopMode = Deg2HopMode.SCORE;
 	}
 	
 	
@@ -61,10 +100,11 @@ public class RankingNodes {
 	 * Rank in Descending Order
 	 */
 	public void RankNodesDegree(){
+		MetricsRegistry.Timer timer = MetricsRegistry.getGlobal().start("rank.degree");
 		
-		
+		TopKSelector top = new TopKSelector(getListSize(), true);
 		for (int node: m_GraphtoRank.getVertices()){
-			int deg = m_GraphtoRank.getNeighbors(node).size();
+			int deg = m_GraphtoRank.degree(node);
 			
 			//store value
 			m_GraphtoRank.setDegrees(node, deg);
@@ -76,339 +116,288 @@ public class RankingNodes {
 			}
 			
 			//Add to Ranking list
-			BinarySearchDescending(m_TopDegreeNodes,node, deg, 1 );
+			top.offer(node, deg);
 		}
+		m_TopDegreeNodes = top.getNodeList();
+		timer.stop();
 	}
 	/**
-	 * RankingNodesDeg2Hop: loop through nodes and calculate and store Deg2Hop, create List ranking
+	 * RankingNodesDeg2Hop: calculate and store Deg2Hop of all nodes, create List ranking
+	 * 
+	 * The values are computed in parallel by TwoHopDegree, as set by setDeg2HopMode,
+	 * then stored and ranked here.
 	 * 
 	 * Rank in Descending Order
 	 */
 	public void RankNodesDeg2Hop(){
+		MetricsRegistry.Timer timer = MetricsRegistry.getGlobal().start("rank.deg2hop");
+		rankDeg2Hop(m_Deg2HopMode);
+		timer.stop();
+	}
+	
+	private void rankDeg2Hop(Deg2HopMode mode){
+		IndexedGraph indexed = m_GraphtoRank.getIndexedGraph();
+		TwoHopDegree twoHop = new TwoHopDegree(indexed);
+		int[] deg2HopValues;
+		switch (mode){
+		case REACH:
+			deg2HopValues = twoHop.computeReach();
+			break;
+		case REACH_APPROX:
+			deg2HopValues = twoHop.computeReachApprox(REACH_LOG2M);
+			break;
+		default:
+			deg2HopValues = twoHop.computeScores();
+		}
 		
-		
-		for (int node: m_GraphtoRank.getVertices()){
-			int deg2hop = CalcDeg2Hop(node);
-			//System.out.println("Deg 2 hop for node " + node + " is " + deg2hop);
+		TopKSelector top = new TopKSelector(getListSize(), true);
+		for (int index = 0; index < indexed.getNumVertices(); index++){
+			int node = indexed.getId(index);
+			int deg2hop = deg2HopValues[index];
 			
 			//store value
 			m_GraphtoRank.setDeg2Hop(node,deg2hop);
 			
 			//Insert into Ranking list
-			BinarySearchDescending(m_TopDeg2HopNodes,node, deg2hop, 2);	
+			top.offer(node, deg2hop);
 		}
+		m_TopDeg2HopNodes = top.getNodeList();
 	}
 	/**
-	 * RankNodesCloseness: loop through nodes and calculate and store Closeness, create list ranking
+	 * RankNodesCloseness: calculate and store Closeness of all nodes, create list ranking
+	 * 
+	 * The closeness values are computed in parallel by ClosenessCentrality (one BFS per
+	 * node, spread over all cores), then stored and ranked here.
 	 * 
 	 * Rank in Ascending Order
 	 */
 	public void RankNodesCloseness(){
+		MetricsRegistry.Timer timer = MetricsRegistry.getGlobal().start("rank.closeness");
+		
+		//calculate Closeness of all nodes at once
+		IndexedGraph indexed = m_GraphtoRank.getIndexedGraph();
+		double[] closenessValues = new ClosenessCentrality(indexed).compute();
 				
-		//loop through graph nodes and calculate and store Closeness, create List ranking
+		//loop through graph nodes and store Closeness, create List ranking
+		TopKSelector top = new TopKSelector(getListSize(), false);
 		for (int node: m_GraphtoRank.getVertices()) {
-			double closeness = CalcCloseness(node);
-			
-			System.out.println("Ranking Closeness, node: " + node);
+			double closeness = closenessValues[indexed.getIndex(node)];
 			
 			//store value
 			m_GraphtoRank.setNodeCloseness(node, closeness);
 			//System.out.println("Closeness value for node " + node + " is "+ closeness);
 			
 			//insert node into ranking if in top percent
-			BinarySearchInsertAscending(m_TopClosenessNodes,node, closeness);
+			top.offer(node, closeness);
 		}
+		m_TopClosenessNodes = top.getNodeList();
+		timer.stop();
 		return;
 	}
 	
 	/**
-	 * CalcDeg2Hop: Calculate the total number of degrees of node in 2 hops (node + neighbors)
-	 * @param node
-	 * @return: return the number of degrees of node + the number of degrees of all node's neighbors
+	 * RankNodesClosenessApprox: estimate and store Closeness of all nodes from sampled
+	 * pivots, create list ranking of the top nodes computed exactly
+	 * 
+	 * For graphs too big for RankNodesCloseness.  Nodes outside the top get the estimate
+	 * from ApproximateCloseness stored, nodes that could be in the top get the exact value.
+	 * The ranking list holds topK nodes instead of the top percent.
+	 * 
+	 * Rank in Ascending Order
+	 * 
+	 * @param numSamples : number of pivots to BFS from, more is slower and more accurate
+	 * @param topK : number of nodes in the ranking list
 	 */
-	private int CalcDeg2Hop(int node){
+	public void RankNodesClosenessApprox(int numSamples, int topK){
+		MetricsRegistry.Timer timer = MetricsRegistry.getGlobal().start("rank.closenessApprox");
 		
-		if (!m_GraphtoRank.getVertices().contains(node)){
-			//not a valid node id
-			return -1;
+		IndexedGraph indexed = m_GraphtoRank.getIndexedGraph();
+		ApproximateCloseness approx = new ApproximateCloseness(indexed);
+		approx.setNumSamples(numSamples);
+		approx.setTopK(topK);
+		approx.compute();
+		
+		//store values
+		double[] closenessValues = approx.getCloseness();
+		for (int node: m_GraphtoRank.getVertices()) {
+			m_GraphtoRank.setNodeCloseness(node, closenessValues[indexed.getIndex(node)]);
 		}
 		
-		int deg2Hop =0;
-		HashSet<Integer> neighborsHop1;
-				
-		//Get 1st hop neighbor count
-		neighborsHop1 = m_GraphtoRank.getNeighbors(node);
-		deg2Hop += neighborsHop1.size();
-				
-		//Get 2nd hop neighbor count
-		for (int v: neighborsHop1){
-			deg2Hop += m_GraphtoRank.getNeighbors(v).size();	
-		}	
-		return deg2Hop;
+		//ranking list, already in ascending order
+		m_TopClosenessNodes.clear();
+		for (int index: approx.getTopVertices()){
+			m_TopClosenessNodes.add(indexed.getId(index));
+		}
+		timer.stop();
 	}
 	
 	/**
-	 * BinarySearchDescending : Insert node into descending ranked list of top values if it is 
-	 * 							in the top percent.  If value is in the top percent, use a binary
-	 * 							search to determine the correct placement in the descending order
-	 * 							list.
+	 * RankNodesClosenessSketch: estimate and store Closeness of all nodes with HyperANF,
+	 * create list ranking
+	 * 
+	 * For graphs too big for RankNodesCloseness: a few passes over the edges merging
+	 * HyperLogLog counters instead of a BFS per node.  Every stored value and the
+	 * ranking are estimates, about 1.04 / sqrt(2^log2m) relative error per count.
 	 * 
-	 * @param list : This is the ranking list to insert into.
-	 * @param node : node id  of node being ranked
-	 * @param value: Value of the property of the node id to rank.
-	 * @param numHops: Used for to determine where to get lookup values, Degree or 2HopDegree
+	 * Rank in Ascending Order
+	 * 
+	 * @param log2m : registers per counter as a power of 2 (4 to 16), HyperANF.DEFAULT_LOG2M
+	 *                is a good start
 	 */
-	private void BinarySearchDescending(ArrayList<Integer> list, int node, int value, int numHops){
-		int MinListValue;
-		
-		if (list.isEmpty()){
-			//if it's the first node to check, automatically makes it into the list
-			list.add(node);
-			return;
-		}
+	public void RankNodesClosenessSketch(int log2m){
+		MetricsRegistry.Timer timer = MetricsRegistry.getGlobal().start("rank.closenessSketch");
 		
-		//Last value in the list in the minimum value, value must be greater than this to insert
-		MinListValue = getDegreeValue(numHops, list.get(list.size()-1));
+		IndexedGraph indexed = m_GraphtoRank.getIndexedGraph();
+		HyperANF anf = new HyperANF(indexed, log2m);
+		anf.run();
+		double[] closenessValues = anf.getCloseness();
 		
-		//Ranking variables
-		float percent =(float) m_percentTopNodes/100;
-		int ListSize = (int) (m_GraphtoRank.getNumVertices() * percent);
-		if (ListSize < 1){
-			//store at a minimum the maximum value in list (1 value);
-			ListSize =1;
+		//store values and rank
+		TopKSelector top = new TopKSelector(getListSize(), false);
+		for (int index = 0; index < indexed.getNumVertices(); index++){
+			int node = indexed.getId(index);
+			m_GraphtoRank.setNodeCloseness(node, closenessValues[index]);
+			top.offer(node, closenessValues[index]);
 		}
-		boolean inserted = false;
-		
-		//Is top ranked?
-		if (list.size() >= ListSize && value < MinListValue)
-			//Not top ranked, don't insert
-					return;
-		
-		//Insert into ranking list in descending order
-		//System.out.println("Start binary search");
-		int low, high, mid;
-		high =0;
-		low = list.size() - 1;
-				
-		while (!inserted){
-			mid = high + ((low-high)/2);
-			
-			if (value == getDegreeValue(numHops,list.get(mid))){
-				//nodes with same value, insert here
-				list.add(mid, node);
-				inserted = true;
-			}
-			if (value <  getDegreeValue(numHops, list.get(mid))){
-				high = mid + 1;
-				if (high>=list.size()){
-					//insert at end, high value is greater than list size
-					list.add(node);
-					inserted = true;
-				}
-			
-				//check to see if we went passed closeness value, if so insert here
-				else if (value > getDegreeValue(numHops,list.get(high))){
-					list.add(high, node);
-					inserted = true;
-				}
-			}
-			if(value >  getDegreeValue(numHops,list.get(mid))){
-				low = mid - 1;
-				//if low value is bigger than size of list, add at end
-				if (low < 0){
-					//add at end of list
-					//System.out.println("low< 0, inserting at beginning");
-					list.add(0,node);
-					inserted = true;
-				}
-				//went passed closeness value, insert here
-				else if(value <  getDegreeValue(numHops, list.get(low))){
-					list.add(low+1, node);
-					inserted = true;
-				}
-			}		
-		}//while loop list insertion
+		m_TopClosenessNodes = top.getNodeList();
+		timer.stop();
+	}
+	
+	/**
+	 * RankNodesLive: rank the nodes of graph by degree and 2 hop degree, like 
+	 * RankNodesDegree and RankNodesDeg2Hop, and keep the stored values and ranking lists
+	 * up to date as edges and vertices are added to and removed from the graph.
+	 * The 2 hop degree is always the SCORE of Deg2HopMode, the other modes can not be
+	 * updated one edge at a time.
+	 * 
+	 * @param graph : graph to rank, it becomes the graph of this RankingNodes
+	 */
+	public void RankNodesLive(CapGraph graph){
+		StopLiveRanking();
+		setGraph(graph);
+		RankNodesDegree();
+		rankDeg2Hop(Deg2HopMode.SCORE);
 		
-		if (list.size()> ListSize){
-			//list too big, remove last from list
-			list.remove(ListSize);
+		m_LiveDegree = new TreeSet<Long>();
+		m_LiveDeg2Hop = new TreeSet<Long>();
+		for (int node : graph.getVertices()){
+			m_LiveDegree.add(rankKey(node, graph.getDegrees(node)));
+			m_LiveDeg2Hop.add(rankKey(node, graph.getDeg2Hop(node)));
 		}
-		MinListValue = getDegreeValue(numHops,list.get(list.size() - 1));	
 		
-		return;
-				
+		//build the incoming neighbors now instead of on the first change
+		graph.trackInNeighbors();
+		m_LiveGraph = graph;
+		graph.addListener(this);
 	}
 	
 	/**
-	 * getDegreeValue: Looks up degree or 2hopdegree value for node
-	 * @param numHops: 1 to lookup degree value, 2 to loop up 2hopdegree value
-	 * @param node: node to look up value for
-	 * @return:  return degree or 2hopdegree value
+	 * StopLiveRanking: stop following the changes of the graph, the ranking lists keep
+	 * their current values
 	 */
-	private int getDegreeValue(int numHops, int node){
-		if (numHops == 1) 
-			return m_GraphtoRank.getDegrees(node);
-		else if (numHops == 2)
-			return m_GraphtoRank.getDeg2Hop(node);
+	public void StopLiveRanking(){
+		if (m_LiveGraph == null)
+			return;
 		
-		return -1; //invalid numHops
-			
+		m_TopDegreeNodes = liveTop(m_LiveDegree);
+		m_TopDeg2HopNodes = liveTop(m_LiveDeg2Hop);
+		m_LiveGraph.removeListener(this);
+		m_LiveGraph = null;
+		m_LiveDegree = null;
+		m_LiveDeg2Hop = null;
+	}
+	
+	@Override
+	public void vertexAdded(int v){
+		m_LiveGraph.setDegrees(v, 0);
+		m_LiveGraph.setDeg2Hop(v, 0);
+		m_LiveDegree.add(rankKey(v, 0));
+		m_LiveDeg2Hop.add(rankKey(v, 0));
+	}
+	
+	@Override
+	public void vertexRemoved(int v){
+		//edges are already removed, both values are 0
+		m_LiveDegree.remove(rankKey(v, 0));
+		m_LiveDeg2Hop.remove(rankKey(v, 0));
+	}
+	
+	@Override
+	public void edgeAdded(int from, int to){
+		//degree of to before the edge, a self loop raised it already
+		int toDegree = m_LiveGraph.degree(to) - (from == to ? 1 : 0);
+		setLiveDegree(from, m_LiveGraph.getDegrees(from) + 1);
+		setLiveDeg2Hop(from, m_LiveGraph.getDeg2Hop(from) + 1 + toDegree);
+		m_LiveDelta = 1;
+		m_LiveGraph.forEachInNeighbor(from, m_UpdateInNeighbor);
+	}
+	
+	@Override
+	public void edgeRemoved(int from, int to){
+		//degree of to before the edge was removed
+		int toDegree = m_LiveGraph.degree(to) + (from == to ? 1 : 0);
+		setLiveDegree(from, m_LiveGraph.getDegrees(from) - 1);
+		setLiveDeg2Hop(from, m_LiveGraph.getDeg2Hop(from) - 1 - toDegree);
+		m_LiveDelta = -1;
+		m_LiveGraph.forEachInNeighbor(from, m_UpdateInNeighbor);
+	}
+	
+	private void setLiveDegree(int node, int deg){
+		m_LiveDegree.remove(rankKey(node, m_LiveGraph.getDegrees(node)));
+		m_LiveGraph.setDegrees(node, deg);
+		m_LiveDegree.add(rankKey(node, deg));
+	}
+	
+	private void setLiveDeg2Hop(int node, int deg2hop){
+		m_LiveDeg2Hop.remove(rankKey(node, m_LiveGraph.getDeg2Hop(node)));
+		m_LiveGraph.setDeg2Hop(node, deg2hop);
+		m_LiveDeg2Hop.add(rankKey(node, deg2hop));
 	}
 	
 	/**
-	 * BinarySearchAscending : Insert node into ascending ranked list of top values if it is 
-	 * 							in the top percent.  If value is in the top percent, use a binary
-	 * 							search to determine the correct placement in the ascending order
-	 * 							list.
-	 * 
-	 * @param list : This is the ranking list to insert into.
-	 * @param node : node id  of node being ranked
-	 * @param value: Value of the property of the node id to rank.
-	 * 
+	 * rankKey: TreeSet key of a node, ordered by value then by lower node id, so the 
+	 * largest key is the best node (same order as the TopKSelector rankings).  The id
+	 * is biased to 0 .. 2^32-1 (order kept for negative ids) and inverted in the low half.
 	 */
-	private void BinarySearchInsertAscending(ArrayList<Integer> list, int node, double value ){
-		
-		double MaxListValue;
-		
-		if (list.isEmpty()){
-			//If first node to be ranked, automatically gets added to list
-			list.add(node);
-			return;
+	private static long rankKey(int node, int value){
+		return ((long) value << 32) | (0xFFFFFFFFL - ((long) node - Integer.MIN_VALUE));
+	}
+	
+	/**
+	 * keyNode: node id of a key made by rankKey
+	 */
+	private static int keyNode(long key){
+		return (int) (0xFFFFFFFFL - (key & 0xFFFFFFFFL) + Integer.MIN_VALUE);
+	}
+	
+	/**
+	 * liveTop: the top ranked nodes of a live ranking, best first
+	 */
+	private ArrayList<Integer> liveTop(TreeSet<Long> ranking){
+		int size = Math.min(getListSize(), ranking.size());
+		ArrayList<Integer> list = new ArrayList<Integer>(size);
+		Iterator<Long> best = ranking.descendingIterator();
+		while (list.size() < size){
+			list.add(keyNode(best.next()));
 		}
-		
-		MaxListValue = m_GraphtoRank.getNodeCloseness(list.get(list.size()-1));
-		
-		//Ranking variables
+		return list;
+	}
+	
+	/**
+	 * getListSize: number of nodes in a ranking list, the top percent of the graph
+	 * nodes and at least 1.  Ranking lists are kept best first, ties go to the lower
+	 * node id.
+	 */
+	private int getListSize(){
 		float percent =(float) m_percentTopNodes/100;
 		int ListSize = (int) (m_GraphtoRank.getNumVertices() * percent);
 		if (ListSize < 1){
 			//store at a minimum the maximum value in list (1 value);
 			ListSize =1;
 		}
-		
-		boolean inserted = false;
-		
-		//Is top ranked?
-		if (list.size() >= ListSize && value > MaxListValue){
-			//No it's not, don't insert
-			return;
-		}
-		
-
-		//Insert in list in ascending order order - inserting node id not CC value
-		//Binary search for insertion		
-		int low, high, mid;
-		low =0;
-		high = list.size() - 1;
-				
-		while (!inserted){
-			mid = low + ((high-low)/2);
-			
-			if (value == m_GraphtoRank.getNodeCloseness(list.get(mid))){
-				//nodes with same value, insert here
-				list.add(mid, node);
-				inserted = true;
-			}
-			if (value <  m_GraphtoRank.getNodeCloseness(list.get(mid))){
-				high = mid - 1;
-				if (high<0){
-					//insert at beginning
-					list.add(0,node);
-					inserted = true;
-				}
-			
-				//check to see if we went passed closeness value, if so insert here
-				else if (value > m_GraphtoRank.getNodeCloseness(list.get(high))){
-					list.add(high+1, node);
-					inserted = true;
-				}
-			}
-			if(value >  m_GraphtoRank.getNodeCloseness(list.get(mid))){
-					
-				low = mid + 1;
-				//if low value is bigger than size of list, add at end
-				if (low>= list.size()){
-					//add at end of list
-					list.add(node);
-					inserted = true;
-				}
-				//went passed closeness value, insert here
-				else if(value <  m_GraphtoRank.getNodeCloseness(list.get(low))){
-					list.add(low, node);
-					inserted = true;
-				}
-			
-			}
-		}//while loop list insertion
-		
-		if (list.size()> ListSize){
-			//list too big, remove last from list
-			list.remove(ListSize);
-		}
-		MaxListValue = m_GraphtoRank.getNodeCloseness(list.get(list.size() - 1));	
-		
-		return;
+		return ListSize;
 	}
 	
-	/**
-	 * CalcCloseness: Calculates the closeness value for give node.
-	 * 					Closeness = avg path length to all other nodes from given node
-	 * @param node
-	 * @return: value of Closeness for node
-	 */
-	private double CalcCloseness(int node){
-		
-		//Checks for bad input
-		if (!m_GraphtoRank.getVertices().contains(node)){
-			//node value not in graph return
-			//To do errors
-			return -1;
-		}
-				
-		double cc;
-		//Use BFS
-		
-		//Initialize
-		int numPaths =0;
-		int TotalHops=0;
-		ArrayList<Integer> Queue = new ArrayList<Integer>();
-		HashSet<Integer> Visited = new HashSet<Integer>();
-		HashMap<Integer, Integer> HopMap = new HashMap<Integer, Integer>();
-		
-		//Start queue
-		Queue.add(node);
-		Visited.add(node);
-		HopMap.put(node, 0);
-
-		int curr = node;
-
-		//Start Search
-		while (!Queue.isEmpty())
-		{
-			curr = Queue.remove(0);
-			//System.out.println("Curr is : "+ curr);
-			//add all of curr's neighbors to the queue
-			HashSet<Integer> neighbors = m_GraphtoRank.getNeighbors(curr);
-			
-			for (int n: neighbors){
-				if (!Visited.contains(n)){
-					Visited.add(n);
-					Queue.add(n);
-					int numHops = HopMap.get(curr) + 1;
-					HopMap.put(n, numHops);
-					TotalHops += numHops;
-					numPaths++;
-					
-				}//if
-			}// loop through neighbors
-		}//while loop
-	
-		cc = (float)TotalHops/numPaths;
-		
-		return cc;
-	}
-	
-	
 	/**
 	 * 
 	 * getters and setters
@@ -416,6 +405,9 @@ public class RankingNodes {
 	 */
 	
 	public ArrayList<Integer> getTopDegList(){
+		if (m_LiveGraph != null)
+			return liveTop(m_LiveDegree);
+		
 		ArrayList<Integer> list = new ArrayList<Integer>();
 		list.addAll(m_TopDegreeNodes);
 
@@ -423,6 +415,9 @@ public class RankingNodes {
 	}
 	
 	public ArrayList<Integer> getTopDeg2HopList(){
+		if (m_LiveGraph != null)
+			return liveTop(m_LiveDeg2Hop);
+		
 		ArrayList<Integer> list = new ArrayList<Integer>();
 		list.addAll(m_TopDeg2HopNodes);
 
@@ -445,6 +440,13 @@ public class RankingNodes {
 	
 	public ArrayList<Integer> get1DegreeNodesList(){
 		ArrayList<Integer> list = new ArrayList<Integer>();
+		if (m_LiveGraph != null){
+			//keys of the nodes with degree 1
+			for (long key : m_LiveDegree.subSet(rankKey(Integer.MAX_VALUE, 1), true, rankKey(Integer.MIN_VALUE, 1), true)){
+				list.add(keyNode(key));
+			}
+			return list;
+		}
 		list.addAll(m_1DegreeNodes);
 
 		return list;
@@ -461,7 +463,21 @@ public class RankingNodes {
 		
 	}
 	
-	public void setGraph(CapGraph graph){
+	/**
+	 * setDeg2HopMode: what RankNodesDeg2Hop stores and ranks by, SCORE (default), REACH
+	 * or REACH_APPROX
+	 */
+	public void setDeg2HopMode(Deg2HopMode mode){
+		if (mode == null)
+			//bad input
+			return;
+		
+		m_Deg2HopMode = mode;
+	}
+	
+	public void setGraph(CascadeGraph graph){
+		if (graph != m_LiveGraph)
+			StopLiveRanking();
 		m_GraphtoRank = graph;
 	}
 	
@@ -0,0 +1,335 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import util.MetricsRegistry;
+import util.ParallelLoop;
+
+/**
+ * @author kguajardo
+ *
+ * SeedOptimizer: Chooses seed nodes for the A/B cascade greedily, each time adding the
+ * node whose seeding gives the most extra adopters (nodes that end up A, seeds
+ * included), instead of seeding around the top nodes of a ranking.
+ *
+ * The greedy search uses CELF lazy evaluation: every candidate sits in a priority
+ * queue keyed by the last gain computed for it.  When the node on top has a gain from
+ * the current round it is chosen, otherwise it is re-evaluated against the current
+ * seeds and put back.  Gains only shrink as seeds are added in a submodular model,
+ * so most candidates are never re-evaluated.  The threshold model of GraphCascader is
+ * not submodular (two seeds can together tip a node neither tips alone), so the
+ * lazy bound can miss a node whose gain went up: the result is a heuristic, usually
+ * close to plain greedy at a fraction of the cost.
+ *
+ * Gains are evaluated 64 candidates at a time, one per lane of a BitParallelCascade
+ * seeded with the current seeds plus the candidate, and the batches are spread over
+ * a fork/join pool with one BitParallelCascade per worker thread.  One pool serves a
+ * whole select, so each thread keeps its cascade across rounds.  The first round
+ * evaluates every candidate; later rounds re-evaluate the stale nodes on top of the
+ * queue, as many at once as the threads can run.
+ *
+ * Nodes that are already A in the graph can be given with setInitialA: every lane
+ * starts with them, gains are measured from the cascade they start, and they are
+ * not chosen as seeds.
+ *
+ */
+public class SeedOptimizer {
+
+	private final IndexedGraph m_Graph;
+
+	//Reward for switching to a or b
+	private int m_a;
+	private int m_b;
+
+	//Number of Generations to run for each Cascade
+	private int m_NumGenerations;
+
+	//number of threads, 0 uses the common fork/join pool
+	private int m_Parallelism;
+
+	//vertex indices that can be chosen, null for all
+	private int[] m_Candidates;
+
+	//vertex indices that are A before any seed, null for none
+	private int[] m_InitialA;
+
+	//result of the last select: seeds in the order chosen, adopters after each seed
+	private int[] m_Seeds;
+	private int[] m_Adopted;
+
+	//number of cascades run by the last select, for comparing with plain greedy
+	private long m_NumEvaluations;
+
+	public SeedOptimizer(IndexedGraph graph){
+		m_Graph = graph;
+		m_a = 1;
+		m_b = 1;
+		m_NumGenerations = 50;
+		m_Parallelism = 0;
+	}
+
+	/**
+	 * select: greedily chooses up to maxSeeds seeds, stopping early when targetAdopted
+	 * nodes adopt A or no candidate adds an adopter
+	 *
+	 * @param maxSeeds : largest number of seeds to choose
+	 * @param targetAdopted : number of adopters that is enough, 0 for no target
+	 * @return vertex indices of the seeds, in the order chosen.  null if maxSeeds < 0.
+	 */
+	public int[] select(int maxSeeds, int targetAdopted){
+		if (maxSeeds < 0)
+			//bad input
+			return null;
+
+		MetricsRegistry.Timer timer = MetricsRegistry.getGlobal().start("seed.optimize");
+		int n = m_Graph.getNumVertices();
+		boolean[] initial = new boolean[n];
+		if (m_InitialA != null){
+			for (int v : m_InitialA){
+				initial[v] = true;
+			}
+		}
+
+		//nodes already A are not candidates
+		int[] candidates = new int[m_Candidates == null ? n : m_Candidates.length];
+		int numCandidates = 0;
+		for (int i = 0; i < candidates.length; i++){
+			int v = m_Candidates == null ? i : m_Candidates[i];
+			if (!initial[v])
+				candidates[numCandidates++] = v;
+		}
+		candidates = Arrays.copyOf(candidates, numCandidates);
+		m_Graph.transpose();
+		ThreadLocal<BitParallelCascade> cascades = new ThreadLocal<BitParallelCascade>(){
+			@Override
+			protected BitParallelCascade initialValue(){
+				BitParallelCascade cascade = new BitParallelCascade(m_Graph);
+				cascade.setRewards(m_a, m_b);
+				return cascade;
+			}
+		};
+		m_NumEvaluations = 0;
+
+		int[] seeds = new int[maxSeeds];
+		int[] adopted = new int[maxSeeds];
+		int numSeeds = 0;
+
+		ForkJoinPool pool = m_Parallelism > 0 ? new ForkJoinPool(m_Parallelism) : ForkJoinPool.commonPool();
+		try {
+			//adopters with no seeds (the initial A nodes and the ones they tip, or every
+			//node when b is 0)
+			int[] none = new int[1];
+			evaluate(cascades, seeds, 0, new int[]{-1}, 0, 1, none);
+			int spread = none[0];
+
+			//Round 0: gain of every candidate alone
+			int[] gain = new int[n];
+			int[] round = new int[n];
+			int[] spreadWith = new int[candidates.length];
+			evaluateAll(pool, cascades, seeds, 0, candidates, candidates.length, spreadWith);
+			PriorityQueue<Long> queue = new PriorityQueue<Long>(Math.max(1, candidates.length), Collections.reverseOrder());
+			for (int i = 0; i < candidates.length; i++){
+				int v = candidates[i];
+				gain[v] = spreadWith[i] - spread;
+				round[v] = 0;
+				queue.add(key(v, gain[v]));
+			}
+
+			int[] stale = new int[pool.getParallelism() * BitParallelCascade.NUM_LANES];
+			while (numSeeds < maxSeeds && !queue.isEmpty()){
+				if (targetAdopted > 0 && spread >= targetAdopted)
+					break;
+
+				int top = node(queue.peek());
+				if (round[top] == numSeeds){
+					//gain is current: choose it
+					queue.poll();
+					if (gain[top] <= 0)
+						//nothing left to gain
+						break;
+					seeds[numSeeds] = top;
+					spread += gain[top];
+					adopted[numSeeds] = spread;
+					numSeeds++;
+					continue;
+				}
+
+				//Re-evaluate the stale nodes on top of the queue against the current seeds
+				int numStale = 0;
+				while (numStale < stale.length && !queue.isEmpty() && round[node(queue.peek())] != numSeeds){
+					stale[numStale++] = node(queue.poll());
+				}
+				evaluateAll(pool, cascades, seeds, numSeeds, stale, numStale, spreadWith);
+				for (int i = 0; i < numStale; i++){
+					int v = stale[i];
+					gain[v] = spreadWith[i] - spread;
+					round[v] = numSeeds;
+					queue.add(key(v, gain[v]));
+				}
+			}
+		}
+		finally {
+			if (pool != ForkJoinPool.commonPool())
+				pool.shutdown();
+		}
+
+		m_Seeds = Arrays.copyOf(seeds, numSeeds);
+		m_Adopted = Arrays.copyOf(adopted, numSeeds);
+		MetricsRegistry.getGlobal().increment("seed.optimize.evaluations", m_NumEvaluations);
+		timer.stop();
+		return m_Seeds;
+	}
+
+	/**
+	 * key: priority of a node, higher gain first, lower index first on ties
+	 */
+	private static long key(int node, int gain){
+		return ((long) gain << 32) | (Integer.MAX_VALUE - node);
+	}
+
+	private static int node(long key){
+		return Integer.MAX_VALUE - (int) (key & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * evaluateAll: adopters with seeds plus each of the count candidates, 64 candidates
+	 * per cascade, cascades in parallel
+	 */
+	private void evaluateAll(ForkJoinPool pool, ThreadLocal<BitParallelCascade> cascades, int[] seeds, int numSeeds,
+			int[] candidates, int count, int[] spreadWith){
+		int lanes = BitParallelCascade.NUM_LANES;
+		int numBatches = (count + lanes - 1) / lanes;
+		ParallelLoop.forRange(pool, 0, numBatches, 1, (first, last) -> {
+			for (int batch = first; batch < last; batch++){
+				int from = batch * lanes;
+				evaluate(cascades, seeds, numSeeds, candidates, from, Math.min(lanes, count - from), spreadWith);
+			}
+		});
+		m_NumEvaluations += count;
+	}
+
+	/**
+	 * evaluate: one bit-parallel cascade, lane i seeded with the initial A nodes, the
+	 * seeds and candidates[from+i] (none if it is -1)
+	 */
+	private void evaluate(ThreadLocal<BitParallelCascade> cascades, int[] seeds, int numSeeds,
+			int[] candidates, int from, int count, int[] spreadWith){
+		BitParallelCascade cascade = cascades.get();
+		cascade.clear();
+		for (int lane = 0; lane < count; lane++){
+			if (m_InitialA != null){
+				for (int v : m_InitialA){
+					cascade.setA(lane, v);
+				}
+			}
+			for (int s = 0; s < numSeeds; s++){
+				cascade.setA(lane, seeds[s]);
+			}
+			if (candidates[from + lane] >= 0)
+				cascade.setA(lane, candidates[from + lane]);
+		}
+		for (int gen = 0; gen < m_NumGenerations; gen++){
+			if (cascade.step() == 0)
+				break;
+		}
+		for (int lane = 0; lane < count; lane++){
+			spreadWith[from + lane] = cascade.getNumA(lane);
+		}
+	}
+
+	/* Adopters after each seed of the last select, seeds included */
+	public int[] getAdopted(){
+		return m_Adopted;
+	}
+
+	/* Seeds chosen by the last select */
+	public int[] getSeeds(){
+		return m_Seeds;
+	}
+
+	/* Cascades (lanes) run by the last select */
+	public long getNumEvaluations(){
+		return m_NumEvaluations;
+	}
+
+	/**
+	 * setRewards: reward a for switching to A, b for staying B.  Negative values are
+	 * ignored.
+	 */
+	public void setRewards(int a, int b){
+		if (a >= 0)
+			m_a = a;
+		if (b >= 0)
+			m_b = b;
+	}
+
+	public void setNumGenerations(int num){
+		if (num<0)
+			//bad input
+			return;
+
+		m_NumGenerations = num;
+	}
+
+	/**
+	 * setCandidates: vertex indices the seeds are chosen from, null (default) for all
+	 * vertices.  A smaller pool, like the top of a ranking, makes the first round cheaper.
+	 * Indices not in the graph are skipped and each index is kept once.
+	 */
+	public void setCandidates(int[] candidates){
+		if (candidates == null){
+			m_Candidates = null;
+			return;
+		}
+
+		int n = m_Graph.getNumVertices();
+		boolean[] seen = new boolean[n];
+		int[] kept = new int[candidates.length];
+		int count = 0;
+		for (int v : candidates){
+			if (v < 0 || v >= n || seen[v])
+				//bad input
+				continue;
+			seen[v] = true;
+			kept[count++] = v;
+		}
+		m_Candidates = Arrays.copyOf(kept, count);
+	}
+
+	/**
+	 * setInitialA: vertex indices that are A before any seed, like the A nodes of the
+	 * graph a cascade runs on.  null (default) starts from all B.  Indices not in the
+	 * graph are skipped.
+	 */
+	public void setInitialA(int[] vertices){
+		if (vertices == null){
+			m_InitialA = null;
+			return;
+		}
+
+		int n = m_Graph.getNumVertices();
+		int[] kept = new int[vertices.length];
+		int count = 0;
+		for (int v : vertices){
+			if (v < 0 || v >= n)
+				//bad input
+				continue;
+			kept[count++] = v;
+		}
+		m_InitialA = Arrays.copyOf(kept, count);
+	}
+
+	/**
+	 * setParallelism: number of threads, 0 (default) uses the common pool
+	 */
+	public void setParallelism(int threads){
+		if (threads < 0)
+			//bad input
+			return;
+
+		m_Parallelism = threads;
+	}
+}
@@ -0,0 +1,175 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * @author kguajardo
+ *
+ * StronglyConnectedComponents: Finds the SCCs of an IndexedGraph with Tarjan's
+ * algorithm in O(V+E).
+ *
+ * The search is iterative (an explicit stack of vertices and edge cursors instead of
+ * recursion), so deep graphs like twitter_higgs do not overflow the call stack, and
+ * it needs no transposed copy of the graph.  The result is kept compact: one
+ * component id per vertex index and one size per component.  Subgraphs are only
+ * built when asked for, see CapGraph.getComponentGraph and CsrGraph.getSCCs.
+ *
+ */
+public class StronglyConnectedComponents {
+
+	//component id of each vertex index
+	private final int[] m_Component;
+
+	//number of vertices in each component
+	private final int[] m_Sizes;
+
+	/**
+	 * Finds the strongly connected components of graph
+	 */
+	public StronglyConnectedComponents(IndexedGraph graph){
+		int n = graph.getNumVertices();
+
+		//order each vertex was found in, and lowest order reachable from it
+		int[] order = new int[n];
+		int[] low = new int[n];
+		Arrays.fill(order, -1);
+
+		int[] component = new int[n];
+		Arrays.fill(component, -1);
+		int[] sizes = new int[Math.min(n, 16)];
+		int numComponents = 0;
+
+		//Tarjan's stack of vertices not assigned to a component yet.  A vertex is on it
+		//when it has an order and no component.
+		int[] tarjanStack = new int[n];
+		int tarjanTop = -1;
+
+		//DFS call stack: vertex and position of the next edge to follow
+		int[] callStack = new int[n];
+		int[] cursor = new int[n];
+
+		int counter = 0;
+		for (int root = 0; root < n; root++){
+			if (order[root] >= 0)
+				continue;
+
+			int top = 0;
+			callStack[0] = root;
+			cursor[0] = graph.getEdgeStart(root);
+			order[root] = low[root] = counter++;
+			tarjanStack[++tarjanTop] = root;
+
+			while (top >= 0){
+				int v = callStack[top];
+				if (cursor[top] < graph.getEdgeEnd(v)){
+					int w = graph.getEdgeTarget(cursor[top]++);
+					if (order[w] < 0){
+						//visit w
+						order[w] = low[w] = counter++;
+						tarjanStack[++tarjanTop] = w;
+						top++;
+						callStack[top] = w;
+						cursor[top] = graph.getEdgeStart(w);
+					}
+					else if (component[w] < 0 && order[w] < low[v]){
+						//w is on the stack
+						low[v] = order[w];
+					}
+				}
+				else {
+					//done with v, if it is the root of an SCC pop the SCC off the stack
+					if (low[v] == order[v]){
+						if (numComponents == sizes.length)
+							sizes = Arrays.copyOf(sizes, 2 * numComponents);
+						int w;
+						do {
+							w = tarjanStack[tarjanTop--];
+							component[w] = numComponents;
+							sizes[numComponents]++;
+						} while (w != v);
+						numComponents++;
+					}
+					top--;
+					if (top >= 0){
+						int parent = callStack[top];
+						if (low[v] < low[parent])
+							low[parent] = low[v];
+					}
+				}
+			}
+		}
+
+		m_Component = component;
+		m_Sizes = Arrays.copyOf(sizes, numComponents);
+	}
+
+	public int getNumComponents(){
+		return m_Sizes.length;
+	}
+
+	/* Component id of the vertex at index */
+	public int getComponent(int index){
+		return m_Component[index];
+	}
+
+	/* Component id of every vertex index.  The array is not copied, do not change it. */
+	public int[] getComponentIds(){
+		return m_Component;
+	}
+
+	public int getComponentSize(int component){
+		return m_Sizes[component];
+	}
+
+	/* Size of every component.  The array is not copied, do not change it. */
+	public int[] getComponentSizes(){
+		return m_Sizes;
+	}
+
+	/**
+	 * getLargestComponent: id of the component with the most vertices, the lowest id
+	 * if there is a tie.  -1 for an empty graph.
+	 */
+	public int getLargestComponent(){
+		int largest = -1;
+		for (int c = 0; c < m_Sizes.length; c++){
+			if (largest < 0 || m_Sizes[c] > m_Sizes[largest])
+				largest = c;
+		}
+		return largest;
+	}
+
+	/**
+	 * getMembers: indices of the vertices in component, in ascending order
+	 */
+	public int[] getMembers(int component){
+		int[] members = new int[m_Sizes[component]];
+		int count = 0;
+		for (int v = 0; v < m_Component.length; v++){
+			if (m_Component[v] == component)
+				members[count++] = v;
+		}
+		return members;
+	}
+
+	/**
+	 * getMembersByComponent: all vertex indices grouped by component (counting sort).
+	 * The members of component c are at positions start[c] to start[c+1]-1, in
+	 * ascending order.
+	 *
+	 * @param start : filled with getNumComponents()+1 offsets
+	 */
+	public int[] getMembersByComponent(int[] start){
+		int numComponents = m_Sizes.length;
+		start[0] = 0;
+		for (int c = 0; c < numComponents; c++){
+			start[c + 1] = start[c] + m_Sizes[c];
+		}
+		int[] fill = Arrays.copyOf(start, numComponents);
+		int[] members = new int[m_Component.length];
+		for (int v = 0; v < m_Component.length; v++){
+			members[fill[m_Component[v]]++] = v;
+		}
+		return members;
+	}
+}
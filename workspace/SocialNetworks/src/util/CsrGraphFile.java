@@ -0,0 +1,186 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntUnaryOperator;
+
+import graph.CsrGraph;
+
+/**
+ * @author kguajardo
+ *
+ * CsrGraphFile: Binary file format for a CsrGraph, so a large edge list only has to
+ * be parsed once.  Later startups memory map the file and copy the arrays out in
+ * bulk, with no parsing and no graph building.
+ *
+ * Large files can also be used in place without copying, see graph.MappedGraph.
+ *
+ * Layout, all values 32 bit little endian ints:
+ *   header  : MAGIC, VERSION, flags, number of vertices n, number of edges m,
+ *             3 reserved (header is 32 bytes)
+ *   ids     : n sorted vertex ids
+ *   offsets : n+1 edge offsets
+ *   targets : m edge target indices, sorted within each row
+ *
+ * flags bit 0 (FLAG_SYMMETRIC) is set when every edge has its reverse edge.
+ *
+ * read checks the sections in one pass (see checkStructure) before building the
+ * graph, so a corrupt or cut file fails with an IOException naming it instead of an
+ * index out of bounds or wrong distances later.
+ *
+ */
+public class CsrGraphFile {
+
+	//"CSRG"
+	public static final int MAGIC = 0x43535247;
+	public static final int VERSION = 1;
+	public static final int HEADER_INTS = 8;
+
+	public static final int FLAG_SYMMETRIC = 1;
+
+	//ints written at a time
+	private static final int BUFFER_INTS = 1 << 18;
+
+	/**
+	 * write: Saves graph in the binary format
+	 */
+	public static void write(CsrGraph graph, String filename) throws IOException {
+		int n = graph.getNumVertices();
+		int m = graph.getNumEdges();
+
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(4 * BUFFER_INTS).order(ByteOrder.LITTLE_ENDIAN);
+			IntBuffer ints = buffer.asIntBuffer();
+
+			int[] header = new int[HEADER_INTS];
+			header[0] = MAGIC;
+			header[1] = VERSION;
+			header[2] = graph.isSymmetric() ? FLAG_SYMMETRIC : 0;
+			header[3] = n;
+			header[4] = m;
+			ints.put(header);
+
+			for (int v = 0; v < n; v++){
+				ints = put(channel, buffer, ints, graph.getId(v));
+			}
+			for (int v = 0; v < n; v++){
+				ints = put(channel, buffer, ints, graph.getEdgeStart(v));
+			}
+			ints = put(channel, buffer, ints, m);
+			for (int e = 0; e < m; e++){
+				ints = put(channel, buffer, ints, graph.getEdgeTarget(e));
+			}
+			flush(channel, buffer, ints);
+		}
+	}
+
+	private static IntBuffer put(FileChannel channel, ByteBuffer buffer, IntBuffer ints, int value) throws IOException {
+		if (!ints.hasRemaining()){
+			flush(channel, buffer, ints);
+			ints = buffer.asIntBuffer();
+		}
+		ints.put(value);
+		return ints;
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer, IntBuffer ints) throws IOException {
+		buffer.position(0);
+		buffer.limit(4 * ints.position());
+		while (buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * read: Memory maps a file written by write and builds the CsrGraph from it
+	 */
+	public static CsrGraph read(String filename) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException(filename + " is too large to map in one piece");
+
+			MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			IntBuffer ints = map.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+
+			int[] header = readHeader(ints, filename);
+			int n = header[3];
+			int m = header[4];
+			if (ints.remaining() < (long) 2 * n + 1 + m)
+				throw new IOException(filename + " is truncated");
+
+			int[] ids = new int[n];
+			int[] offsets = new int[n + 1];
+			int[] targets = new int[m];
+			ints.get(ids);
+			ints.get(offsets);
+			ints.get(targets);
+			checkStructure(n, m, i -> ids[i], i -> offsets[i], e -> targets[e], filename);
+			return new CsrGraph(ids, offsets, targets);
+		}
+	}
+
+	/**
+	 * readHeader: Reads and checks the header
+	 * @return the header ints
+	 */
+	public static int[] readHeader(IntBuffer ints, String filename) throws IOException {
+		if (ints.remaining() < HEADER_INTS)
+			throw new IOException(filename + " is not a CSR graph file");
+
+		int[] header = new int[HEADER_INTS];
+		ints.get(header);
+		checkHeader(header, filename);
+		return header;
+	}
+
+	/**
+	 * checkHeader: Checks the magic number and version of a header already read
+	 */
+	public static void checkHeader(int[] header, String filename) throws IOException {
+		if (header[0] != MAGIC)
+			throw new IOException(filename + " is not a CSR graph file");
+		if (header[1] != VERSION)
+			throw new IOException(filename + " has unsupported version " + header[1]);
+		if (header[3] < 0 || header[4] < 0)
+			throw new IOException(filename + " has a negative vertex or edge count");
+	}
+
+	/**
+	 * checkStructure: Checks the sections of a file in one pass over the ids, offsets
+	 * and targets: ids strictly ascending, offsets from 0 to m and never going down,
+	 * targets in 0..n-1 and strictly ascending within each row, as CsrGraph expects.
+	 * The sections are read through the getters, so a mapped file can be checked in
+	 * place (see graph.MappedGraph.verify).
+	 */
+	public static void checkStructure(int n, int m, IntUnaryOperator ids, IntUnaryOperator offsets,
+			IntUnaryOperator targets, String filename) throws IOException {
+		for (int v = 1; v < n; v++){
+			if (ids.applyAsInt(v - 1) >= ids.applyAsInt(v))
+				throw new IOException(filename + " has vertex ids out of order at index " + v);
+		}
+		if (offsets.applyAsInt(0) != 0 || offsets.applyAsInt(n) != m)
+			throw new IOException(filename + " has edge offsets that do not run from 0 to " + m);
+		int end = 0;
+		for (int v = 0; v < n; v++){
+			int start = end;
+			end = offsets.applyAsInt(v + 1);
+			if (end < start || end > m)
+				throw new IOException(filename + " has bad edge offsets at index " + v);
+			int last = -1;
+			for (int e = start; e < end; e++){
+				int w = targets.applyAsInt(e);
+				if (w <= last || w >= n)
+					throw new IOException(filename + " has a bad edge target at position " + e);
+				last = w;
+			}
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * @author kguajardo
+ *
+ * EdgeList: Growable list of (from, to) vertex id pairs kept in two int arrays,
+ * the primitive buffer edge files are parsed into before a graph is built.
+ *
+ */
+public class EdgeList {
+
+	private int[] m_From;
+	private int[] m_To;
+	private int m_Size;
+
+	public EdgeList(){
+		this(1024);
+	}
+
+	public EdgeList(int capacity){
+		m_From = new int[Math.max(capacity, 16)];
+		m_To = new int[m_From.length];
+		m_Size = 0;
+	}
+
+	public void add(int from, int to){
+		if (m_Size == m_From.length){
+			m_From = Arrays.copyOf(m_From, 2 * m_Size);
+			m_To = Arrays.copyOf(m_To, 2 * m_Size);
+		}
+		m_From[m_Size] = from;
+		m_To[m_Size] = to;
+		m_Size++;
+	}
+
+	public int size(){
+		return m_Size;
+	}
+
+	/* Source ids, the first size() entries are used.  The array is not copied. */
+	public int[] getFrom(){
+		return m_From;
+	}
+
+	/* Target ids, the first size() entries are used.  The array is not copied. */
+	public int[] getTo(){
+		return m_To;
+	}
+}
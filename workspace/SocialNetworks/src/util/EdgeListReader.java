@@ -0,0 +1,280 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * @author kguajardo
+ *
+ * EdgeListReader: Parses edge list text (lines with a "from" and a "to" vertex id)
+ * into an EdgeList.
+ *
+ * The file is read through a FileChannel into a large buffer, and the ids are
+ * parsed straight from the bytes.  This skips the regex matching and boxing of
+ * java.util.Scanner, which is what made loading twitter_higgs slow.
+ *
+ * Each line is an edge: the first two numbers of the line (separated by spaces, tabs
+ * or commas) are its ids, further columns (weights, timestamps) are ignored.  Blank
+ * lines and comment lines, starting with '#' or '%', are skipped.  An id that is not
+ * an int (other characters, or too large for an int) or a line with a single id
+ * throws an IOException, like Scanner.nextInt would.
+ *
+ * The parser keeps its state between calls to parse, so a number or an edge can be
+ * split over two buffers.
+ *
+ * readParallel splits the file into newline aligned byte ranges and parses them
+ * concurrently, each range into its own EdgeList, so a large file is parsed by all
+ * cores instead of one.
+ *
+ */
+public class EdgeListReader {
+
+	//bytes read from the file at a time
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	//smallest byte range worth its own thread, and largest range mapped at once
+	private static final long MIN_CHUNK = 1 << 22;
+	private static final long MAX_CHUNK = 1 << 30;
+
+	private final EdgeList m_Edges;
+
+	//number being parsed
+	private long m_Value;
+	private boolean m_Negative;
+	private boolean m_InNumber;
+	private int m_NumDigits;
+
+	//ids read on this line, the "from" id waiting for its "to" id
+	private int m_Column;
+	private int m_From;
+
+	//rest of the line is ignored (comment, or columns after the ids)
+	private boolean m_SkipLine;
+
+	//line being parsed, from 1, for error messages
+	private long m_Line;
+
+	public EdgeListReader(EdgeList edges){
+		m_Edges = edges;
+		m_Line = 1;
+	}
+
+	/**
+	 * read: Parses a whole edge list file
+	 */
+	public static EdgeList read(String filename) throws IOException {
+		EdgeList edges = new EdgeList();
+		EdgeListReader reader = new EdgeListReader(edges);
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			while (channel.read(buffer) >= 0){
+				buffer.flip();
+				reader.parse(buffer);
+				buffer.clear();
+			}
+		}
+		reader.finish();
+		return edges;
+	}
+
+	/**
+	 * readParallel: Parses an edge list file in newline aligned chunks, in parallel.
+	 * The edges of chunk i are in element i of the result, chunks are in file order.
+	 *
+	 * @param parallelism : number of threads, 0 uses the common fork/join pool
+	 */
+	public static EdgeList[] readParallel(String filename, int parallelism) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			long[] bounds = chunkBounds(channel, parallelism);
+			int numChunks = bounds.length - 1;
+			EdgeList[] parts = new EdgeList[numChunks];
+			IOException[] failure = new IOException[1];
+
+			ParallelLoop.forRange(parallelism, 0, numChunks, 1, (from, to) -> {
+				for (int c = from; c < to; c++){
+					try {
+						parts[c] = readRange(channel, bounds[c], bounds[c + 1]);
+					} catch (IOException e) {
+						failure[0] = e;
+					}
+				}
+			});
+			if (failure[0] != null)
+				throw failure[0];
+			return parts;
+		}
+	}
+
+	/**
+	 * chunkBounds: Splits the file into byte ranges that start at the beginning of a line.
+	 * Range i is bounds[i] .. bounds[i+1]-1.
+	 */
+	private static long[] chunkBounds(FileChannel channel, int parallelism) throws IOException {
+		long size = channel.size();
+		int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+
+		//a few chunks per thread evens out the load, but no chunk below MIN_CHUNK
+		long chunks = Math.max(1, Math.min(4L * threads, size / MIN_CHUNK));
+		chunks = Math.max(chunks, (size + MAX_CHUNK - 1) / MAX_CHUNK);
+
+		long[] bounds = new long[(int) chunks + 1];
+		int count = 1;
+		ByteBuffer probe = ByteBuffer.allocate(4096);
+		for (int c = 1; c < chunks; c++){
+			long start = Math.max(size * c / chunks, bounds[count - 1]);
+			long position = nextLineStart(channel, probe, start);
+			if (position > bounds[count - 1] && position < size)
+				bounds[count++] = position;
+		}
+		bounds[count++] = size;
+		return Arrays.copyOf(bounds, count);
+	}
+
+	/**
+	 * nextLineStart: position of the first byte after the first newline at or after start,
+	 * or the file size if there is none
+	 */
+	private static long nextLineStart(FileChannel channel, ByteBuffer probe, long start) throws IOException {
+		long position = start;
+		while (true){
+			probe.clear();
+			int read = channel.read(probe, position);
+			if (read <= 0)
+				return channel.size();
+			for (int i = 0; i < read; i++){
+				if (probe.get(i) == '\n')
+					return position + i + 1;
+			}
+			position += read;
+		}
+	}
+
+	/**
+	 * readRange: Parses bytes from .. to-1 of the file, mapped and copied to a buffer
+	 * a block at a time
+	 */
+	private static EdgeList readRange(FileChannel channel, long from, long to) throws IOException {
+		//lines in the data files are 8 to 16 bytes, the list grows if needed
+		EdgeList edges = new EdgeList((int) Math.min((to - from) / 16, Integer.MAX_VALUE - 8));
+		EdgeListReader reader = new EdgeListReader(edges);
+		MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+		byte[] block = new byte[BUFFER_SIZE];
+		try {
+			while (map.hasRemaining()){
+				int length = Math.min(block.length, map.remaining());
+				map.get(block, 0, length);
+				reader.parse(block, 0, length);
+			}
+			reader.finish();
+		} catch (IOException e) {
+			//line numbers count from the start of the chunk
+			throw new IOException(e.getMessage() + " of the chunk at byte " + from, e);
+		}
+		return edges;
+	}
+
+	/**
+	 * parse: Parses the remaining bytes of buffer, adding each complete edge
+	 */
+	public void parse(ByteBuffer buffer) throws IOException {
+		if (buffer.hasArray()){
+			int start = buffer.arrayOffset() + buffer.position();
+			parse(buffer.array(), start, start + buffer.remaining());
+			buffer.position(buffer.limit());
+			return;
+		}
+		while (buffer.hasRemaining()){
+			accept(buffer.get());
+		}
+	}
+
+	/**
+	 * parse: Parses bytes[from] .. bytes[to-1]
+	 */
+	public void parse(byte[] bytes, int from, int to) throws IOException {
+		for (int i = from; i < to; i++){
+			accept(bytes[i]);
+		}
+	}
+
+	private void accept(byte b) throws IOException {
+		if (b == '\n'){
+			endNumber();
+			endLine();
+			return;
+		}
+		if (m_SkipLine)
+			return;
+		if (b == ' ' || b == '\t' || b == '\r' || b == ','){
+			endNumber();
+			return;
+		}
+
+		if (!m_InNumber){
+			if (m_Column == 0 && (b == '#' || b == '%')){
+				//comment line
+				m_SkipLine = true;
+				return;
+			}
+			if (m_Column == 2){
+				//columns after the ids
+				m_SkipLine = true;
+				return;
+			}
+			m_InNumber = true;
+			if (b == '-'){
+				m_Negative = true;
+				return;
+			}
+		}
+		if (b < '0' || b > '9')
+			throw new IOException("'" + (char) b + "' in a vertex id on line " + m_Line);
+
+		m_Value = m_Value * 10 + (b - '0');
+		m_NumDigits++;
+		if (m_Value > 1L << 31)
+			throw new IOException("vertex id out of int range on line " + m_Line);
+	}
+
+	/**
+	 * finish: Ends the last line, call at the end of the input
+	 */
+	public void finish() throws IOException {
+		endNumber();
+		endLine();
+	}
+
+	private void endNumber() throws IOException {
+		if (!m_InNumber)
+			return;
+		if (m_NumDigits == 0)
+			throw new IOException("'-' without digits on line " + m_Line);
+		if (!m_Negative && m_Value > Integer.MAX_VALUE)
+			throw new IOException("vertex id out of int range on line " + m_Line);
+
+		int value = (int) (m_Negative ? -m_Value : m_Value);
+		if (m_Column == 0)
+			m_From = value;
+		else
+			m_Edges.add(m_From, value);
+		m_Column++;
+		m_Value = 0;
+		m_Negative = false;
+		m_InNumber = false;
+		m_NumDigits = 0;
+	}
+
+	private void endLine() throws IOException {
+		if (m_Column == 1)
+			throw new IOException("only one vertex id on line " + m_Line);
+
+		m_Column = 0;
+		m_SkipLine = false;
+		m_Line++;
+	}
+}
@@ -7,52 +7,186 @@
 package util;
 
 import java.io.File;
-import java.util.HashSet;
-import java.util.Scanner;
-import java.util.Set;
+import java.io.IOException;
+
+import graph.CsrGraph;
+import graph.IndexedGraph;
+import graph.MappedGraph;
+import graph.PrunedLandmarkLabeling;
 
 public class GraphLoader {
     /**
      * Loads graph with data from a file.
      * The file should consist of lines with 2 integers each, corresponding
-     * to a "from" vertex and a "to" vertex.
+     * to a "from" vertex and a "to" vertex.  Lines starting with # or % are
+     * comments, and columns after the second are ignored.
+     * The file is parsed in bulk by EdgeListReader, then the vertices and
+     * edges are added in file order.
+     * Loads are timed in the global MetricsRegistry ("load" and the other
+     * load.* timers below).
      */ 
     public static void loadGraph(graph.Graph g, String filename) {
-        Set<Integer> seen = new HashSet<Integer>();
-        Scanner sc;
-        
+        MetricsRegistry.Timer timer = MetricsRegistry.getGlobal().start("load");
+        EdgeList edges;
         
+        try {
+            edges = EdgeListReader.read(filename);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return;
+        }
+        // Iterate over the edges, adding new vertices as they are found
+        // and connecting them with edges.  addVertex ignores vertices
+        // already in the graph.
+        int[] from = edges.getFrom();
+        int[] to = edges.getTo();
+        for (int e = 0; e < edges.size(); e++) {
+            g.addVertex(from[e]);
+            g.addVertex(to[e]);
+            g.addEdge(from[e], to[e]);
+        }
+        MetricsRegistry.getGlobal().increment("load.edges", edges.size());
+        timer.stop();
+    }
+    
+    /**
+     * Loads a file in the same format as loadGraph into an immutable CsrGraph.
+     * The edges are collected into int arrays first and the graph is built
+     * in one pass (degree count, then fill), instead of adding vertices and
+     * edges one at a time.
+     * Returns null if the file can not be read.
+     */
+    public static CsrGraph loadCsrGraph(String filename) {
+        MetricsRegistry.Timer timer = MetricsRegistry.getGlobal().start("load.csr");
+        EdgeList edges;
         
+        try {
+            edges = EdgeListReader.read(filename);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+        CsrGraph graph = CsrGraph.fromEdges(edges.getFrom(), edges.getTo(), edges.size());
+        MetricsRegistry.getGlobal().increment("load.edges", edges.size());
+        timer.stop();
+        return graph;
+    }
+    
+    /**
+     * Loads a file in the same format as loadGraph into an immutable CsrGraph,
+     * parsing newline aligned chunks of the file and building the graph on
+     * several threads.  Gives the same graph as loadCsrGraph.
+     * parallelism is the number of threads, 0 uses the common fork/join pool.
+     * Returns null if the file can not be read.
+     */
+    public static CsrGraph loadCsrGraphParallel(String filename, int parallelism) {
+        MetricsRegistry.Timer timer = MetricsRegistry.getGlobal().start("load.csrParallel");
+        EdgeList[] parts;
         
         try {
-            sc = new Scanner(new File(filename));
+            parts = EdgeListReader.readParallel(filename, parallelism);
         } catch (Exception e) {
             e.printStackTrace();
-            return;
+            return null;
         }
-        // Iterate over the lines in the file, adding new
-        // vertices as they are found and connecting them with edges.
-        while (sc.hasNextInt()) {
-            int v1 = sc.nextInt();
-            int v2 = sc.nextInt();
-            if (!seen.contains(v1)) {
-                g.addVertex(v1);
-                seen.add(v1);
-                
-                
-            }
-            if (!seen.contains(v2)) {
-                g.addVertex(v2);
-                seen.add(v2);
-               
-                
-                
+        int[][] from = new int[parts.length][];
+        int[][] to = new int[parts.length][];
+        int[] numEdges = new int[parts.length];
+        for (int p = 0; p < parts.length; p++) {
+            from[p] = parts[p].getFrom();
+            to[p] = parts[p].getTo();
+            numEdges[p] = parts[p].size();
+            MetricsRegistry.getGlobal().increment("load.edges", numEdges[p]);
+        }
+        CsrGraph graph = CsrGraph.fromEdges(from, to, numEdges, parallelism);
+        timer.stop();
+        return graph;
+    }
+    
+    /**
+     * Converts an edge list file to the binary CsrGraphFile format, which
+     * loadBinaryGraph loads without parsing.
+     * Returns the graph, or null if a file can not be read or written.
+     */
+    public static CsrGraph convertToBinary(String edgeFile, String binaryFile) {
+        CsrGraph graph = loadCsrGraph(edgeFile);
+        if (graph == null)
+            return null;
+        
+        try {
+            CsrGraphFile.write(graph, binaryFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return graph;
+    }
+    
+    /**
+     * Loads a graph saved by convertToBinary, memory mapping the file.
+     * Returns null if the file can not be read.
+     */
+    public static CsrGraph loadBinaryGraph(String binaryFile) {
+        MetricsRegistry.Timer timer = MetricsRegistry.getGlobal().start("load.binary");
+        try {
+            CsrGraph graph = CsrGraphFile.read(binaryFile);
+            timer.stop();
+            return graph;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * Opens a graph saved by convertToBinary as a MappedGraph, which reads the file
+     * in place instead of loading it, for graphs larger than the heap.  The file is
+     * checked in one pass first (see MappedGraph.verify).
+     * Returns null if the file can not be read or is corrupt.
+     */
+    public static MappedGraph loadMappedGraph(String binaryFile) {
+        MetricsRegistry.Timer timer = MetricsRegistry.getGlobal().start("load.mapped");
+        try {
+            MappedGraph graph = MappedGraph.open(binaryFile);
+            graph.verify();
+            timer.stop();
+            return graph;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * Loads the distance index of graph saved next to its edge file
+     * (edgeFile + PrunedLandmarkLabeling.SUFFIX).  When there is none, or it was
+     * saved for a different graph, the index is built and saved there for the
+     * next start.  Pass the index to CapGraph.setDistanceIndex.
+     * Returns the index, also when it could not be saved.
+     */
+    public static PrunedLandmarkLabeling loadDistanceIndex(IndexedGraph graph, String edgeFile) {
+        String indexFile = edgeFile + PrunedLandmarkLabeling.SUFFIX;
+        if (new File(indexFile).isFile()) {
+            MetricsRegistry.Timer timer = MetricsRegistry.getGlobal().start("load.distanceIndex");
+            try {
+                PrunedLandmarkLabeling index = PrunedLandmarkLabeling.load(graph, indexFile);
+                timer.stop();
+                return index;
+            } catch (IOException e) {
+                System.out.println(e.getMessage() + ", building it again");
             }
-            g.addEdge(v1, v2);
-            
-            
         }
         
-        sc.close();
+        MetricsRegistry.Timer timer = MetricsRegistry.getGlobal().start("load.distanceIndex.build");
+        PrunedLandmarkLabeling index = new PrunedLandmarkLabeling(graph);
+        index.build();
+        timer.stop();
+        MetricsRegistry.getGlobal().setGauge("distanceIndex.entries", index.getNumEntries());
+        try {
+            index.save(indexFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return index;
     }
 }
@@ -0,0 +1,153 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * @author kguajardo
+ *
+ * HyperLogLogCounters: An array of HyperLogLog counters, each one estimating the
+ * number of distinct elements added to it in a fixed 2^log2m bytes, whatever the
+ * number of elements.  Two counters are merged with union, which gives the counter
+ * of the union of their sets, so the number of nodes reachable from every node can
+ * be estimated by merging the counters of neighbors (see graph.TwoHopDegree).
+ *
+ * All counters share one byte array, counter c owns the registers at c * 2^log2m.
+ * The relative standard error of a count is about 1.04 / sqrt(2^log2m): 13% for
+ * log2m 6, 6.5% for log2m 8.  Small counts use linear counting and are close to
+ * exact.
+ *
+ * Different counters can be updated from different threads, one counter can not.
+ *
+ */
+public class HyperLogLogCounters {
+
+	private final int m_NumCounters;
+	private final int m_Log2m;
+	private final int m_m;
+
+	//bias correction of the estimate for m registers
+	private final double m_AlphaMM;
+
+	//registers of all counters, the longest run of leading zeros seen + 1
+	private final byte[] m_Registers;
+
+	/**
+	 * Create numCounters empty counters of 2^log2m registers each
+	 * @param log2m: 4 to 16
+	 */
+	public HyperLogLogCounters(int numCounters, int log2m){
+		if (log2m < 4 || log2m > 16)
+			throw new IllegalArgumentException("log2m must be between 4 and 16");
+		if (((long) numCounters << log2m) > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException(numCounters + " counters of 2^" + log2m + " registers do not fit in an array");
+
+		m_NumCounters = numCounters;
+		m_Log2m = log2m;
+		m_m = 1 << log2m;
+		m_Registers = new byte[numCounters << log2m];
+
+		double alpha;
+		switch (m_m){
+		case 16: alpha = 0.673; break;
+		case 32: alpha = 0.697; break;
+		case 64: alpha = 0.709; break;
+		default: alpha = 0.7213 / (1 + 1.079 / m_m);
+		}
+		m_AlphaMM = alpha * m_m * m_m;
+	}
+
+	/**
+	 * add: adds element to counter
+	 */
+	public void add(int counter, long element){
+		long hash = mix(element);
+
+		//low bits pick the register, the run of zeros is counted in the rest
+		int register = (int) (hash & (m_m - 1));
+		int rank = Long.numberOfLeadingZeros(hash | (1L << (m_Log2m - 1))) + 1;
+		int pos = (counter << m_Log2m) + register;
+		if (rank > m_Registers[pos])
+			m_Registers[pos] = (byte) rank;
+	}
+
+	/**
+	 * union: adds the set of counter source of other to counter
+	 * @param other: counters with the same log2m, can be this
+	 * @return true if counter changed
+	 */
+	public boolean union(int counter, HyperLogLogCounters other, int source){
+		byte[] to = m_Registers;
+		byte[] from = other.m_Registers;
+		int t = counter << m_Log2m;
+		int f = source << m_Log2m;
+		boolean changed = false;
+		for (int r = 0; r < m_m; r++){
+			if (from[f + r] > to[t + r]){
+				to[t + r] = from[f + r];
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * copyFrom: makes every counter equal to the same counter of other
+	 * @param other: as many counters with the same log2m
+	 */
+	public void copyFrom(HyperLogLogCounters other){
+		System.arraycopy(other.m_Registers, 0, m_Registers, 0, m_Registers.length);
+	}
+
+	/**
+	 * clear: empties every counter
+	 */
+	public void clear(){
+		Arrays.fill(m_Registers, (byte) 0);
+	}
+
+	/**
+	 * count: estimated number of distinct elements added to counter
+	 */
+	public double count(int counter){
+		int pos = counter << m_Log2m;
+		double sum = 0;
+		int zeros = 0;
+		for (int r = 0; r < m_m; r++){
+			int register = m_Registers[pos + r];
+			sum += Double.longBitsToDouble((1023L - register) << 52);
+			if (register == 0)
+				zeros++;
+		}
+		double estimate = m_AlphaMM / sum;
+
+		//linear counting is more accurate while many registers are empty
+		if (estimate <= 2.5 * m_m && zeros > 0)
+			return m_m * Math.log((double) m_m / zeros);
+		return estimate;
+	}
+
+	public int getNumCounters(){
+		return m_NumCounters;
+	}
+
+	public int getLog2m(){
+		return m_Log2m;
+	}
+
+	/**
+	 * relativeStandardDeviation: expected relative error of a count with 2^log2m registers
+	 */
+	public static double relativeStandardDeviation(int log2m){
+		return 1.04 / Math.sqrt(1 << log2m);
+	}
+
+	/**
+	 * mix: 64 bit hash of element (the SplitMix64 finalizer)
+	 */
+	private static long mix(long element){
+		long z = element + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
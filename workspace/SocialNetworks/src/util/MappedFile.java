@@ -0,0 +1,114 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @author kguajardo
+ *
+ * MappedFile: A whole file memory mapped as little endian values addressed by a long
+ * byte position, so files larger than the 2GB a single MappedByteBuffer can map are
+ * read and written off heap.  The file is mapped in chunks of 1GB; values are read at
+ * positions aligned to their size, so none of them straddles two chunks.
+ *
+ * The pages are loaded and written back by the operating system, nothing is copied
+ * to the heap.  Changes made through a writable file reach the disk when force is
+ * called, or when the operating system writes the pages back.
+ *
+ */
+public class MappedFile {
+
+	//bytes per chunk, a multiple of 8 so aligned values never straddle chunks
+	private static final int CHUNK_SHIFT = 30;
+	private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+	private final MappedByteBuffer[] m_Chunks;
+	private final long m_Size;
+
+	private MappedFile(MappedByteBuffer[] chunks, long size){
+		m_Chunks = chunks;
+		m_Size = size;
+	}
+
+	/**
+	 * openRead: Maps an existing file read only
+	 */
+	public static MappedFile openRead(String filename) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			return map(channel, FileChannel.MapMode.READ_ONLY, channel.size());
+		}
+	}
+
+	/**
+	 * openWrite: Maps a file read write, creating it when it does not exist
+	 * @param size: length of the file in bytes.  A new or shorter file is extended
+	 *              with zeros, a longer file is mapped up to size.
+	 */
+	public static MappedFile openWrite(String filename, long size) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			return map(channel, FileChannel.MapMode.READ_WRITE, size);
+		}
+	}
+
+	//the mapping stays valid after the channel is closed
+	private static MappedFile map(FileChannel channel, FileChannel.MapMode mode, long size) throws IOException {
+		int numChunks = (int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT);
+		MappedByteBuffer[] chunks = new MappedByteBuffer[numChunks];
+		for (int c = 0; c < numChunks; c++){
+			long start = (long) c << CHUNK_SHIFT;
+			long length = Math.min(size - start, 1L << CHUNK_SHIFT);
+			chunks[c] = channel.map(mode, start, length);
+			chunks[c].order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return new MappedFile(chunks, size);
+	}
+
+	/**
+	 * size: length of the mapped file in bytes
+	 */
+	public long size(){
+		return m_Size;
+	}
+
+	/**
+	 * Values at byte position pos, which must be a multiple of the value size
+	 */
+
+	public int getInt(long pos){
+		return m_Chunks[(int) (pos >>> CHUNK_SHIFT)].getInt((int) (pos & CHUNK_MASK));
+	}
+
+	public void putInt(long pos, int value){
+		m_Chunks[(int) (pos >>> CHUNK_SHIFT)].putInt((int) (pos & CHUNK_MASK), value);
+	}
+
+	public long getLong(long pos){
+		return m_Chunks[(int) (pos >>> CHUNK_SHIFT)].getLong((int) (pos & CHUNK_MASK));
+	}
+
+	public void putLong(long pos, long value){
+		m_Chunks[(int) (pos >>> CHUNK_SHIFT)].putLong((int) (pos & CHUNK_MASK), value);
+	}
+
+	public double getDouble(long pos){
+		return m_Chunks[(int) (pos >>> CHUNK_SHIFT)].getDouble((int) (pos & CHUNK_MASK));
+	}
+
+	public void putDouble(long pos, double value){
+		m_Chunks[(int) (pos >>> CHUNK_SHIFT)].putDouble((int) (pos & CHUNK_MASK), value);
+	}
+
+	/**
+	 * force: Writes the changes made to a writable file to the disk
+	 */
+	public void force(){
+		for (MappedByteBuffer chunk : m_Chunks){
+			chunk.force();
+		}
+	}
+}
@@ -0,0 +1,420 @@
+package util;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author kguajardo
+ *
+ * MetricsRegistry: Records where the time goes in a run, in memory, with no output
+ * unless asked for (writeJson, writeCsv, writeGenerationsCsv).
+ *
+ *   timers:      count, total and longest time of a phase (load, scc, rank.*, seed,
+ *                cascade), and the bytes the calling thread allocated in it
+ *   counters:    totals added up over the run (cascade.changed, ...)
+ *   gauges:      the last value set (scc.largestSize, ...)
+ *   generations: one row per cascade generation: frontier size, flips, nodes
+ *                checked, edges scanned and time
+ *
+ * The classes of the project record into the global registry (getGlobal).  It is a
+ * disabled registry until setGlobal installs one, and a disabled registry records
+ * nothing and costs a field read per call, so metrics can stay in the hot paths.
+ *
+ * Allocated bytes come from the HotSpot ThreadMXBean and count the calling thread
+ * only, not fork/join workers; they are -1 when the JVM does not support it.
+ * A registry can be used from several threads.
+ *
+ */
+public class MetricsRegistry {
+
+	//registry the project records into, disabled until one is set
+	private static volatile MetricsRegistry m_Global = new MetricsRegistry(false);
+
+	//per thread allocated bytes, null when the JVM can not tell
+	private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+	//records nothing when false
+	private final boolean m_Enabled;
+
+	private final ConcurrentHashMap<String, TimerStats> m_Timers;
+	private final ConcurrentHashMap<String, AtomicLong> m_Counters;
+	private final ConcurrentHashMap<String, AtomicLong> m_Gauges;
+	private final List<GenerationStats> m_Generations;
+	private final AtomicInteger m_NumRuns;
+
+	//stopped by every timer of a disabled registry
+	private final Timer m_NoTimer;
+
+	public MetricsRegistry(){
+		this(true);
+	}
+
+	private MetricsRegistry(boolean enabled){
+		m_Enabled = enabled;
+		m_Timers = new ConcurrentHashMap<String, TimerStats>();
+		m_Counters = new ConcurrentHashMap<String, AtomicLong>();
+		m_Gauges = new ConcurrentHashMap<String, AtomicLong>();
+		m_Generations = new ArrayList<GenerationStats>();
+		m_NumRuns = new AtomicInteger();
+		m_NoTimer = new Timer(null, null, 0, 0);
+	}
+
+	private static com.sun.management.ThreadMXBean allocationBean(){
+		try {
+			java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if (bean instanceof com.sun.management.ThreadMXBean){
+				com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+				if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled())
+					return hotspot;
+			}
+		}
+		catch (LinkageError e){
+			//not a HotSpot JVM
+		}
+		return null;
+	}
+
+	/* The registry the project records into */
+	public static MetricsRegistry getGlobal(){
+		return m_Global;
+	}
+
+	/**
+	 * setGlobal: registry the project records into from now on, null to stop recording
+	 */
+	public static void setGlobal(MetricsRegistry registry){
+		m_Global = registry != null ? registry : new MetricsRegistry(false);
+	}
+
+	public boolean isEnabled(){
+		return m_Enabled;
+	}
+
+	/**
+	 * start: starts timing phase name, the time is recorded when the timer is stopped
+	 */
+	public Timer start(String name){
+		if (!m_Enabled)
+			return m_NoTimer;
+		return new Timer(this, name, System.nanoTime(), allocatedBytes());
+	}
+
+	private static long allocatedBytes(){
+		return ALLOCATION != null ? ALLOCATION.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+	}
+
+	/* Adds delta to counter name */
+	public void increment(String name, long delta){
+		if (!m_Enabled)
+			return;
+		AtomicLong counter = m_Counters.get(name);
+		if (counter == null){
+			m_Counters.putIfAbsent(name, new AtomicLong());
+			counter = m_Counters.get(name);
+		}
+		counter.addAndGet(delta);
+	}
+
+	/* Sets gauge name to value */
+	public void setGauge(String name, long value){
+		if (!m_Enabled)
+			return;
+		AtomicLong gauge = m_Gauges.get(name);
+		if (gauge == null){
+			m_Gauges.putIfAbsent(name, new AtomicLong());
+			gauge = m_Gauges.get(name);
+		}
+		gauge.set(value);
+	}
+
+	/**
+	 * newRun: id for the generations of a new cascade, 0 when disabled
+	 */
+	public int newRun(){
+		if (!m_Enabled)
+			return 0;
+		return m_NumRuns.incrementAndGet();
+	}
+
+	/**
+	 * recordGeneration: one generation of cascade run
+	 * @param frontier : vertices that changed in the generation before (the seeds for
+	 *                   the first one)
+	 * @param flips : vertices that changed in this generation
+	 * @param checked : threshold tests made
+	 * @param edgesScanned : edges read to find the candidates and update the counters
+	 */
+	public void recordGeneration(int run, int generation, int frontier, int flips, long checked,
+			long edgesScanned, long nanos){
+		if (!m_Enabled)
+			return;
+		synchronized (m_Generations){
+			m_Generations.add(new GenerationStats(run, generation, frontier, flips, checked, edgesScanned, nanos));
+		}
+	}
+
+	/* Number of times phase name was timed */
+	public long getCount(String name){
+		TimerStats stats = m_Timers.get(name);
+		if (stats == null)
+			return 0;
+		synchronized (stats){
+			return stats.m_Count;
+		}
+	}
+
+	/* Total time of phase name */
+	public long getTotalNanos(String name){
+		TimerStats stats = m_Timers.get(name);
+		if (stats == null)
+			return 0;
+		synchronized (stats){
+			return stats.m_TotalNanos;
+		}
+	}
+
+	public long getCounter(String name){
+		AtomicLong counter = m_Counters.get(name);
+		return counter == null ? 0 : counter.get();
+	}
+
+	public long getGauge(String name){
+		AtomicLong gauge = m_Gauges.get(name);
+		return gauge == null ? 0 : gauge.get();
+	}
+
+	/* A copy of the generation rows, in the order recorded */
+	public List<GenerationStats> getGenerations(){
+		synchronized (m_Generations){
+			return new ArrayList<GenerationStats>(m_Generations);
+		}
+	}
+
+	/**
+	 * clear: forgets everything recorded
+	 */
+	public void clear(){
+		m_Timers.clear();
+		m_Counters.clear();
+		m_Gauges.clear();
+		synchronized (m_Generations){
+			m_Generations.clear();
+		}
+		m_NumRuns.set(0);
+	}
+
+	/**
+	 * writeJson: writes everything recorded as one JSON object with timers, counters,
+	 * gauges and generations, names in sorted order
+	 */
+	public void writeJson(Writer out) throws IOException {
+		PrintWriter writer = new PrintWriter(out);
+		writer.println("{");
+		writer.println("  \"timers\": {");
+		String separator = "";
+		for (Map.Entry<String, TimerStats> entry : new TreeMap<String, TimerStats>(m_Timers).entrySet()){
+			TimerStats stats = entry.getValue();
+			synchronized (stats){
+				writer.print(separator + "    \"" + entry.getKey() + "\": {\"count\": " + stats.m_Count
+						+ ", \"totalMillis\": " + millis(stats.m_TotalNanos)
+						+ ", \"meanMillis\": " + millis(stats.m_TotalNanos / Math.max(1, stats.m_Count))
+						+ ", \"maxMillis\": " + millis(stats.m_MaxNanos)
+						+ ", \"allocatedBytes\": " + stats.m_AllocatedBytes + "}");
+			}
+			separator = ",\n";
+		}
+		writer.println();
+		writer.println("  },");
+		writeJsonValues(writer, "counters", m_Counters);
+		writer.println(",");
+		writeJsonValues(writer, "gauges", m_Gauges);
+		writer.println(",");
+		writer.println("  \"generations\": [");
+		separator = "";
+		for (GenerationStats row : getGenerations()){
+			writer.print(separator + "    {\"run\": " + row.getRun() + ", \"generation\": " + row.getGeneration()
+					+ ", \"frontier\": " + row.getFrontier() + ", \"flips\": " + row.getFlips()
+					+ ", \"checked\": " + row.getChecked() + ", \"edgesScanned\": " + row.getEdgesScanned()
+					+ ", \"millis\": " + millis(row.getNanos()) + "}");
+			separator = ",\n";
+		}
+		writer.println();
+		writer.println("  ]");
+		writer.println("}");
+		writer.flush();
+		if (writer.checkError())
+			throw new IOException("error writing metrics");
+	}
+
+	private static void writeJsonValues(PrintWriter writer, String section, Map<String, AtomicLong> values){
+		writer.println("  \"" + section + "\": {");
+		String separator = "";
+		for (Map.Entry<String, AtomicLong> entry : new TreeMap<String, AtomicLong>(values).entrySet()){
+			writer.print(separator + "    \"" + entry.getKey() + "\": " + entry.getValue().get());
+			separator = ",\n";
+		}
+		writer.println();
+		writer.print("  }");
+	}
+
+	/**
+	 * writeCsv: writes the timers, counters and gauges as a CSV table with a header line
+	 */
+	public void writeCsv(Writer out) throws IOException {
+		PrintWriter writer = new PrintWriter(out);
+		writer.println("kind,name,count,totalMillis,maxMillis,allocatedBytes,value");
+		for (Map.Entry<String, TimerStats> entry : new TreeMap<String, TimerStats>(m_Timers).entrySet()){
+			TimerStats stats = entry.getValue();
+			synchronized (stats){
+				writer.println("timer," + entry.getKey() + "," + stats.m_Count + "," + millis(stats.m_TotalNanos)
+						+ "," + millis(stats.m_MaxNanos) + "," + stats.m_AllocatedBytes + ",");
+			}
+		}
+		for (Map.Entry<String, AtomicLong> entry : new TreeMap<String, AtomicLong>(m_Counters).entrySet()){
+			writer.println("counter," + entry.getKey() + ",,,,," + entry.getValue().get());
+		}
+		for (Map.Entry<String, AtomicLong> entry : new TreeMap<String, AtomicLong>(m_Gauges).entrySet()){
+			writer.println("gauge," + entry.getKey() + ",,,,," + entry.getValue().get());
+		}
+		writer.flush();
+		if (writer.checkError())
+			throw new IOException("error writing metrics");
+	}
+
+	/**
+	 * writeGenerationsCsv: writes the generation rows as a CSV table with a header line
+	 */
+	public void writeGenerationsCsv(Writer out) throws IOException {
+		PrintWriter writer = new PrintWriter(out);
+		writer.println("run,generation,frontier,flips,checked,edgesScanned,millis");
+		for (GenerationStats row : getGenerations()){
+			writer.println(row.getRun() + "," + row.getGeneration() + "," + row.getFrontier() + ","
+					+ row.getFlips() + "," + row.getChecked() + "," + row.getEdgesScanned() + ","
+					+ millis(row.getNanos()));
+		}
+		writer.flush();
+		if (writer.checkError())
+			throw new IOException("error writing metrics");
+	}
+
+	private static String millis(long nanos){
+		//decimal point in every locale, for JSON and CSV
+		return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+
+	/**
+	 * Timer: a running timing of a phase, recorded in the registry by stop
+	 */
+	public static class Timer {
+		private final MetricsRegistry m_Registry;
+		private final String m_Name;
+		private final long m_Start;
+		private final long m_StartAllocated;
+
+		private Timer(MetricsRegistry registry, String name, long start, long startAllocated){
+			m_Registry = registry;
+			m_Name = name;
+			m_Start = start;
+			m_StartAllocated = startAllocated;
+		}
+
+		/**
+		 * stop: records the time since start
+		 * @return nanoseconds since start, 0 for a disabled registry
+		 */
+		public long stop(){
+			if (m_Registry == null)
+				return 0;
+			long nanos = System.nanoTime() - m_Start;
+			long allocated = m_StartAllocated < 0 ? -1 : allocatedBytes() - m_StartAllocated;
+			TimerStats stats = m_Registry.m_Timers.get(m_Name);
+			if (stats == null){
+				m_Registry.m_Timers.putIfAbsent(m_Name, new TimerStats());
+				stats = m_Registry.m_Timers.get(m_Name);
+			}
+			stats.add(nanos, allocated);
+			return nanos;
+		}
+	}
+
+	/**
+	 * TimerStats: totals of one timer
+	 */
+	private static class TimerStats {
+		private long m_Count;
+		private long m_TotalNanos;
+		private long m_MaxNanos;
+		private long m_AllocatedBytes;
+
+		synchronized void add(long nanos, long allocated){
+			m_Count++;
+			m_TotalNanos += nanos;
+			m_MaxNanos = Math.max(m_MaxNanos, nanos);
+			if (allocated < 0 || m_AllocatedBytes < 0)
+				m_AllocatedBytes = -1;
+			else
+				m_AllocatedBytes += allocated;
+		}
+	}
+
+	/**
+	 * GenerationStats: one generation of a cascade run
+	 */
+	public static class GenerationStats {
+		private final int m_Run;
+		private final int m_Generation;
+		private final int m_Frontier;
+		private final int m_Flips;
+		private final long m_Checked;
+		private final long m_EdgesScanned;
+		private final long m_Nanos;
+
+		GenerationStats(int run, int generation, int frontier, int flips, long checked, long edgesScanned, long nanos){
+			m_Run = run;
+			m_Generation = generation;
+			m_Frontier = frontier;
+			m_Flips = flips;
+			m_Checked = checked;
+			m_EdgesScanned = edgesScanned;
+			m_Nanos = nanos;
+		}
+
+		public int getRun(){
+			return m_Run;
+		}
+
+		public int getGeneration(){
+			return m_Generation;
+		}
+
+		public int getFrontier(){
+			return m_Frontier;
+		}
+
+		public int getFlips(){
+			return m_Flips;
+		}
+
+		public long getChecked(){
+			return m_Checked;
+		}
+
+		public long getEdgesScanned(){
+			return m_EdgesScanned;
+		}
+
+		public long getNanos(){
+			return m_Nanos;
+		}
+	}
+}
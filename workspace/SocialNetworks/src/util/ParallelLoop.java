@@ -0,0 +1,80 @@
+package util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * @author kguajardo
+ *
+ * ParallelLoop: Runs a loop over an index range on a fork/join pool.  The range is
+ * split in halves until a piece has at most grain indices, and each piece is passed
+ * to the body as a [from, to) range, so the body can keep its own local state.
+ *
+ */
+public class ParallelLoop {
+
+	/**
+	 * RangeBody: loop body for the indices from .. to-1
+	 */
+	public interface RangeBody {
+		void run(int from, int to);
+	}
+
+	/**
+	 * forRange: runs body over from .. to-1 in pieces of at most grain indices
+	 *
+	 * @param parallelism : number of threads, 0 uses the common fork/join pool
+	 */
+	public static void forRange(int parallelism, int from, int to, int grain, RangeBody body){
+		if (to <= from)
+			return;
+		ForkJoinPool pool = parallelism > 0 ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+		try {
+			pool.invoke(new Range(body, from, to, Math.max(grain, 1)));
+		}
+		finally {
+			if (pool != ForkJoinPool.commonPool())
+				pool.shutdown();
+		}
+	}
+
+	/**
+	 * forRange: runs body over from .. to-1 in pieces of at most grain indices, on pool.
+	 * For loops run many times (every generation of a cascade), so no pool is created
+	 * per call.
+	 */
+	public static void forRange(ForkJoinPool pool, int from, int to, int grain, RangeBody body){
+		if (to <= from)
+			return;
+		pool.invoke(new Range(body, from, to, Math.max(grain, 1)));
+	}
+
+	/**
+	 * Range: fork/join task running body over m_From .. m_To-1
+	 */
+	private static class Range extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final RangeBody m_Body;
+		private final int m_From;
+		private final int m_To;
+		private final int m_Grain;
+
+		Range(RangeBody body, int from, int to, int grain){
+			m_Body = body;
+			m_From = from;
+			m_To = to;
+			m_Grain = grain;
+		}
+
+		@Override
+		protected void compute(){
+			if (m_To - m_From <= m_Grain){
+				m_Body.run(m_From, m_To);
+				return;
+			}
+			int mid = m_From + (m_To - m_From) / 2;
+			invokeAll(new Range(m_Body, m_From, mid, m_Grain), new Range(m_Body, mid, m_To, m_Grain));
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package util;
+
+import java.util.ArrayList;
+
+/**
+ * @author kguajardo
+ *
+ * TopKSelector: Keeps the k best (node, score) pairs offered to it, either the k
+ * largest or the k smallest scores.
+ *
+ * The pairs are kept in a bounded binary heap with the worst kept pair at the root,
+ * so an offer that does not make the top k costs one comparison and one that does
+ * costs O(log k).  Nodes and scores are stored in parallel int[] and double[] arrays,
+ * nothing is boxed until the result is asked for.
+ *
+ * Ties are broken by node id, the lower id ranks higher, so the result does not depend
+ * on the order the nodes are offered in.  A NaN score ranks below every other score.
+ *
+ */
+public class TopKSelector {
+
+	private final int m_K;
+
+	//true keeps the largest scores, false the smallest
+	private final boolean m_Largest;
+
+	//heap of the kept pairs, worst at index 0
+	private final int[] m_Nodes;
+	private final double[] m_Scores;
+	private int m_Size;
+
+	public TopKSelector(int k, boolean largest){
+		if (k < 0)
+			throw new IllegalArgumentException("k must not be negative: " + k);
+		m_K = k;
+		m_Largest = largest;
+		m_Nodes = new int[k];
+		m_Scores = new double[k];
+		m_Size = 0;
+	}
+
+	/**
+	 * offer: keep node if its score is in the top k so far
+	 * @return true if node was kept
+	 */
+	public boolean offer(int node, double score){
+		if (m_Size < m_K){
+			//not full, always keep
+			m_Nodes[m_Size] = node;
+			m_Scores[m_Size] = score;
+			siftUp(m_Size++);
+			return true;
+		}
+		if (m_K == 0 || !isBetter(node, score, m_Nodes[0], m_Scores[0]))
+			//Not top ranked
+			return false;
+
+		//replace the worst kept pair
+		m_Nodes[0] = node;
+		m_Scores[0] = score;
+		siftDown(0);
+		return true;
+	}
+
+	/**
+	 * isBetter: does (node, score) rank above (otherNode, otherScore)
+	 */
+	private boolean isBetter(int node, double score, int otherNode, double otherScore){
+		if (Double.isNaN(score) || Double.isNaN(otherScore)){
+			if (Double.isNaN(score) != Double.isNaN(otherScore))
+				return !Double.isNaN(score);
+		}
+		else if (score != otherScore){
+			return m_Largest ? score > otherScore : score < otherScore;
+		}
+		//same score, lower id first
+		return node < otherNode;
+	}
+
+	private boolean isBetter(int i, int j){
+		return isBetter(m_Nodes[i], m_Scores[i], m_Nodes[j], m_Scores[j]);
+	}
+
+	private void siftUp(int i){
+		while (i > 0){
+			int parent = (i - 1) / 2;
+			if (!isBetter(parent, i))
+				return;
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i){
+		while (true){
+			int child = 2 * i + 1;
+			if (child >= m_Size)
+				return;
+			//worse of the two children
+			if (child + 1 < m_Size && isBetter(child, child + 1))
+				child++;
+			if (!isBetter(i, child))
+				return;
+			swap(i, child);
+			i = child;
+		}
+	}
+
+	private void swap(int i, int j){
+		int node = m_Nodes[i];
+		m_Nodes[i] = m_Nodes[j];
+		m_Nodes[j] = node;
+		double score = m_Scores[i];
+		m_Scores[i] = m_Scores[j];
+		m_Scores[j] = score;
+	}
+
+	public int size(){
+		return m_Size;
+	}
+
+	/**
+	 * getThreshold: score of the worst pair kept, the score to beat once k pairs are
+	 * kept.  NaN if nothing is kept.
+	 */
+	public double getThreshold(){
+		return m_Size == 0 ? Double.NaN : m_Scores[0];
+	}
+
+	/**
+	 * getNodes: kept nodes, best first
+	 */
+	public int[] getNodes(){
+		int[] nodes = new int[m_Size];
+		sorted(nodes, null);
+		return nodes;
+	}
+
+	/**
+	 * getScores: scores of the kept nodes, in the order of getNodes
+	 */
+	public double[] getScores(){
+		double[] scores = new double[m_Size];
+		sorted(null, scores);
+		return scores;
+	}
+
+	/**
+	 * getNodeList: kept nodes, best first, as a ranking list
+	 */
+	public ArrayList<Integer> getNodeList(){
+		ArrayList<Integer> list = new ArrayList<Integer>(m_Size);
+		for (int node : getNodes()){
+			list.add(node);
+		}
+		return list;
+	}
+
+	/**
+	 * sorted: heap sort a copy of the heap, filling nodes and/or scores best first
+	 */
+	private void sorted(int[] nodes, double[] scores){
+		TopKSelector copy = new TopKSelector(m_K, m_Largest);
+		System.arraycopy(m_Nodes, 0, copy.m_Nodes, 0, m_Size);
+		System.arraycopy(m_Scores, 0, copy.m_Scores, 0, m_Size);
+		copy.m_Size = m_Size;
+
+		//pop the worst into the last free position
+		for (int i = m_Size - 1; i >= 0; i--){
+			if (nodes != null)
+				nodes[i] = copy.m_Nodes[0];
+			if (scores != null)
+				scores[i] = copy.m_Scores[0];
+			copy.m_Size--;
+			copy.m_Nodes[0] = copy.m_Nodes[copy.m_Size];
+			copy.m_Scores[0] = copy.m_Scores[copy.m_Size];
+			copy.siftDown(0);
+		}
+	}
+
+	public void clear(){
+		m_Size = 0;
+	}
+}
@@ -0,0 +1,140 @@
+package view;
+
+import org.graphstream.graph.implementations.SingleGraph;
+
+import graph.CapGraph;
+import graph.CascadeGraph;
+import graph.CascadeObserver;
+import util.GraphLoader;
+
+/**
+ * @author Kathy Guajardo
+ *
+ * GraphViewer shows a cascade as it runs, using the dynamic graph library GraphStream.
+ *
+ * The viewer is a CascadeObserver: the graph is copied into a SingleGraph when the
+ * cascade starts, and every batch of nodes that change to A is colored red.  After
+ * each batch the viewer waits, so each generation change can be viewed.
+ *
+ * The graph classes do not depend on GraphStream; without a viewer attached the
+ * cascade runs headless and at full speed.
+ *
+ */
+public class GraphViewer implements CascadeObserver {
+
+	//for visualization
+	private SingleGraph graphView;
+
+	//time delay after each change, in milliseconds
+	private long m_DelayMillis;
+
+	//Coloring for nodes in Visualization
+	//Nodes with B Property : Blue
+	//Nodes with A Property : Red
+	protected String styleSheet =
+            "node {" +
+            "	fill-color: black;" +
+            "}" +
+            "node.B {" +
+            "	fill-color: blue;" +
+            "}" +
+            "node.A {" +
+            "	fill-color: red;" +
+            "}"
+            ;
+
+	public GraphViewer(){
+		m_DelayMillis = 1000;
+	}
+
+	/**
+	 * cascadeStarted: Builds the SingleGraph from the graph and displays it
+	 */
+	@Override
+	public void cascadeStarted(CascadeGraph graph) {
+		graphView = new SingleGraph("Cascade Graph");
+		graphView.addAttribute("ui.stylesheet", styleSheet);
+		graphView.addAttribute("ui.quality");
+
+		//add nodes, colored by their current property
+		for (int v : graph.getVertices()){
+			String node = Integer.toString(v);
+			graphView.addNode(node);
+			graphView.getNode(node).addAttribute("ui.class", graph.getABProperty(v) == 'A' ? "A" : "B");
+		}
+
+		//only add edge in one direction, friendships go both ways
+		// Edge Name = vertex from id + "to" + vertex to id
+		for (int from : graph.getVertices()){
+			graph.forEachNeighbor(from, to -> {
+				if (from != to && (from < to || !graph.hasEdge(to, from))){
+					String edgeName = Integer.toString(from)+ "to"+ Integer.toString(to);
+					graphView.addEdge(edgeName,Integer.toString(from), Integer.toString(to) );
+				}
+			});
+		}
+
+		graphView.display();
+		sleep();
+	}
+
+	@Override
+	public void nodesSeeded(int[] nodes, int count) {
+		setNodesToA(nodes, count);
+		sleep();
+	}
+
+	@Override
+	public void generationCompleted(int generation, int[] changed, int count) {
+		setNodesToA(changed, count);
+		sleep();
+	}
+
+	@Override
+	public void nodesReset(int[] nodes, int count) {
+		for (int i = 0; i < count; i++){
+			graphView.getNode(Integer.toString(nodes[i])).changeAttribute("ui.class", "B");
+		}
+		sleep();
+	}
+
+	@Override
+	public void cascadeFinished(int totalChanged, int generations) {
+		//graph stays displayed with its final coloring
+	}
+
+	private void setNodesToA(int[] nodes, int count){
+		for (int i = 0; i < count; i++){
+			graphView.getNode(Integer.toString(nodes[i])).changeAttribute("ui.class", "A");
+		}
+	}
+
+	private void sleep() {
+		//time delay, used for graph display, so each generation change can be viewed
+		try { Thread.sleep(m_DelayMillis); } catch (Exception e) {}
+	}
+
+	public void setDelay(long millis){
+		if (millis < 0)
+			//bad input
+			return;
+
+		m_DelayMillis = millis;
+	}
+
+	public SingleGraph getGraphView(){
+		return graphView;
+	}
+
+	/**
+	 * Runs the facebook_1000 cascade with the visualization attached
+	 */
+	public static void main(String[] args){
+		CapGraph FBGraph = new CapGraph();
+
+		GraphLoader.loadGraph(FBGraph, "data/facebook_1000.txt");
+		System.out.println("FB Vertices "+ FBGraph.getNumVertices() + ", Edges "
+		+ FBGraph.getNumEdges());
+		FBGraph.RunCascade(new GraphViewer());
+	}
+}